@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.config.EmbeddedDataBaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * In-memory embedded database shared by the benchmarks, reset and seeded at the start of each trial.
+ */
+public final class BenchmarkDataBase {
+
+    private static final DataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig() {
+        @Override
+        protected String getJdbcUrl() {
+            return "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        }
+
+        @Override
+        protected String getPoolName() {
+            return "parkit-benchmark";
+        }
+    };
+
+    private BenchmarkDataBase() {
+    }
+
+    public static DataBaseConfig getConfig() {
+        return dataBaseConfig;
+    }
+
+    /**
+     * Empties the tables and creates spotsPerType CAR spots followed by spotsPerType BIKE spots, all free.
+     */
+    public static void reset(int spotsPerType) throws Exception {
+        new DataBaseMigration(dataBaseConfig).migrate();
+        try (Connection con = dataBaseConfig.getConnection();
+             Statement st = con.createStatement()) {
+            st.execute("delete from ticket");
+            st.execute("delete from parking");
+            try (PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?,true,?)")) {
+                for (int i = 1; i <= 2 * spotsPerType; i++) {
+                    ps.setInt(1, i);
+                    ps.setString(2, i <= spotsPerType ? "CAR" : "BIKE");
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Adds closed tickets so that lookups run against a realistic history.
+     */
+    public static void addHistory(int plates, int visitsPerPlate) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(1,?,1.5,?,?)")) {
+            for (int plate = 0; plate < plates; plate++) {
+                for (int visit = 0; visit < visitsPerPlate; visit++) {
+                    long inTime = now - (visit + 1) * 24L * 60 * 60 * 1000;
+                    ps.setString(1, plate(plate));
+                    ps.setTimestamp(2, new Timestamp(inTime));
+                    ps.setTimestamp(3, new Timestamp(inTime + 60 * 60 * 1000));
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    public static String plate(int index) {
+        return "PL" + index;
+    }
+}
@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FareCalculatorBenchmark {
+
+    private final FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private Ticket carTicket;
+    private Ticket bikeTicket;
+
+    @Setup
+    public void setUp() {
+        long now = System.currentTimeMillis();
+        carTicket = ticket(ParkingType.CAR, now - 3 * 60 * 60 * 1000, now);
+        bikeTicket = ticket(ParkingType.BIKE, now - 45 * 60 * 1000, now);
+    }
+
+    private Ticket ticket(ParkingType parkingType, long inTime, long outTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(new Date(outTime));
+        return ticket;
+    }
+
+    @Benchmark
+    public double calculateCarFare() {
+        fareCalculatorService.calculateFare(carTicket);
+        return carTicket.getPrice();
+    }
+
+    @Benchmark
+    public double calculateBikeFare() {
+        fareCalculatorService.calculateFare(bikeTicket);
+        return bikeTicket.getPrice();
+    }
+
+    @Benchmark
+    public double calculateCarFareFromMillis() {
+        return fareCalculatorService.calculateFare(carTicket.getInTime().getTime(), carTicket.getOutTime().getTime(), ParkingType.CAR.ordinal());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double calculateCarFareConcurrent() {
+        fareCalculatorService.calculateFare(carTicket);
+        return carTicket.getPrice();
+    }
+}
@@ -0,0 +1,87 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.OpenSessionIndex;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSpotAllocator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Full gate flow, entry then exit of the same vehicle, through ParkingService with scripted console input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GateFlowBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Lot {
+        ParkingSpotDAO parkingSpotDAO;
+        TicketDAO ticketDAO;
+        ParkingSpotAllocator parkingSpotAllocator;
+        OpenSessionIndex openSessionIndex;
+        final AtomicInteger gates = new AtomicInteger();
+        private PrintStream console;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            BenchmarkDataBase.reset(100);
+            parkingSpotDAO = new ParkingSpotDAO(BenchmarkDataBase.getConfig());
+            ticketDAO = new TicketDAO(BenchmarkDataBase.getConfig());
+            parkingSpotAllocator = ParkingSpotAllocator.load(parkingSpotDAO);
+            openSessionIndex = OpenSessionIndex.load(ticketDAO);
+            //the gate prints its prompts, keep them out of the benchmark output
+            console = System.out;
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            }));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.setOut(console);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Gate {
+        ScriptedInputReaderUtil inputReaderUtil;
+        ParkingService parkingService;
+        String vehicleRegNumber;
+
+        @Setup(Level.Trial)
+        public void setUp(Lot lot) {
+            inputReaderUtil = new ScriptedInputReaderUtil();
+            parkingService = new ParkingService(inputReaderUtil, lot.parkingSpotDAO, lot.ticketDAO,
+                    lot.parkingSpotAllocator, lot.openSessionIndex);
+            vehicleRegNumber = "GATE" + lot.gates.incrementAndGet();
+        }
+    }
+
+    private void enterAndExit(Gate gate) {
+        gate.inputReaderUtil.script(1, gate.vehicleRegNumber);
+        gate.parkingService.processIncomingVehicle();
+        gate.parkingService.processExitingVehicle();
+    }
+
+    @Benchmark
+    public void enterAndExit(Lot lot, Gate gate) {
+        enterAndExit(gate);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void enterAndExitConcurrentGates(Lot lot, Gate gate) {
+        enterAndExit(gate);
+    }
+}
@@ -0,0 +1,35 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParkingSpotDAOBenchmark {
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDataBase.reset(500);
+        parkingSpotDAO = new ParkingSpotDAO(BenchmarkDataBase.getConfig());
+    }
+
+    @Benchmark
+    public int getNextAvailableSlot() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int getNextAvailableSlotConcurrent() {
+        return parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR);
+    }
+}
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+/**
+ * Answers the gate prompts from fields instead of the console.
+ */
+public class ScriptedInputReaderUtil extends InputReaderUtil {
+
+    private int selection = 1;
+    private String vehicleRegNumber;
+
+    public void script(int selection, String vehicleRegNumber) {
+        this.selection = selection;
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return selection;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
@@ -0,0 +1,89 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TicketDAOBenchmark {
+
+    private static final int PLATES = 1000;
+
+    private TicketDAO ticketDAO;
+    private int openTicketId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkDataBase.reset(10);
+        BenchmarkDataBase.addHistory(PLATES, 20);
+        ticketDAO = new TicketDAO(BenchmarkDataBase.getConfig());
+        for (int plate = 0; plate < PLATES; plate++) {
+            Ticket ticket = newTicket(BenchmarkDataBase.plate(plate));
+            ticketDAO.saveTicketAndOccupySpot(ticket);
+            openTicketId = ticket.getId();
+        }
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    @Benchmark
+    public Ticket getTicket() {
+        return ticketDAO.getTicket(BenchmarkDataBase.plate(ThreadLocalRandom.current().nextInt(PLATES)));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Ticket getTicketConcurrent() {
+        return ticketDAO.getTicket(BenchmarkDataBase.plate(ThreadLocalRandom.current().nextInt(PLATES)));
+    }
+
+    @Benchmark
+    public boolean saveTicket() {
+        return ticketDAO.saveTicket(newTicket("NEW" + ThreadLocalRandom.current().nextInt(PLATES)));
+    }
+
+    /**
+     * updateTicket only closes an open ticket, the one closed by the last invocation is opened again.
+     */
+    @State(Scope.Thread)
+    public static class OpenTicket {
+
+        @Setup(Level.Invocation)
+        public void reopen(TicketDAOBenchmark benchmark) throws SQLException {
+            try (Connection con = BenchmarkDataBase.getConfig().getConnection();
+                 PreparedStatement ps = con.prepareStatement("update ticket set OUT_TIME = null where ID = ?")) {
+                ps.setInt(1, benchmark.openTicketId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean updateTicket(OpenTicket openTicket) {
+        Ticket ticket = newTicket(BenchmarkDataBase.plate(PLATES - 1));
+        ticket.setId(openTicketId);
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+        return ticketDAO.updateTicket(ticket);
+    }
+}
@@ -1,13 +1,322 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReportPeriod;
+import com.parkit.parkingsystem.dao.BatchTicketWriter;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketArchive;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.FlightRecording;
+import com.parkit.parkingsystem.model.LotStatistics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ArchiveService;
+import com.parkit.parkingsystem.service.CrossLotQueryService;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareRepricingService;
+import com.parkit.parkingsystem.service.GateEventReplayService;
+import com.parkit.parkingsystem.service.GateServer;
 import com.parkit.parkingsystem.service.InteractiveShell;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.service.ParkingWarmup;
+import com.parkit.parkingsystem.service.ReportService;
+import com.parkit.parkingsystem.service.TariffFile;
+import com.parkit.parkingsystem.service.TrafficProfile;
+import com.parkit.parkingsystem.service.TrafficSimulator;
+import com.parkit.parkingsystem.util.GateEventParser;
+import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
     public static void main(String args[]){
         logger.info("Initializing Parking System");
-        InteractiveShell.loadInterface();
+        String recordingFile = getOption(args, "--jfr", null);
+        if(recordingFile != null){
+            startRecording(recordingFile);
+        }
+        String mode = (args.length > 0) ? args[0] : "";
+        switch(mode){
+            case "--replay": {
+                replay(args);
+                break;
+            }
+            case "--server": {
+                serve(args);
+                break;
+            }
+            case "--reprice": {
+                reprice(args);
+                break;
+            }
+            case "--lot-report": {
+                lotReport(args);
+                break;
+            }
+            case "--report": {
+                report(args);
+                break;
+            }
+            case "--archive": {
+                archive(args);
+                break;
+            }
+            case "--history": {
+                history(args);
+                break;
+            }
+            case "--simulate": {
+                simulate(args);
+                break;
+            }
+            case "--warmup": {
+                warmup();
+                break;
+            }
+            default: InteractiveShell.loadInterface();
+        }
+    }
+
+    //--jfr <file>, with any mode
+    private static void startRecording(String recordingFile){
+        try{
+            FlightRecording.start(Paths.get(recordingFile),
+                    Duration.ofMinutes(Long.parseLong(DataBaseConfig.getProperty("jfr.maxAgeMinutes"))),
+                    Long.parseLong(DataBaseConfig.getProperty("jfr.maxSizeMegabytes")) * 1024 * 1024);
+            logger.info("Flight recording " + FlightRecording.NAME + " started, written to " + recordingFile + " on exit");
+        }catch(Exception e){
+            logger.error("Unable to start flight recording", e);
+        }
+    }
+
+    //--server [--port N] [--bind address], serving every lot of the lots property
+    private static void serve(String args[]){
+        int port = Integer.parseInt(getOption(args, "--port", "7000"));
+        try{
+            List<ParkingSystem> parkingSystems = ParkingSystem.openLots(LotRouter.fromProperties(), new InputReaderUtil());
+            List<ParkingService> parkingServices = new ArrayList<>();
+            for(ParkingSystem parkingSystem : parkingSystems){
+                parkingServices.add(parkingSystem.getParkingService());
+            }
+            GateServer gateServer = new GateServer(parkingServices, InetAddress.getByName(getOption(args, "--bind", "0.0.0.0")), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    gateServer.close();
+                } catch (IOException e) {
+                    logger.error("Error while stopping gate server", e);
+                }
+                parkingSystems.forEach(ParkingSystem::close);
+                DataBaseConfig.shutdown();
+            }));
+            System.out.println("Gate server listening on port " + gateServer.getPort());
+            gateServer.run();
+        }catch(Exception e){
+            logger.error("Unable to start gate server", e);
+        }
+    }
+
+    //--replay <event file> [--batch-size N] [--commit-interval N]
+    private static void replay(String args[]){
+        if(args.length < 2){
+            System.out.println("Usage: --replay <event file> [--batch-size N] [--commit-interval N]");
+            return;
+        }
+        int batchSize = Integer.parseInt(getOption(args, "--batch-size", "500"));
+        int commitInterval = Integer.parseInt(getOption(args, "--commit-interval", "5000"));
+        try(BufferedReader reader = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+            ParkingSystem parkingSystem = ParkingSystem.open(DataBaseConfig.fromProperties(), new InputReaderUtil())){
+            GateEventReplayService replayService = new GateEventReplayService(parkingSystem.getParkingService(),
+                    new BatchTicketWriter(parkingSystem.getDataBaseConfig(), batchSize), new GateEventParser(ZoneId.systemDefault()), commitInterval);
+            GateEventReplayService.Report report = replayService.replay(reader);
+            logger.info("Replay of " + args[1] + " done: " + report);
+            System.out.println(report);
+        }catch(Exception e){
+            logger.error("Unable to replay " + args[1], e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--reprice [--chunk-size N]
+    private static void reprice(String args[]){
+        int chunkSize = Integer.parseInt(getOption(args, "--chunk-size", "10000"));
+        try{
+            DataBaseConfig dataBaseConfig = DataBaseConfig.fromProperties();
+            new DataBaseMigration(dataBaseConfig).migrate();
+            FareRepricingService.Result result = new FareRepricingService(dataBaseConfig, new FareCalculatorService(null, 0, TariffFile.fromProperties()), chunkSize).reprice();
+            System.out.println(result);
+        }catch(Exception e){
+            logger.error("Unable to reprice closed tickets", e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--lot-report [--days N]
+    private static void lotReport(String args[]){
+        int days = Integer.parseInt(getOption(args, "--days", "1"));
+        LotRouter lotRouter = LotRouter.fromProperties();
+        try(CrossLotQueryService crossLotQueryService = new CrossLotQueryService(lotRouter)){
+            Date to = new Date();
+            Date from = new Date(to.getTime() - TimeUnit.DAYS.toMillis(days));
+            List<LotStatistics> lots = crossLotQueryService.getLotStatistics(from, to);
+            lots.forEach(System.out::println);
+            System.out.println(LotStatistics.merge(CrossLotQueryService.ALL_LOTS, lots));
+        }catch(Exception e){
+            logger.error("Unable to report on lots", e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--report <csv file> [--days N] [--period day|hour] [--tickets] [--fetch-size N]
+    private static void report(String args[]){
+        if(args.length < 2){
+            System.out.println("Usage: --report <csv file> [--days N] [--period day|hour] [--tickets] [--fetch-size N]");
+            return;
+        }
+        int days = Integer.parseInt(getOption(args, "--days", "30"));
+        ReportPeriod reportPeriod = ReportPeriod.valueOf(getOption(args, "--period", "day").toUpperCase());
+        int fetchSize = Integer.parseInt(getOption(args, "--fetch-size", "1000"));
+        Date to = new Date();
+        Date from = new Date(to.getTime() - TimeUnit.DAYS.toMillis(days));
+        try(Writer writer = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)){
+            DataBaseConfig dataBaseConfig = DataBaseConfig.fromProperties();
+            new DataBaseMigration(dataBaseConfig).migrate();
+            ReportService reportService = new ReportService(dataBaseConfig, fetchSize);
+            if(Arrays.asList(args).contains("--tickets")){
+                System.out.println(reportService.exportTicketsCsv(from, to, writer) + " tickets written to " + args[1]);
+            }else{
+                reportService.writeUsageCsv(reportService.getUsageReport(from, to), reportPeriod, writer);
+                System.out.println("Usage report written to " + args[1]);
+            }
+        }catch(Exception e){
+            logger.error("Unable to write report " + args[1], e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--archive [--days N]
+    private static void archive(String args[]){
+        int days = Integer.parseInt(getOption(args, "--days", DataBaseConfig.getProperty("archive.afterDays")));
+        try{
+            DataBaseConfig dataBaseConfig = DataBaseConfig.fromProperties();
+            new DataBaseMigration(dataBaseConfig).migrate();
+            TicketArchive ticketArchive = new TicketArchive(Paths.get(DataBaseConfig.getProperty("archive.dir")));
+            ArchiveService archiveService = new ArchiveService(dataBaseConfig, ticketArchive,
+                    Integer.parseInt(DataBaseConfig.getProperty("archive.blockSize")));
+            System.out.println(archiveService.archive(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days))));
+        }catch(Exception e){
+            logger.error("Unable to archive closed tickets", e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--history <vehicle reg number>
+    private static void history(String args[]){
+        if(args.length < 2){
+            System.out.println("Usage: --history <vehicle reg number>");
+            return;
+        }
+        try{
+            DataBaseConfig dataBaseConfig = DataBaseConfig.fromProperties();
+            new DataBaseMigration(dataBaseConfig).migrate();
+            TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
+            ticketDAO.setTicketArchive(new TicketArchive(Paths.get(DataBaseConfig.getProperty("archive.dir"))));
+            for(Ticket ticket : ticketDAO.getTicketHistory(args[1])){
+                System.out.println(ticket.getInTime() + " -> " + ticket.getOutTime() + " spot " + ticket.getParkingSpot().getId()
+                        + " " + ticket.getParkingSpot().getParkingType() + " price " + ticket.getPrice());
+            }
+        }catch(Exception e){
+            logger.error("Unable to read ticket history of " + args[1], e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--warmup: starts, warms up and stops, the training run of the AppCDS archive built by the appcds profile
+    private static void warmup(){
+        long start = System.nanoTime();
+        try(ParkingSystem parkingSystem = ParkingSystem.open(DataBaseConfig.fromProperties(), new InputReaderUtil())){
+            long opened = System.nanoTime();
+            new ParkingWarmup(parkingSystem.getDataBaseConfig(), Integer.parseInt(DataBaseConfig.getProperty("startup.warmupIterations"))).run();
+            System.out.println("Started in " + TimeUnit.NANOSECONDS.toMillis(opened - start) + " ms, warmed up in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - opened) + " ms");
+        }catch(Exception e){
+            logger.error("Unable to warm up", e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //--simulate [--gates N] [--vehicles N] [--arrivals-per-hour N] [--speedup N] [--seed N] [--add-spots CAR=N,BIKE=N]
+    private static void simulate(String args[]){
+        TrafficProfile profile = new TrafficProfile();
+        profile.setGates(Integer.parseInt(getOption(args, "--gates", String.valueOf(profile.getGates()))));
+        profile.setVehicles(Integer.parseInt(getOption(args, "--vehicles", String.valueOf(profile.getVehicles()))));
+        profile.setArrivalsPerHour(Double.parseDouble(getOption(args, "--arrivals-per-hour", String.valueOf(profile.getArrivalsPerHour()))));
+        profile.setSpeedup(Double.parseDouble(getOption(args, "--speedup", "0")));
+        profile.setSeed(Long.parseLong(getOption(args, "--seed", String.valueOf(profile.getSeed()))));
+        try{
+            DataBaseConfig dataBaseConfig = DataBaseConfig.fromProperties();
+            new DataBaseMigration(dataBaseConfig).migrate();
+            String addSpots = getOption(args, "--add-spots", "");
+            if(!addSpots.isEmpty()){
+                addParkingSpots(new ParkingSpotDAO(dataBaseConfig), addSpots);
+            }
+            try(ParkingSystem parkingSystem = ParkingSystem.open(dataBaseConfig, new InputReaderUtil())){
+                System.out.println(new TrafficSimulator(parkingSystem.getParkingService(), profile).run());
+            }
+        }catch(Exception e){
+            logger.error("Unable to run traffic simulation", e);
+        }finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    //CAR=300,BIKE=50: new free spots numbered after the highest existing one
+    private static void addParkingSpots(ParkingSpotDAO parkingSpotDAO, String spots){
+        int parkingNumber = 0;
+        for(ParkingSpot parkingSpot : parkingSpotDAO.getParkingSpots()){
+            parkingNumber = Math.max(parkingNumber, parkingSpot.getId());
+        }
+        for(String spot : spots.split(",")){
+            String[] typeAndCount = spot.split("=");
+            ParkingType parkingType = ParkingType.valueOf(typeAndCount[0].trim().toUpperCase());
+            for(int i = 0; i < Integer.parseInt(typeAndCount[1].trim()); i++){
+                parkingSpotDAO.saveParkingSpot(new ParkingSpot(++parkingNumber, parkingType, true));
+            }
+        }
+    }
+
+    private static String getOption(String args[], String name, String defaultValue){
+        for(int i = 0; i < args.length - 1; i++){
+            if(name.equals(args[i])){
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
     }
 }
@@ -1,26 +1,205 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.metrics.ConnectionEvent;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.*;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataBaseConfig {
 
+    public static final String DEFAULT_LOT = "default";
+
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
-    public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+    private static final String PROPERTIES_FILE = "/database.properties";
+    private static final Properties properties = loadProperties();
+
+    //one pool per JDBC url, shared by every DAO pointing at the same database
+    private static final ConcurrentMap<String, HikariDataSource> dataSources = new ConcurrentHashMap<>();
+    //lag of each replica url, checked at most every db.replica.checkIntervalMillis whatever the number of DAOs
+    private static final ConcurrentMap<String, ReplicaLag> replicaLags = new ConcurrentHashMap<>();
+
+    //MySQL Connector/J settings read from db.mysql.<name>, they are unknown to other drivers
+    private static final String[] MYSQL_DRIVER_PROPERTIES = {
+            "cachePrepStmts", "useServerPrepStmts", "prepStmtCacheSize", "prepStmtCacheSqlLimit"
+    };
+
+    private static final OperationStats connectionWaitStats = Metrics.operation("DataBaseConfig.getConnection");
+    private static final OperationStats replicaConnectionWaitStats = Metrics.operation("DataBaseConfig.getReplicaConnection");
+
+    /**
+     * @param backend "mysql" (the default when null) or "embedded"
+     */
+    public static DataBaseConfig forBackend(String backend) {
+        if (backend == null || "mysql".equalsIgnoreCase(backend)) {
+            return new DataBaseConfig();
+        }
+        if ("embedded".equalsIgnoreCase(backend)) {
+            return new EmbeddedDataBaseConfig();
+        }
+        throw new IllegalArgumentException("Unknown database backend:" + backend);
+    }
+
+    /**
+     * @return the backend selected by the db.backend property
+     */
+    public static DataBaseConfig fromProperties() {
+        return forBackend(getProperty("db.backend"));
+    }
+
+    /**
+     * @return the parking lot stored in this database
+     */
+    public String getLotId() {
+        return DEFAULT_LOT;
+    }
+
+    protected String getJdbcUrl() {
+        return getProperty("db.url");
+    }
+
+    protected String getUser() {
+        return getProperty("db.user");
+    }
+
+    protected String getPassword() {
+        return getProperty("db.password");
+    }
+
+    protected String getPoolName() {
+        return "parkit-prod";
+    }
+
+    /**
+     * @return the read-only replica of this database, null or empty when there is none
+     */
+    protected String getReplicaUrl() {
+        return getProperty("db.replica.url");
+    }
+
+    public DataSource getDataSource() {
+        return dataSources.computeIfAbsent(getJdbcUrl(), url -> new HikariDataSource(getPoolConfig(url)));
+    }
+
+    public Connection getConnection() throws SQLException {
+        logger.debug("Borrow DB connection from pool");
+        long start = System.nanoTime();
+        ConnectionEvent event = new ConnectionEvent();
+        event.begin();
+        try {
+            Connection con = getDataSource().getConnection();
+            event.setAcquired(true);
+            return con;
+        } catch (SQLException e) {
+            connectionWaitStats.error();
+            throw e;
+        } finally {
+            //time spent waiting for the pool, or for a new connection when the pool is empty
+            connectionWaitStats.record(start);
+            if (event.shouldCommit()) {
+                event.setPool(getPoolName());
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Connection for the read-only queries that accept data up to db.replica.maxLagMillis old, such as reports and
+     * history lookups: borrowed from the replica when it is set and close enough behind, else from the primary.
+     * Writes and the reads of the gates, which must see their own writes, use getConnection.
+     */
+    public Connection getReadConnection() throws SQLException {
+        String replicaUrl = getReplicaUrl();
+        if (replicaUrl == null || replicaUrl.trim().isEmpty()) {
+            return getConnection();
+        }
+        DataSource replica = dataSources.computeIfAbsent(replicaUrl.trim(), url -> new HikariDataSource(getReplicaPoolConfig(url)));
+        ReplicaLag replicaLag = replicaLags.computeIfAbsent(replicaUrl.trim(), url -> new ReplicaLag(
+                Long.parseLong(getProperty("db.replica.maxLagMillis")), Long.parseLong(getProperty("db.replica.checkIntervalMillis"))));
+        if (replicaLag.isFresh(this, replica)) {
+            long start = System.nanoTime();
+            ConnectionEvent event = new ConnectionEvent();
+            event.begin();
+            try {
+                Connection con = replica.getConnection();
+                event.setAcquired(true);
+                return con;
+            } catch (SQLException e) {
+                replicaConnectionWaitStats.error();
+                replicaLag.markUnreachable();
+                logger.warn("Replica unreachable, reads go to the primary", e);
+            } finally {
+                replicaConnectionWaitStats.record(start);
+                if (event.shouldCommit()) {
+                    event.setPool(getPoolName() + "-replica");
+                    event.commit();
+                }
+            }
+        }
+        return getConnection();
+    }
+
+    public HikariPoolMXBean getPoolStats() {
+        return ((HikariDataSource) getDataSource()).getHikariPoolMXBean();
+    }
+
+    protected HikariConfig getPoolConfig(String url) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(getPoolName());
+        config.setJdbcUrl(url);
+        config.setUsername(getUser());
+        config.setPassword(getPassword());
+        config.setMaximumPoolSize(Integer.parseInt(getProperty("db.pool.maximumPoolSize")));
+        config.setMinimumIdle(Integer.parseInt(getProperty("db.pool.minimumIdle")));
+        config.setConnectionTimeout(Long.parseLong(getProperty("db.pool.connectionTimeout")));
+        config.setValidationTimeout(Long.parseLong(getProperty("db.pool.validationTimeout")));
+        config.setIdleTimeout(Long.parseLong(getProperty("db.pool.idleTimeout")));
+        config.setMaxLifetime(Long.parseLong(getProperty("db.pool.maxLifetime")));
+        config.setLeakDetectionThreshold(Long.parseLong(getProperty("db.pool.leakDetectionThreshold")));
+        //do not fail at startup if the database is down, borrowers will get a timeout instead
+        config.setInitializationFailTimeout(-1);
+        config.setRegisterMbeans(true);
+        if (url.startsWith("jdbc:h2:")) {
+            //the jar with dependencies keeps the java.sql.Driver service file of MySQL only, H2 must be named
+            config.setDriverClassName("org.h2.Driver");
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            for (String name : MYSQL_DRIVER_PROPERTIES) {
+                String value = getProperty("db.mysql." + name);
+                if (value != null) {
+                    config.addDataSourceProperty(name, value);
+                }
+            }
+        }
+        return config;
+    }
+
+    private HikariConfig getReplicaPoolConfig(String url) {
+        HikariConfig config = getPoolConfig(url);
+        config.setPoolName(getPoolName() + "-replica");
+        config.setReadOnly(true);
+        //give up quickly on a replica that is down, the read goes to the primary instead
+        config.setConnectionTimeout(Long.parseLong(getProperty("db.replica.connectionTimeout")));
+        return config;
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Return DB connection to pool");
             } catch (SQLException e) {
                 logger.error("Error while closing connection",e);
             }
@@ -31,7 +210,7 @@ public class DataBaseConfig {
         if(ps!=null){
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
@@ -42,10 +221,35 @@ public class DataBaseConfig {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
         }
     }
+
+    public static void shutdown() {
+        for (HikariDataSource dataSource : dataSources.values()) {
+            dataSource.close();
+        }
+        dataSources.clear();
+        replicaLags.clear();
+    }
+
+    //system properties take precedence over the bundled database.properties
+    public static String getProperty(String key) {
+        return System.getProperty(key, properties.getProperty(key));
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (InputStream in = DataBaseConfig.class.getResourceAsStream(PROPERTIES_FILE)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            logger.error("Error while loading " + PROPERTIES_FILE, e);
+        }
+        return props;
+    }
 }
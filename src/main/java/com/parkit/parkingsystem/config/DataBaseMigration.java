@@ -0,0 +1,189 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Applies the versioned scripts of db/migration that the database has not seen yet, in order.
+ * Applied versions are recorded in the schema_version table, in the same transaction as their script; a script with
+ * DDL still commits as it goes on MySQL and H2. Gates starting together take turns on the schema_lock row, so each
+ * script runs once. A script of db/migration/&lt;database&gt;, e.g. h2, replaces the shared one on that database.
+ */
+public class DataBaseMigration {
+
+    private static final Logger logger = LogManager.getLogger("DataBaseMigration");
+
+    private static final String MIGRATION_PATH = "/db/migration/";
+    private static final String[] MIGRATIONS = {
+            "V1__create_schema.sql",
+            "V2__add_hot_path_indexes.sql",
+            "V3__add_journal_checkpoint.sql",
+            "V4__add_report_index.sql",
+            "V5__add_reservation.sql",
+            "V6__add_replica_heartbeat.sql",
+            "V7__key_journal_checkpoint_by_journal.sql",
+            "V8__add_ticket_discount_flag.sql",
+            "V9__generate_ticket_ids_from_sequence.sql"
+    };
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public DataBaseMigration(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * @return the number of scripts applied
+     */
+    public int migrate() throws SQLException, IOException {
+        Connection lockCon = null;
+        Connection con = null;
+        try {
+            lockCon = dataBaseConfig.getConnection();
+            createLock(lockCon);
+            lockCon.setAutoCommit(false);
+            lock(lockCon);
+            con = dataBaseConfig.getConnection();
+            try (Statement st = con.createStatement()) {
+                st.execute(DBConstants.CREATE_SCHEMA_VERSION);
+            }
+            //read once locked, a migration that held the lock before may have applied scripts meanwhile
+            int currentVersion = getCurrentVersion(con);
+            int applied = 0;
+            con.setAutoCommit(false);
+            for (String migration : MIGRATIONS) {
+                int version = getVersion(migration);
+                if (version > currentVersion) {
+                    logger.info("Applying schema migration " + migration);
+                    try {
+                        apply(con, migration);
+                        recordVersion(con, version, migration);
+                        con.commit();
+                    } catch (SQLException | IOException e) {
+                        con.rollback();
+                        throw e;
+                    }
+                    applied++;
+                }
+            }
+            return applied;
+        } finally {
+            release(con);
+            release(lockCon);
+        }
+    }
+
+    public static int getLatestVersion() {
+        return getVersion(MIGRATIONS[MIGRATIONS.length - 1]);
+    }
+
+    private void createLock(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(DBConstants.CREATE_SCHEMA_LOCK);
+        }
+        try (Statement st = con.createStatement()) {
+            st.execute(DBConstants.SEED_SCHEMA_LOCK);
+        } catch (SQLException e) {
+            //another migration inserted the row at the same time, lock() fails if it is really missing
+            logger.debug("Schema lock row not inserted", e);
+        }
+    }
+
+    //waits for the running migration, if any, up to the lock timeout of the database
+    private void lock(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.LOCK_SCHEMA);
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("Missing schema_lock row");
+            }
+        }
+    }
+
+    //ends the transaction, releasing the lock, before the connection goes back to the pool
+    private void release(Connection con) {
+        if (con == null) {
+            return;
+        }
+        try {
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error while ending the migration transaction", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int getCurrentVersion(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_SCHEMA_VERSION);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void apply(Connection con, String migration) throws SQLException, IOException {
+        String database = con.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        try (Statement st = con.createStatement()) {
+            for (String sql : readStatements(database, migration)) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    private void recordVersion(Connection con, int version, String migration) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)) {
+            ps.setInt(1, version);
+            ps.setString(2, migration);
+            ps.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+    }
+
+    private static int getVersion(String migration) {
+        return Integer.parseInt(migration.substring(1, migration.indexOf("__")));
+    }
+
+    //scripts hold plain statements separated by ';', comments are /* */ blocks
+    private static List<String> readStatements(String database, String migration) throws IOException {
+        InputStream in = DataBaseMigration.class.getResourceAsStream(MIGRATION_PATH + database + "/" + migration);
+        if (in == null) {
+            in = DataBaseMigration.class.getResourceAsStream(MIGRATION_PATH + migration);
+        }
+        if (in == null) {
+            throw new IOException("Missing schema migration " + migration);
+        }
+        StringBuilder script = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                script.append(line).append('\n');
+            }
+        }
+        String withoutComments = script.toString().replaceAll("(?s)/\\*.*?\\*/", "");
+        List<String> statements = new ArrayList<>();
+        for (String sql : withoutComments.split(";")) {
+            if (sql.trim().length() > 0) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,18 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * In-process H2 database running in MySQL compatibility mode, so the DAOs and migrations run unchanged
+ * with no database server. Used for edge gates, local benchmarks and integration tests.
+ */
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    @Override
+    protected String getJdbcUrl() {
+        return getProperty("db.embedded.url");
+    }
+
+    @Override
+    protected String getPoolName() {
+        return "parkit-embedded";
+    }
+}
@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.config;
+
+/**
+ * Database of one parking lot when a process serves several lots, configured by lot.&lt;id&gt;.url and optionally
+ * lot.&lt;id&gt;.user and lot.&lt;id&gt;.password, falling back to db.user and db.password, and lot.&lt;id&gt;.replicaUrl.
+ */
+public class LotDataBaseConfig extends DataBaseConfig {
+
+    private final String lotId;
+
+    public LotDataBaseConfig(String lotId) {
+        this.lotId = lotId;
+        if (getJdbcUrl() == null) {
+            throw new IllegalArgumentException("Missing property lot." + lotId + ".url");
+        }
+    }
+
+    @Override
+    public String getLotId() {
+        return lotId;
+    }
+
+    @Override
+    protected String getJdbcUrl() {
+        return getProperty("lot." + lotId + ".url");
+    }
+
+    @Override
+    protected String getUser() {
+        return getProperty("lot." + lotId + ".user", super.getUser());
+    }
+
+    @Override
+    protected String getPassword() {
+        return getProperty("lot." + lotId + ".password", super.getPassword());
+    }
+
+    @Override
+    protected String getReplicaUrl() {
+        return getProperty("lot." + lotId + ".replicaUrl");
+    }
+
+    @Override
+    protected String getPoolName() {
+        return "parkit-lot-" + lotId;
+    }
+
+    private static String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return (value == null) ? defaultValue : value;
+    }
+}
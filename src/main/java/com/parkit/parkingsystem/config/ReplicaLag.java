@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * How far a replica is behind its primary: every checkIntervalMillis, the current time is written to the
+ * replica_heartbeat table of the primary and the one replicated so far is read back from the replica.
+ * The replica holds every change committed on the primary before that time, so it can answer the reads that accept
+ * data up to maxLagMillis old. The check is run by the first read that finds the last one too old, the other
+ * reads do not wait for it; a replica that cannot be reached is behind until a later check reaches it.
+ */
+class ReplicaLag {
+
+    private static final Logger logger = LogManager.getLogger("ReplicaLag");
+
+    private final long maxLagMillis;
+    private final long checkIntervalMillis;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile long replicatedMillis;
+    private volatile long checkedMillis;
+
+    ReplicaLag(long maxLagMillis, long checkIntervalMillis) {
+        this.maxLagMillis = maxLagMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * @return true if the replica has every change committed on the primary up to maxLagMillis ago
+     */
+    boolean isFresh(DataBaseConfig primary, DataSource replica) {
+        long now = System.currentTimeMillis();
+        if (now - checkedMillis >= checkIntervalMillis && checking.compareAndSet(false, true)) {
+            try {
+                check(primary, replica, now);
+            } finally {
+                checkedMillis = now;
+                checking.set(false);
+            }
+        }
+        return now - replicatedMillis <= maxLagMillis;
+    }
+
+    void markUnreachable() {
+        replicatedMillis = 0;
+    }
+
+    private void check(DataBaseConfig primary, DataSource replica, long now) {
+        try (Connection con = primary.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_REPLICA_HEARTBEAT)) {
+            ps.setLong(1, now);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.error("Error while writing replica heartbeat", e);
+        }
+        try (Connection con = replica.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_REPLICA_HEARTBEAT);
+             ResultSet rs = ps.executeQuery()) {
+            replicatedMillis = rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            markUnreachable();
+            logger.warn("Replica unreachable, reads go to the primary", e);
+        }
+    }
+}
@@ -2,10 +2,54 @@ package com.parkit.parkingsystem.constants;
 
 public class DBConstants {
 
-    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    //width of ticket.VEHICLE_REG_NUMBER, a longer plate could be acknowledged but never written
+    public static final int MAX_VEHICLE_REG_NUMBER_LENGTH = 10;
+
+    public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where TYPE = ? and AVAILABLE = true";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
+    public static final String SAVE_PARKING_SPOT = "insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?,?,?)";
+    //every spot with the open ticket parked on it, if any; ticket columns are null on the other spots
+    public static final String GET_SPOT_INVENTORY = "select p.PARKING_NUMBER, p.AVAILABLE, p.TYPE, t.ID, t.VEHICLE_REG_NUMBER, t.IN_TIME from parking p left join ticket t on t.PARKING_NUMBER = p.PARKING_NUMBER and t.OUT_TIME is null order by p.PARKING_NUMBER";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
-    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    //read by TicketRowMapper, in this order
+    public static final String TICKET_COLUMNS = "t.ID, t.VEHICLE_REG_NUMBER, t.PARKING_NUMBER, p.TYPE, t.IN_TIME, t.OUT_TIME, t.PRICE";
+
+    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNTED) values(?,?,?,?,?,?)";
+    //a ticket is closed once, a second exit of the same vehicle changes nothing
+    public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=?, DISCOUNTED=? where ID=? and OUT_TIME is null";
+    public static final String CLOSE_OPEN_TICKET = "update ticket set PRICE=?, OUT_TIME=?, DISCOUNTED=? where VEHICLE_REG_NUMBER=? and OUT_TIME is null";
+    public static final String GET_TICKET = "select " + TICKET_COLUMNS + " from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.VEHICLE_REG_NUMBER=? and t.OUT_TIME is null order by t.IN_TIME desc limit 1";
+    public static final String COUNT_OPEN_TICKETS = "select count(*) from ticket where OUT_TIME is null";
+    public static final String GET_VISIT_COUNTS = "select VEHICLE_REG_NUMBER, count(*) from ticket where OUT_TIME is not null group by VEHICLE_REG_NUMBER";
+    public static final String GET_REVENUE = "select coalesce(sum(PRICE), 0) from ticket where OUT_TIME >= ? and OUT_TIME < ?";
+    public static final String GET_CLOSED_TICKET_PRICES = "select t.ID, t.IN_TIME, t.OUT_TIME, p.TYPE, t.PRICE, t.DISCOUNTED from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.OUT_TIME is not null";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
+    public static final String GET_CLOSED_TICKETS_BETWEEN = "select t.IN_TIME, t.OUT_TIME, p.TYPE, t.PRICE from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.IN_TIME >= ? and t.IN_TIME < ? and t.OUT_TIME is not null";
+    public static final String GET_TICKETS_BETWEEN = "select " + TICKET_COLUMNS + " from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.IN_TIME >= ? and t.IN_TIME < ?";
+    public static final String GET_TICKETS_BY_PLATE = "select " + TICKET_COLUMNS + " from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.VEHICLE_REG_NUMBER = ?";
+    public static final String GET_TICKETS_TO_ARCHIVE = "select " + TICKET_COLUMNS + " from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.OUT_TIME < ? order by t.ID";
+    public static final String DELETE_ARCHIVED_TICKETS = "delete from ticket where ID >= ? and ID <= ? and OUT_TIME < ?";
+    public static final String GET_OPEN_TICKETS = "select " + TICKET_COLUMNS + " from ticket t join parking p on p.PARKING_NUMBER = t.PARKING_NUMBER where t.OUT_TIME is null";
+
+    public static final String SAVE_RESERVATION = "insert into reservation(CODE, PARKING_NUMBER, EXPIRES_AT) values(?,?,?)";
+    public static final String GET_RESERVATIONS = "select r.CODE, r.PARKING_NUMBER, p.TYPE, r.EXPIRES_AT from reservation r join parking p on p.PARKING_NUMBER = r.PARKING_NUMBER";
+    public static final String DELETE_RESERVATION = "delete from reservation where CODE = ?";
+    //a spot whose reservation was used by a ticket still open stays taken
+    public static final String FREE_RESERVED_PARKING_SPOT = "update parking set AVAILABLE = true where PARKING_NUMBER = ? and not exists (select 1 from ticket t where t.PARKING_NUMBER = parking.PARKING_NUMBER and t.OUT_TIME is null)";
+
+    public static final String GET_JOURNAL_CHECKPOINT = "select LAST_SEQ from journal_checkpoints where JOURNAL_ID = ?";
+    public static final String UPDATE_JOURNAL_CHECKPOINT = "update journal_checkpoints set LAST_SEQ = ? where JOURNAL_ID = ?";
+    public static final String SAVE_JOURNAL_CHECKPOINT = "insert into journal_checkpoints(JOURNAL_ID, LAST_SEQ) values(?,?)";
+
+    public static final String UPDATE_REPLICA_HEARTBEAT = "update replica_heartbeat set BEAT_MILLIS = ? where ID = 1";
+    public static final String GET_REPLICA_HEARTBEAT = "select BEAT_MILLIS from replica_heartbeat where ID = 1";
+
+    public static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, SCRIPT varchar(100) NOT NULL, INSTALLED_ON DATETIME NOT NULL)";
+    public static final String GET_SCHEMA_VERSION = "select max(VERSION) from schema_version";
+    public static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, SCRIPT, INSTALLED_ON) values(?,?,?)";
+    //single row locked by the running migration, on its own connection since the scripts' DDL commits implicitly
+    public static final String CREATE_SCHEMA_LOCK = "create table if not exists schema_lock(ID int PRIMARY KEY)";
+    public static final String SEED_SCHEMA_LOCK = "insert into schema_lock(ID) select 1 from dual where not exists (select * from schema_lock where ID = 1)";
+    public static final String LOCK_SCHEMA = "select ID from schema_lock where ID = 1 for update";
 }
@@ -3,4 +3,5 @@ package com.parkit.parkingsystem.constants;
 public class Fare {
     public static final double BIKE_RATE_PER_HOUR = 1.0;
     public static final double CAR_RATE_PER_HOUR = 1.5;
+    public static final double RECURRING_USER_DISCOUNT = 0.05;
 }
@@ -0,0 +1,219 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.JdbcEvent;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers gate operations and writes them with JDBC batches in one transaction per flush.
+ * A vehicle that enters and leaves between two flushes is inserted once, already closed,
+ * and each parking spot is only written with its final availability. An exit whose ticket is already closed in the
+ * database, by a duplicate exit or another gate, leaves its spot as it is: another vehicle may have taken it since.
+ */
+public class BatchTicketWriter implements TicketWriter {
+
+    private static final Logger logger = LogManager.getLogger("BatchTicketWriter");
+
+    private static final long NO_CHECKPOINT = -1;
+
+    private static final OperationStats flushStats = Metrics.operation("BatchTicketWriter.flush");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int batchSize;
+
+    private final List<Ticket> newTickets = new ArrayList<>();
+    private final Map<String, Ticket> newOpenTickets = new HashMap<>();
+    private final List<Ticket> closedTickets = new ArrayList<>();
+    private final Map<Integer, Boolean> parkingAvailability = new LinkedHashMap<>();
+    //exit of closedTickets that last freed each spot
+    private final Map<Integer, Ticket> closingTickets = new HashMap<>();
+    private int pendingOperations;
+
+    public BatchTicketWriter(DataBaseConfig dataBaseConfig, int batchSize) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized boolean saveTicketAndOccupySpot(Ticket ticket) {
+        newTickets.add(ticket);
+        newOpenTickets.put(ticket.getVehicleRegNumber().toUpperCase(), ticket);
+        parkingAvailability.put(ticket.getParkingSpot().getId(), false);
+        closingTickets.remove(ticket.getParkingSpot().getId());
+        pendingOperations++;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updateTicketAndFreeSpot(Ticket ticket) {
+        Ticket newTicket = newOpenTickets.remove(ticket.getVehicleRegNumber().toUpperCase());
+        if (newTicket != null) {
+            newTicket.setOutTime(ticket.getOutTime());
+            newTicket.setPrice(ticket.getPrice());
+            newTicket.setDiscounted(ticket.isDiscounted());
+            closingTickets.remove(ticket.getParkingSpot().getId());
+        } else {
+            closedTickets.add(ticket);
+            closingTickets.put(ticket.getParkingSpot().getId(), ticket);
+        }
+        parkingAvailability.put(ticket.getParkingSpot().getId(), true);
+        pendingOperations++;
+        return true;
+    }
+
+    public synchronized int getPendingOperations() {
+        return pendingOperations;
+    }
+
+    /**
+     * Writes everything buffered since the last flush and commits.
+     * @return false if the transaction was rolled back, the buffers are then kept for a retry
+     */
+    public boolean flush() {
+        return flush(0, NO_CHECKPOINT);
+    }
+
+    /**
+     * Same as flush, also recording in the same transaction the last record of the TicketJournal journalId
+     * the batch holds.
+     */
+    public synchronized boolean flush(long journalId, long journalCheckpoint) {
+        if (pendingOperations == 0 && journalCheckpoint == NO_CHECKPOINT) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            new JdbcTemplate(dataBaseConfig).inTransaction(con -> {
+                //copies, a rolled back transaction leaves the buffers as they were for the retry
+                Map<Integer, Boolean> availability = new LinkedHashMap<>(parkingAvailability);
+                Map<Integer, Ticket> closing = new HashMap<>(closingTickets);
+                //close before inserting, a vehicle coming back must not have its new ticket closed by plate
+                closeTickets(con, closing, availability);
+                insertTickets(con);
+                updateParkings(con, availability);
+                if (journalCheckpoint != NO_CHECKPOINT) {
+                    updateJournalCheckpoint(con, journalId, journalCheckpoint);
+                }
+                return null;
+            });
+            newTickets.clear();
+            newOpenTickets.clear();
+            closedTickets.clear();
+            parkingAvailability.clear();
+            closingTickets.clear();
+            pendingOperations = 0;
+            return true;
+        } catch (Exception ex) {
+            flushStats.error();
+            logger.error("Error flushing ticket batch", ex);
+            return false;
+        } finally {
+            flushStats.record(start);
+        }
+    }
+
+    private void closeTickets(Connection con, Map<Integer, Ticket> closing, Map<Integer, Boolean> availability) throws SQLException {
+        JdbcEvent event = JdbcEvent.start(DBConstants.CLOSE_OPEN_TICKET);
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.CLOSE_OPEN_TICKET)) {
+            int batched = 0;
+            for (Ticket ticket : closedTickets) {
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setBoolean(3, ticket.isDiscounted());
+                ps.setString(4, ticket.getVehicleRegNumber());
+                ps.addBatch();
+                if (++batched % batchSize == 0) {
+                    keepSpotsOfUnmatchedCloses(ps.executeBatch(), batched - batchSize, closing, availability);
+                }
+            }
+            keepSpotsOfUnmatchedCloses(ps.executeBatch(), batched - batched % batchSize, closing, availability);
+            event.setRows(closedTickets.size());
+        } finally {
+            event.commit();
+        }
+    }
+
+    //closes that changed no row do not free their spot
+    private void keepSpotsOfUnmatchedCloses(int[] updateCounts, int first, Map<Integer, Ticket> closing, Map<Integer, Boolean> availability) {
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                Ticket ticket = closedTickets.get(first + i);
+                int parkingNumber = ticket.getParkingSpot().getId();
+                logger.warn("Ticket of vehicle " + ticket.getVehicleRegNumber() + " was already closed");
+                if (closing.remove(parkingNumber, ticket)) {
+                    availability.remove(parkingNumber);
+                }
+            }
+        }
+    }
+
+    private void insertTickets(Connection con) throws SQLException {
+        JdbcEvent event = JdbcEvent.start(DBConstants.SAVE_TICKET);
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            int batched = 0;
+            for (Ticket ticket : newTickets) {
+                ps.setInt(1, ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(5, (ticket.getOutTime() == null) ? null : new Timestamp(ticket.getOutTime().getTime()));
+                ps.setBoolean(6, ticket.isDiscounted());
+                ps.addBatch();
+                if (++batched % batchSize == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            event.setRows(newTickets.size());
+        } finally {
+            event.commit();
+        }
+    }
+
+    private void updateParkings(Connection con, Map<Integer, Boolean> availability) throws SQLException {
+        JdbcEvent event = JdbcEvent.start(DBConstants.UPDATE_PARKING_SPOT);
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT)) {
+            int batched = 0;
+            for (Map.Entry<Integer, Boolean> parking : availability.entrySet()) {
+                ps.setBoolean(1, parking.getValue());
+                ps.setInt(2, parking.getKey());
+                ps.addBatch();
+                if (++batched % batchSize == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            event.setRows(availability.size());
+        } finally {
+            event.commit();
+        }
+    }
+
+    //the first flush of a journal creates its row, a journal is only flushed by one JournalFlusher
+    private void updateJournalCheckpoint(Connection con, long journalId, long journalCheckpoint) throws SQLException {
+        if (JdbcTemplate.update(con, DBConstants.UPDATE_JOURNAL_CHECKPOINT, ps -> {
+            ps.setLong(1, journalCheckpoint);
+            ps.setLong(2, journalId);
+        }) == 0) {
+            JdbcTemplate.update(con, DBConstants.SAVE_JOURNAL_CHECKPOINT, ps -> {
+                ps.setLong(1, journalId);
+                ps.setLong(2, journalCheckpoint);
+            });
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.metrics.JdbcEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the SQL of the DAOs on a pooled connection and closes the connection, statement and result set whatever
+ * happens. Preparing a DBConstants query on every call is cheap: the driver keeps the prepared statements of each
+ * pooled connection keyed by SQL (see the db.mysql.* properties), H2 does the same in its session query cache.
+ * Each statement is a JdbcEvent for the Flight Recorder.
+ */
+public class JdbcTemplate {
+
+    private static final Logger logger = LogManager.getLogger("JdbcTemplate");
+
+    /**
+     * Sets the parameters of a statement before it is executed.
+     */
+    @FunctionalInterface
+    public interface StatementBinder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    /**
+     * Work done on the connection of a transaction, it may roll back itself before returning.
+     */
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T doInConnection(Connection con) throws SQLException;
+    }
+
+    /**
+     * Reads the current row of a result set handed over one row at a time.
+     */
+    @FunctionalInterface
+    public interface RowCallback {
+        void processRow(ResultSet rs) throws SQLException;
+    }
+
+    public static final StatementBinder NO_PARAMETERS = ps -> { };
+
+    private final DataBaseConfig dataBaseConfig;
+    private final boolean replicaReads;
+
+    public JdbcTemplate(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, false);
+    }
+
+    /**
+     * @param replicaReads true to run the queries on DataBaseConfig.getReadConnection, for reads that accept
+     *                     data a little behind the primary; updates and transactions still run on the primary
+     */
+    public JdbcTemplate(DataBaseConfig dataBaseConfig, boolean replicaReads) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.replicaReads = replicaReads;
+    }
+
+    private Connection getConnection() throws SQLException {
+        return replicaReads ? dataBaseConfig.getReadConnection() : dataBaseConfig.getConnection();
+    }
+
+    public <T> List<T> query(String sql, StatementBinder binder, RowMapper<T> rowMapper) throws SQLException {
+        try (Connection con = getConnection()) {
+            return query(con, sql, binder, rowMapper);
+        }
+    }
+
+    /**
+     * Hands the rows to the callback from a forward-only cursor reading fetchSize rows at a time,
+     * for results too large to be mapped to a list.
+     */
+    public void query(String sql, StatementBinder binder, int fetchSize, RowCallback callback) throws SQLException {
+        try (Connection con = getConnection()) {
+            JdbcEvent event = JdbcEvent.start(sql);
+            try (PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                binder.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    long rows = 0;
+                    while (rs.next()) {
+                        callback.processRow(rs);
+                        rows++;
+                    }
+                    event.setRows(rows);
+                }
+            } finally {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return the first row, or null when the query returned none
+     */
+    public <T> T queryForObject(String sql, StatementBinder binder, RowMapper<T> rowMapper) throws SQLException {
+        try (Connection con = getConnection()) {
+            JdbcEvent event = JdbcEvent.start(sql);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                binder.bind(ps);
+                try (ResultSet rs = ps.executeQuery()) {
+                    T row = rs.next() ? rowMapper.mapRow(rs) : null;
+                    event.setRows((row == null) ? 0 : 1);
+                    return row;
+                }
+            } finally {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return the number of rows changed
+     */
+    public int update(String sql, StatementBinder binder) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection()) {
+            return update(con, sql, binder);
+        }
+    }
+
+    /**
+     * Runs the callback in one transaction, committed when it returns and rolled back when it throws.
+     */
+    public <T> T inTransaction(ConnectionCallback<T> callback) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                T result = callback.doInConnection(con);
+                con.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    con.rollback();
+                } catch (SQLException rollbackException) {
+                    logger.error("Error while rolling back transaction", rollbackException);
+                }
+                throw e;
+            }
+        }
+    }
+
+    public static <T> List<T> query(Connection con, String sql, StatementBinder binder, RowMapper<T> rowMapper) throws SQLException {
+        JdbcEvent event = JdbcEvent.start(sql);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                List<T> rows = new ArrayList<>();
+                while (rs.next()) {
+                    rows.add(rowMapper.mapRow(rs));
+                }
+                event.setRows(rows.size());
+                return rows;
+            }
+        } finally {
+            event.commit();
+        }
+    }
+
+    public static int update(Connection con, String sql, StatementBinder binder) throws SQLException {
+        JdbcEvent event = JdbcEvent.start(sql);
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            binder.bind(ps);
+            int rows = ps.executeUpdate();
+            event.setRows(rows);
+            return rows;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the generated key of the inserted row, 0 when the driver returned none, -1 when nothing was inserted
+     */
+    public static int insert(Connection con, String sql, StatementBinder binder) throws SQLException {
+        JdbcEvent event = JdbcEvent.start(sql);
+        try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            binder.bind(ps);
+            int rows = ps.executeUpdate();
+            event.setRows(rows);
+            if (rows != 1) {
+                return -1;
+            }
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+        } finally {
+            event.commit();
+        }
+    }
+}
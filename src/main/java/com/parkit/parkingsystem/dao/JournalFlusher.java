@@ -0,0 +1,152 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains a TicketJournal to the database in the background, one BatchTicketWriter transaction per batch of records.
+ * The last record applied is committed with the batch in the journal_checkpoints row of the journal id, so records
+ * found again in the journal after a crash are skipped instead of being applied twice, while the records of a
+ * recreated journal or of the journal of another gate, which start again at sequence 1, are not.
+ * While the database is unreachable records stay in the journal and are retried on the next run. A record the database
+ * refuses on its own while it answers, e.g. on a spot that no longer exists, is logged to JournalDeadLetter and
+ * skipped, so it does not hold back the records behind it.
+ */
+public class JournalFlusher implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("JournalFlusher");
+    private static final Logger deadLetter = LogManager.getLogger("JournalDeadLetter");
+
+    private final TicketJournal ticketJournal;
+    private final DataBaseConfig dataBaseConfig;
+    private final TicketDAO ticketDAO;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private long checkpoint = -1;
+
+    public JournalFlusher(TicketJournal ticketJournal, DataBaseConfig dataBaseConfig, int batchSize, long intervalMillis) {
+        this.ticketJournal = ticketJournal;
+        this.dataBaseConfig = dataBaseConfig;
+        this.ticketDAO = new TicketDAO(dataBaseConfig);
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::drain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes every pending journal record to the database.
+     * @return the number of records applied, stops early and keeps the rest if a batch fails
+     */
+    public synchronized int drain() {
+        if (checkpoint < 0) {
+            checkpoint = ticketDAO.getJournalCheckpoint(ticketJournal.getJournalId());
+            if (checkpoint < 0) {
+                return 0;
+            }
+        }
+        int applied = 0;
+        List<TicketJournal.Entry> entries;
+        while (!(entries = ticketJournal.readUnacknowledged(batchSize)).isEmpty()) {
+            BatchTicketWriter batchTicketWriter = new BatchTicketWriter(dataBaseConfig, batchSize);
+            long lastSeq = entries.get(entries.size() - 1).getSeq();
+            int batched = 0;
+            for (TicketJournal.Entry entry : entries) {
+                //already in the database, the journal was not acknowledged before a crash
+                if (entry.getSeq() <= checkpoint) {
+                    continue;
+                }
+                if (entry.isExit()) {
+                    batchTicketWriter.updateTicketAndFreeSpot(entry.getTicket());
+                } else {
+                    batchTicketWriter.saveTicketAndOccupySpot(entry.getTicket());
+                }
+                batched++;
+            }
+            if (batched > 0) {
+                if (!batchTicketWriter.flush(ticketJournal.getJournalId(), lastSeq)) {
+                    int appliedAlone = applyOneByOne(entries);
+                    if (appliedAlone < 0) {
+                        logger.warn(ticketJournal.getPendingRecords() + " journal records waiting for the database");
+                        return applied;
+                    }
+                    applied += appliedAlone;
+                    continue;
+                }
+                checkpoint = lastSeq;
+                applied += batched;
+            }
+            ticketJournal.acknowledge(lastSeq);
+        }
+        return applied;
+    }
+
+    /**
+     * Retries a failed batch record by record to find the ones the database refuses.
+     * @return the number of records applied, or -1 if the database stopped answering, the rest then stays pending
+     */
+    private int applyOneByOne(List<TicketJournal.Entry> entries) {
+        int applied = 0;
+        for (TicketJournal.Entry entry : entries) {
+            if (entry.getSeq() <= checkpoint) {
+                continue;
+            }
+            BatchTicketWriter batchTicketWriter = new BatchTicketWriter(dataBaseConfig, 1);
+            if (entry.isExit()) {
+                batchTicketWriter.updateTicketAndFreeSpot(entry.getTicket());
+            } else {
+                batchTicketWriter.saveTicketAndOccupySpot(entry.getTicket());
+            }
+            if (batchTicketWriter.flush(ticketJournal.getJournalId(), entry.getSeq())) {
+                applied++;
+            } else {
+                if (ticketDAO.getJournalCheckpoint(ticketJournal.getJournalId()) < 0) {
+                    return -1;
+                }
+                Ticket ticket = entry.getTicket();
+                deadLetter.error("Journal " + ticketJournal.getJournalId() + " record " + entry.getSeq() + " refused by the database: "
+                        + (entry.isExit() ? "EXIT " : "ENTRY ") + ticket.getParkingSpot().getParkingType() + " " + ticket.getVehicleRegNumber()
+                        + " spot " + ticket.getParkingSpot().getId() + " in " + ticket.getInTime().getTime()
+                        + " out " + ((ticket.getOutTime() == null) ? "-" : String.valueOf(ticket.getOutTime().getTime()))
+                        + " price " + ticket.getPrice());
+                //moves the checkpoint past the record alone
+                if (!new BatchTicketWriter(dataBaseConfig, 1).flush(ticketJournal.getJournalId(), entry.getSeq())) {
+                    return -1;
+                }
+            }
+            checkpoint = entry.getSeq();
+            ticketJournal.acknowledge(entry.getSeq());
+        }
+        return applied;
+    }
+
+    /**
+     * Stops the background flush and writes what is left, anything the database refuses stays in the journal.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+    }
+}
@@ -0,0 +1,42 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Write-behind TicketWriter: gate operations are acknowledged once appended to the TicketJournal,
+ * a JournalFlusher writes them to the database later. Tickets keep id 0 until then.
+ */
+public class JournalTicketWriter implements TicketWriter {
+
+    private static final Logger logger = LogManager.getLogger("JournalTicketWriter");
+
+    private final TicketJournal ticketJournal;
+
+    public JournalTicketWriter(TicketJournal ticketJournal) {
+        this.ticketJournal = ticketJournal;
+    }
+
+    @Override
+    public boolean saveTicketAndOccupySpot(Ticket ticket) {
+        try {
+            ticketJournal.appendEntry(ticket);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error journaling incoming vehicle " + ticket.getVehicleRegNumber(), ex);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean updateTicketAndFreeSpot(Ticket ticket) {
+        try {
+            ticketJournal.appendExit(ticket);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error journaling exiting vehicle " + ticket.getVehicleRegNumber(), ex);
+            return false;
+        }
+    }
+}
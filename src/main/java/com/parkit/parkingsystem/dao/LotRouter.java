@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.LotDataBaseConfig;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes each parking lot to its own database, and so to its own connection pool and DAOs.
+ * The lots of a process are listed in the lots property; without it the process serves the single
+ * lot of db.backend.
+ */
+public class LotRouter {
+
+    private final Map<String, DataBaseConfig> dataBaseConfigs = new LinkedHashMap<>();
+    private final Map<String, ParkingSpotDAO> parkingSpotDAOs = new LinkedHashMap<>();
+    private final Map<String, TicketDAO> ticketDAOs = new LinkedHashMap<>();
+
+    public LotRouter(List<? extends DataBaseConfig> lots) {
+        for (DataBaseConfig dataBaseConfig : lots) {
+            String lotId = dataBaseConfig.getLotId();
+            if (dataBaseConfigs.put(lotId, dataBaseConfig) != null) {
+                throw new IllegalArgumentException("Duplicate lot:" + lotId);
+            }
+            parkingSpotDAOs.put(lotId, new ParkingSpotDAO(dataBaseConfig));
+            ticketDAOs.put(lotId, new TicketDAO(dataBaseConfig));
+        }
+    }
+
+    public static LotRouter fromProperties() {
+        String lots = DataBaseConfig.getProperty("lots");
+        if (lots == null || lots.trim().isEmpty()) {
+            return new LotRouter(Collections.singletonList(DataBaseConfig.fromProperties()));
+        }
+        List<DataBaseConfig> lotConfigs = new ArrayList<>();
+        for (String lotId : lots.split(",")) {
+            lotConfigs.add(new LotDataBaseConfig(lotId.trim()));
+        }
+        return new LotRouter(lotConfigs);
+    }
+
+    public List<String> getLotIds() {
+        return new ArrayList<>(dataBaseConfigs.keySet());
+    }
+
+    public DataBaseConfig getDataBaseConfig(String lotId) {
+        return route(dataBaseConfigs, lotId);
+    }
+
+    public ParkingSpotDAO getParkingSpotDAO(String lotId) {
+        return route(parkingSpotDAOs, lotId);
+    }
+
+    public TicketDAO getTicketDAO(String lotId) {
+        return route(ticketDAOs, lotId);
+    }
+
+    public TicketDAO getTicketDAO(Ticket ticket) {
+        return getTicketDAO(ticket.getLotId());
+    }
+
+    private static <T> T route(Map<String, T> byLot, String lotId) {
+        T target = byLot.get(lotId);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown lot:" + lotId);
+        }
+        return target;
+    }
+}
@@ -3,56 +3,156 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SpotInventory;
+import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
-    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    private static final OperationStats getNextAvailableSlotStats = Metrics.operation("ParkingSpotDAO.getNextAvailableSlot");
+    private static final OperationStats getParkingSpotsStats = Metrics.operation("ParkingSpotDAO.getParkingSpots");
+    private static final OperationStats getSpotInventoryStats = Metrics.operation("ParkingSpotDAO.getSpotInventory");
+    private static final OperationStats saveParkingSpotStats = Metrics.operation("ParkingSpotDAO.saveParkingSpot");
+    private static final OperationStats updateParkingStats = Metrics.operation("ParkingSpotDAO.updateParking");
+
+    public DataBaseConfig dataBaseConfig;
+
+    public ParkingSpotDAO(){
+        this(new DataBaseConfig());
+    }
+
+    public ParkingSpotDAO(DataBaseConfig dataBaseConfig){
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public String getLotId(){
+        return dataBaseConfig.getLotId();
+    }
+
+    //built on each call, dataBaseConfig is a public field that may be swapped after construction
+    private JdbcTemplate jdbcTemplate(){
+        return new JdbcTemplate(dataBaseConfig);
+    }
 
     public int getNextAvailableSlot(ParkingType parkingType){
-        Connection con = null;
-        int result=-1;
+        long start = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                result = rs.getInt(1);;
-            }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
+            //min() of no row is null, read as 0 like before
+            Integer result = jdbcTemplate().queryForObject(DBConstants.GET_NEXT_PARKING_SPOT,
+                    ps -> ps.setString(1, parkingType.toString()), rs -> rs.getInt(1));
+            return (result == null) ? -1 : result;
         }catch (Exception ex){
+            getNextAvailableSlotStats.error();
             logger.error("Error fetching next available slot",ex);
+            return -1;
+        }finally {
+            getNextAvailableSlotStats.record(start);
+        }
+    }
+
+    public List<ParkingSpot> getParkingSpots(){
+        return getParkingSpots(false);
+    }
+
+    /**
+     * @param replicaRead true when the spots may be read from the replica, for statistics rather than allocation
+     */
+    public List<ParkingSpot> getParkingSpots(boolean replicaRead){
+        long start = System.nanoTime();
+        try {
+            return new JdbcTemplate(dataBaseConfig, replicaRead).query(DBConstants.GET_PARKING_SPOTS, JdbcTemplate.NO_PARAMETERS, new ParkingSpotRowMapper(dataBaseConfig.getLotId()));
+        }catch (Exception ex){
+            getParkingSpotsStats.error();
+            logger.error("Error fetching parking spots",ex);
+            return new ArrayList<>();
+        }finally {
+            getParkingSpotsStats.record(start);
+        }
+    }
+
+    /**
+     * Reads the parking spots and the open tickets in one query, to get a restarted gate ready with a single round trip.
+     */
+    public SpotInventory getSpotInventory(){
+        long start = System.nanoTime();
+        try {
+            String lotId = dataBaseConfig.getLotId();
+            ParkingSpotRowMapper parkingSpotRowMapper = new ParkingSpotRowMapper(lotId);
+            List<Ticket> openTickets = new ArrayList<>();
+            List<ParkingSpot> rows = jdbcTemplate().query(DBConstants.GET_SPOT_INVENTORY, JdbcTemplate.NO_PARAMETERS, rs -> {
+                //PARKING_NUMBER, AVAILABLE, TYPE, ID, VEHICLE_REG_NUMBER, IN_TIME
+                ParkingSpot parkingSpot = parkingSpotRowMapper.mapRow(rs);
+                String vehicleRegNumber = rs.getString(5);
+                if (vehicleRegNumber != null) {
+                    Ticket ticket = new Ticket();
+                    ParkingSpot ticketSpot = new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(), false);
+                    ticketSpot.setLotId(lotId);
+                    ticket.setParkingSpot(ticketSpot);
+                    ticket.setLotId(lotId);
+                    ticket.setId(rs.getInt(4));
+                    ticket.setVehicleRegNumber(vehicleRegNumber);
+                    ticket.setInTime(rs.getTimestamp(6));
+                    openTickets.add(ticket);
+                }
+                return parkingSpot;
+            });
+            //rows are ordered by spot, a spot holding several open tickets comes once per ticket
+            List<ParkingSpot> parkingSpots = new ArrayList<>(rows.size());
+            for (ParkingSpot parkingSpot : rows) {
+                if (parkingSpots.isEmpty() || parkingSpots.get(parkingSpots.size() - 1).getId() != parkingSpot.getId()) {
+                    parkingSpots.add(parkingSpot);
+                }
+            }
+            return new SpotInventory(parkingSpots, openTickets);
+        }catch (Exception ex){
+            getSpotInventoryStats.error();
+            logger.error("Error fetching spot inventory",ex);
+            return new SpotInventory(new ArrayList<>(), new ArrayList<>());
+        }finally {
+            getSpotInventoryStats.record(start);
+        }
+    }
+
+    public boolean saveParkingSpot(ParkingSpot parkingSpot){
+        long start = System.nanoTime();
+        try {
+            return jdbcTemplate().update(DBConstants.SAVE_PARKING_SPOT, ps -> {
+                ps.setInt(1, parkingSpot.getId());
+                ps.setBoolean(2, parkingSpot.isAvailable());
+                ps.setString(3, parkingSpot.getParkingType().toString());
+            }) == 1;
+        }catch (Exception ex){
+            saveParkingSpotStats.error();
+            logger.error("Error saving parking spot",ex);
+            return false;
         }finally {
-            dataBaseConfig.closeConnection(con);
+            saveParkingSpotStats.record(start);
         }
-        return result;
     }
 
     public boolean updateParking(ParkingSpot parkingSpot){
+        long start = System.nanoTime();
         //update the availability fo that parking slot
-        Connection con = null;
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
+            int updateRowCount = jdbcTemplate().update(DBConstants.UPDATE_PARKING_SPOT, ps -> {
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, parkingSpot.getId());
+            });
             return (updateRowCount == 1);
         }catch (Exception ex){
+            updateParkingStats.error();
             logger.error("Error updating parking info",ex);
             return false;
         }finally {
-            dataBaseConfig.closeConnection(con);
+            updateParkingStats.record(start);
         }
     }
 
@@ -0,0 +1,27 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the columns of DBConstants.GET_PARKING_SPOTS to a ParkingSpot of the given lot.
+ */
+public class ParkingSpotRowMapper implements RowMapper<ParkingSpot> {
+
+    private final String lotId;
+
+    public ParkingSpotRowMapper(String lotId) {
+        this.lotId = lotId;
+    }
+
+    @Override
+    public ParkingSpot mapRow(ResultSet rs) throws SQLException {
+        //PARKING_NUMBER, AVAILABLE, TYPE
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(3)), rs.getBoolean(2));
+        parkingSpot.setLotId(lotId);
+        return parkingSpot;
+    }
+}
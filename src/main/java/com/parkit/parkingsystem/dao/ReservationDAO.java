@@ -0,0 +1,115 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReservationDAO {
+    private static final Logger logger = LogManager.getLogger("ReservationDAO");
+
+    private static final OperationStats saveReservationStats = Metrics.operation("ReservationDAO.saveReservation");
+    private static final OperationStats getReservationsStats = Metrics.operation("ReservationDAO.getReservations");
+    private static final OperationStats deleteReservationStats = Metrics.operation("ReservationDAO.deleteReservation");
+    private static final OperationStats releaseReservationStats = Metrics.operation("ReservationDAO.releaseReservation");
+
+    private final DataBaseConfig dataBaseConfig;
+
+    public ReservationDAO(DataBaseConfig dataBaseConfig){
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Saves the reservation and marks its spot as taken in a single transaction.
+     */
+    public boolean saveReservation(Reservation reservation){
+        long start = System.nanoTime();
+        try {
+            return new JdbcTemplate(dataBaseConfig).inTransaction(con -> {
+                if(JdbcTemplate.update(con, DBConstants.UPDATE_PARKING_SPOT, ps -> {
+                    ps.setBoolean(1, false);
+                    ps.setInt(2, reservation.getParkingSpot().getId());
+                }) != 1){
+                    con.rollback();
+                    return false;
+                }
+                JdbcTemplate.update(con, DBConstants.SAVE_RESERVATION, ps -> {
+                    ps.setString(1, reservation.getCode());
+                    ps.setInt(2, reservation.getParkingSpot().getId());
+                    ps.setTimestamp(3, new Timestamp(reservation.getExpiresAt().getTime()));
+                });
+                return true;
+            });
+        }catch (Exception ex){
+            saveReservationStats.error();
+            logger.error("Error saving reservation",ex);
+            return false;
+        }finally {
+            saveReservationStats.record(start);
+        }
+    }
+
+    public List<Reservation> getReservations(){
+        long start = System.nanoTime();
+        try {
+            String lotId = dataBaseConfig.getLotId();
+            return new JdbcTemplate(dataBaseConfig).query(DBConstants.GET_RESERVATIONS, JdbcTemplate.NO_PARAMETERS, rs -> {
+                //CODE, PARKING_NUMBER, TYPE, EXPIRES_AT
+                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(2), ParkingType.valueOf(rs.getString(3)), false);
+                parkingSpot.setLotId(lotId);
+                return new Reservation(rs.getString(1), parkingSpot, rs.getTimestamp(4));
+            });
+        }catch (Exception ex){
+            getReservationsStats.error();
+            logger.error("Error fetching reservations",ex);
+            return new ArrayList<>();
+        }finally {
+            getReservationsStats.record(start);
+        }
+    }
+
+    /**
+     * Forgets a reservation used by a vehicle, its spot stays taken.
+     */
+    public boolean deleteReservation(String code){
+        long start = System.nanoTime();
+        try {
+            return new JdbcTemplate(dataBaseConfig).update(DBConstants.DELETE_RESERVATION, ps -> ps.setString(1, code)) == 1;
+        }catch (Exception ex){
+            deleteReservationStats.error();
+            logger.error("Error deleting reservation",ex);
+            return false;
+        }finally {
+            deleteReservationStats.record(start);
+        }
+    }
+
+    /**
+     * Deletes an expired or cancelled reservation and frees its spot in a single transaction.
+     * @return true if the spot was freed, false if it could not be or a vehicle parked on it with the reservation
+     */
+    public boolean releaseReservation(Reservation reservation){
+        long start = System.nanoTime();
+        try {
+            return new JdbcTemplate(dataBaseConfig).inTransaction(con -> {
+                JdbcTemplate.update(con, DBConstants.DELETE_RESERVATION, ps -> ps.setString(1, reservation.getCode()));
+                return JdbcTemplate.update(con, DBConstants.FREE_RESERVED_PARKING_SPOT, ps -> ps.setInt(1, reservation.getParkingSpot().getId())) == 1;
+            });
+        }catch (Exception ex){
+            releaseReservationStats.error();
+            logger.error("Error releasing reservation",ex);
+            return false;
+        }finally {
+            releaseReservationStats.record(start);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds one object from the current row of a result set, without moving the cursor.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T mapRow(ResultSet rs) throws SQLException;
+}
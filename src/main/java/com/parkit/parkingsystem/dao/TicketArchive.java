@@ -0,0 +1,294 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.BloomFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read side of the archive directory filled by TicketArchiveWriter. Only the footers are kept in memory: a lookup
+ * inflates the blocks whose arrival time range or plate Bloom filter may match and scans them.
+ */
+public class TicketArchive {
+
+    static final int MAGIC = 0x504B4131;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 12;
+    private static final String FILE_SUFFIX = ".pka";
+
+    static final class BlockIndex {
+        private final long offset;
+        private final int compressedLength;
+        private final int rawLength;
+        private final int rows;
+        private final long minInTime;
+        private final long maxInTime;
+        private final BloomFilter plates;
+
+        BlockIndex(long offset, int compressedLength, int rawLength, int rows, long minInTime, long maxInTime, BloomFilter plates) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.rows = rows;
+            this.minInTime = minInTime;
+            this.maxInTime = maxInTime;
+            this.plates = plates;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(compressedLength);
+            out.writeInt(rawLength);
+            out.writeInt(rows);
+            out.writeLong(minInTime);
+            out.writeLong(maxInTime);
+            out.writeInt(plates.getHashes());
+            out.writeInt(plates.getWords().length);
+            for (long word : plates.getWords()) {
+                out.writeLong(word);
+            }
+        }
+
+        static BlockIndex readFrom(DataInputStream in) throws IOException {
+            long offset = in.readLong();
+            int compressedLength = in.readInt();
+            int rawLength = in.readInt();
+            int rows = in.readInt();
+            long minInTime = in.readLong();
+            long maxInTime = in.readLong();
+            int hashes = in.readInt();
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new BlockIndex(offset, compressedLength, rawLength, rows, minInTime, maxInTime, new BloomFilter(words, hashes));
+        }
+    }
+
+    private static final class ArchiveFile {
+        private final Path path;
+        private final List<BlockIndex> blocks;
+
+        private ArchiveFile(Path path, List<BlockIndex> blocks) {
+            this.path = path;
+            this.blocks = blocks;
+        }
+    }
+
+    private final Path directory;
+    private volatile List<ArchiveFile> files = Collections.emptyList();
+
+    public TicketArchive(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        refresh();
+    }
+
+    /**
+     * Loads the footers of the archive files, to be called after a file was added.
+     */
+    public synchronized void refresh() throws IOException {
+        List<ArchiveFile> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path path : paths) {
+                loaded.add(new ArchiveFile(path, readFooter(path)));
+            }
+        }
+        loaded.sort(Comparator.comparing(file -> file.path.getFileName().toString()));
+        files = loaded;
+    }
+
+    /**
+     * @return a file name that sorts after the existing ones, for a TicketArchiveWriter
+     */
+    public synchronized Path newFile() {
+        long name = System.currentTimeMillis();
+        while (Files.exists(directory.resolve("tickets-" + name + FILE_SUFFIX))) {
+            name++;
+        }
+        return directory.resolve("tickets-" + name + FILE_SUFFIX);
+    }
+
+    public long getTickets() {
+        long tickets = 0;
+        for (ArchiveFile file : files) {
+            for (BlockIndex block : file.blocks) {
+                tickets += block.rows;
+            }
+        }
+        return tickets;
+    }
+
+    public List<Ticket> findByPlate(String vehicleRegNumber) throws IOException {
+        long plateKey = plateKey(vehicleRegNumber);
+        List<Ticket> tickets = new ArrayList<>();
+        for (ArchiveFile file : files) {
+            for (BlockIndex block : file.blocks) {
+                if (block.plates.mightContain(plateKey)) {
+                    Block rows = readBlock(file.path, block);
+                    rows.collect(i -> rows.plates[i].equalsIgnoreCase(vehicleRegNumber), tickets);
+                }
+            }
+        }
+        tickets.sort(Comparator.comparing(Ticket::getInTime));
+        return tickets;
+    }
+
+    /**
+     * @return the archived tickets that arrived between from, inclusive, and to, exclusive
+     */
+    public List<Ticket> findBetween(Date from, Date to) throws IOException {
+        long fromMillis = from.getTime();
+        long toMillis = to.getTime();
+        List<Ticket> tickets = new ArrayList<>();
+        for (ArchiveFile file : files) {
+            for (BlockIndex block : file.blocks) {
+                if (block.maxInTime >= fromMillis && block.minInTime < toMillis) {
+                    Block rows = readBlock(file.path, block);
+                    rows.collect(i -> rows.inTimes[i] >= fromMillis && rows.inTimes[i] < toMillis, tickets);
+                }
+            }
+        }
+        tickets.sort(Comparator.comparing(Ticket::getInTime));
+        return tickets;
+    }
+
+    static long plateKey(String vehicleRegNumber) {
+        //FNV-1a, plates compare case insensitively like the VEHICLE_REG_NUMBER column
+        String plate = vehicleRegNumber.toUpperCase(Locale.ROOT);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < plate.length(); i++) {
+            hash ^= plate.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static List<BlockIndex> readFooter(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException(path + " is not a ticket archive");
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a ticket archive");
+            }
+            ByteBuffer footer = read(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()));
+            int blockCount = in.readInt();
+            List<BlockIndex> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(BlockIndex.readFrom(in));
+            }
+            return blocks;
+        }
+    }
+
+    private static Block readBlock(Path path, BlockIndex index) throws IOException {
+        byte[] raw = new byte[index.rawLength];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(read(channel, index.offset, index.compressedLength).array());
+                int length = 0;
+                while (length < raw.length && !inflater.finished()) {
+                    length += inflater.inflate(raw, length, raw.length - length);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupted block in " + path, e);
+            } finally {
+                inflater.end();
+            }
+        }
+        return new Block(index.rows, new DataInputStream(new ByteArrayInputStream(raw)));
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of ticket archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static final class Block {
+        private final int[] ids;
+        private final String[] plates;
+        private final int[] parkingNumbers;
+        private final byte[] parkingTypes;
+        private final long[] inTimes;
+        private final long[] outTimes;
+        private final double[] prices;
+
+        private Block(int rows, DataInputStream in) throws IOException {
+            ids = new int[rows];
+            plates = new String[rows];
+            parkingNumbers = new int[rows];
+            parkingTypes = new byte[rows];
+            inTimes = new long[rows];
+            outTimes = new long[rows];
+            prices = new double[rows];
+            for (int i = 0; i < rows; i++) {
+                ids[i] = in.readInt();
+            }
+            for (int i = 0; i < rows; i++) {
+                plates[i] = in.readUTF();
+            }
+            for (int i = 0; i < rows; i++) {
+                parkingNumbers[i] = in.readInt();
+            }
+            in.readFully(parkingTypes);
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                inTimes[i] = previous + in.readLong();
+                previous = inTimes[i];
+            }
+            for (int i = 0; i < rows; i++) {
+                outTimes[i] = inTimes[i] + in.readLong();
+            }
+            for (int i = 0; i < rows; i++) {
+                prices[i] = in.readDouble();
+            }
+        }
+
+        private void collect(IntPredicate matches, List<Ticket> tickets) {
+            for (int i = 0; i < ids.length; i++) {
+                if (matches.test(i)) {
+                    Ticket ticket = new Ticket();
+                    ticket.setId(ids[i]);
+                    ticket.setVehicleRegNumber(plates[i]);
+                    ticket.setParkingSpot(new ParkingSpot(parkingNumbers[i], ParkingType.values()[parkingTypes[i]], false));
+                    ticket.setInTime(new Date(inTimes[i]));
+                    ticket.setOutTime(new Date(outTimes[i]));
+                    ticket.setPrice(prices[i]);
+                    tickets.add(ticket);
+                }
+            }
+        }
+    }
+}
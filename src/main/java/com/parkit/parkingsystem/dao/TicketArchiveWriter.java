@@ -0,0 +1,168 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.util.BloomFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes closed tickets to a new TicketArchive file. Tickets are buffered in blocks, each block is stored column by
+ * column and deflated, and the footer indexes every block by arrival time range and by a Bloom filter of its plates.
+ * The file is written under a temporary name and only appears once finish() has forced it to disk.
+ */
+public class TicketArchiveWriter implements AutoCloseable {
+
+    private static final int BLOOM_BITS_PER_PLATE = 10;
+
+    private final Path file;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final int blockSize;
+    private final List<TicketArchive.BlockIndex> blocks = new ArrayList<>();
+    private final Deflater deflater = new Deflater();
+
+    private final int[] ids;
+    private final String[] plates;
+    private final int[] parkingNumbers;
+    private final byte[] parkingTypes;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final double[] prices;
+    private int size;
+    private long tickets;
+    private boolean finished;
+
+    public TicketArchiveWriter(Path file, int blockSize) throws IOException {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.blockSize = blockSize;
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ids = new int[blockSize];
+        plates = new String[blockSize];
+        parkingNumbers = new int[blockSize];
+        parkingTypes = new byte[blockSize];
+        inTimes = new long[blockSize];
+        outTimes = new long[blockSize];
+        prices = new double[blockSize];
+        ByteBuffer header = ByteBuffer.allocate(TicketArchive.HEADER_SIZE);
+        header.putInt(TicketArchive.MAGIC).putInt(TicketArchive.VERSION).flip();
+        write(header);
+    }
+
+    public void add(int id, String vehicleRegNumber, int parkingNumber, int parkingTypeOrdinal, long inMillis, long outMillis, double price) throws IOException {
+        int i = size++;
+        ids[i] = id;
+        plates[i] = vehicleRegNumber;
+        parkingNumbers[i] = parkingNumber;
+        parkingTypes[i] = (byte) parkingTypeOrdinal;
+        inTimes[i] = inMillis;
+        outTimes[i] = outMillis;
+        prices[i] = price;
+        tickets++;
+        if (size == blockSize) {
+            writeBlock();
+        }
+    }
+
+    public long getTickets() {
+        return tickets;
+    }
+
+    /**
+     * Writes the last block and the footer, forces the file to disk and gives it its final name.
+     */
+    public void finish() throws IOException {
+        writeBlock();
+        long footerOffset = channel.position();
+        ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(footerBytes);
+        footer.writeInt(blocks.size());
+        for (TicketArchive.BlockIndex block : blocks) {
+            block.writeTo(footer);
+        }
+        footer.writeLong(footerOffset);
+        footer.writeInt(TicketArchive.MAGIC);
+        write(ByteBuffer.wrap(footerBytes.toByteArray()));
+        channel.force(true);
+        channel.close();
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+    }
+
+    private void writeBlock() throws IOException {
+        if (size == 0) {
+            return;
+        }
+        ByteArrayOutputStream columnBytes = new ByteArrayOutputStream(size * 48);
+        DataOutputStream columns = new DataOutputStream(columnBytes);
+        BloomFilter plateFilter = new BloomFilter(size, BLOOM_BITS_PER_PLATE);
+        long minInTime = Long.MAX_VALUE;
+        long maxInTime = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            columns.writeInt(ids[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            columns.writeUTF(plates[i]);
+            plateFilter.add(TicketArchive.plateKey(plates[i]));
+        }
+        for (int i = 0; i < size; i++) {
+            columns.writeInt(parkingNumbers[i]);
+        }
+        columns.write(parkingTypes, 0, size);
+        //arrival times as deltas to the previous one and departures as dwell times deflate much better than raw dates
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            columns.writeLong(inTimes[i] - previous);
+            previous = inTimes[i];
+            minInTime = Math.min(minInTime, inTimes[i]);
+            maxInTime = Math.max(maxInTime, inTimes[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            columns.writeLong(outTimes[i] - inTimes[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            columns.writeDouble(prices[i]);
+        }
+        byte[] raw = columnBytes.toByteArray();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 4 + 64);
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        long offset = channel.position();
+        write(ByteBuffer.wrap(compressed.toByteArray()));
+        blocks.add(new TicketArchive.BlockIndex(offset, compressed.size(), raw.length, size, minInTime, maxInTime, plateFilter));
+        size = 0;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Drops the temporary file unless finish() succeeded.
+     */
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -2,88 +2,332 @@ package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
-import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
 
-public class TicketDAO {
+public class TicketDAO implements TicketWriter {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
-    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+    private static final OperationStats saveTicketStats = Metrics.operation("TicketDAO.saveTicket");
+    private static final OperationStats saveTicketAndOccupySpotStats = Metrics.operation("TicketDAO.saveTicketAndOccupySpot");
+    private static final OperationStats getTicketStats = Metrics.operation("TicketDAO.getTicket");
+    private static final OperationStats getOpenTicketsStats = Metrics.operation("TicketDAO.getOpenTickets");
+    private static final OperationStats getJournalCheckpointStats = Metrics.operation("TicketDAO.getJournalCheckpoint");
+    private static final OperationStats forEachVisitCountStats = Metrics.operation("TicketDAO.forEachVisitCount");
+    private static final OperationStats countOpenTicketsStats = Metrics.operation("TicketDAO.countOpenTickets");
+    private static final OperationStats getRevenueStats = Metrics.operation("TicketDAO.getRevenue");
+    private static final OperationStats getTicketHistoryStats = Metrics.operation("TicketDAO.getTicketHistory");
+    private static final OperationStats updateTicketStats = Metrics.operation("TicketDAO.updateTicket");
+    private static final OperationStats updateTicketAndFreeSpotStats = Metrics.operation("TicketDAO.updateTicketAndFreeSpot");
+
+    private static final int VISIT_COUNT_FETCH_SIZE = 1000;
+
+    public DataBaseConfig dataBaseConfig;
+
+    private TicketArchive ticketArchive;
+
+    public TicketDAO(){
+        this(new DataBaseConfig());
+    }
+
+    public TicketDAO(DataBaseConfig dataBaseConfig){
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    /**
+     * Makes getTicketHistory look up the tickets moved out of the ticket table too.
+     */
+    public void setTicketArchive(TicketArchive ticketArchive) {
+        this.ticketArchive = ticketArchive;
+    }
+
+    //built on each call, dataBaseConfig is a public field that may be swapped after construction
+    private JdbcTemplate jdbcTemplate(){
+        return new JdbcTemplate(dataBaseConfig);
+    }
+
+    //for the reports and history lookups, which may be answered by the replica
+    private JdbcTemplate replicaJdbcTemplate(){
+        return new JdbcTemplate(dataBaseConfig, true);
+    }
+
+    private TicketRowMapper ticketRowMapper(){
+        return new TicketRowMapper(dataBaseConfig.getLotId());
+    }
 
     public boolean saveTicket(Ticket ticket){
-        Connection con = null;
+        long start = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            return jdbcTemplate().update(DBConstants.SAVE_TICKET, ps -> bindNewTicket(ps, ticket)) == 1;
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            saveTicketStats.error();
+            logger.error("Error saving ticket info",ex);
+            return false;
         }finally {
-            dataBaseConfig.closeConnection(con);
+            saveTicketStats.record(start);
+        }
+    }
+
+    public boolean saveTicketAndOccupySpot(Ticket ticket){
+        long start = System.nanoTime();
+        //insert the ticket and mark its parking spot as taken in a single transaction
+        try {
+            boolean saved = jdbcTemplate().inTransaction(con -> {
+                if(JdbcTemplate.update(con, DBConstants.UPDATE_PARKING_SPOT, ps -> bindParkingSpot(ps, ticket, false)) != 1){
+                    con.rollback();
+                    return false;
+                }
+                int id = JdbcTemplate.insert(con, DBConstants.SAVE_TICKET, ps -> bindNewTicket(ps, ticket));
+                if(id < 0){
+                    con.rollback();
+                    return false;
+                }
+                if(id > 0){
+                    ticket.setId(id);
+                }
+                return true;
+            });
+            if(saved){
+                ticket.getParkingSpot().setAvailable(false);
+            }
+            return saved;
+        }catch (Exception ex){
+            saveTicketAndOccupySpotStats.error();
+            logger.error("Error saving ticket and parking info",ex);
             return false;
+        }finally {
+            saveTicketAndOccupySpotStats.record(start);
         }
     }
 
     public Ticket getTicket(String vehicleRegNumber) {
-        Connection con = null;
-        Ticket ticket = null;
+        long start = System.nanoTime();
+        try {
+            return jdbcTemplate().queryForObject(DBConstants.GET_TICKET, ps -> ps.setString(1, vehicleRegNumber), ticketRowMapper());
+        }catch (Exception ex){
+            getTicketStats.error();
+            logger.error("Error fetching ticket",ex);
+            return null;
+        }finally {
+            getTicketStats.record(start);
+        }
+    }
+
+    public List<Ticket> getOpenTickets() {
+        long start = System.nanoTime();
+        try {
+            return jdbcTemplate().query(DBConstants.GET_OPEN_TICKETS, JdbcTemplate.NO_PARAMETERS, ticketRowMapper());
+        }catch (Exception ex){
+            getOpenTicketsStats.error();
+            logger.error("Error fetching open tickets",ex);
+            return new ArrayList<>();
+        }finally {
+            getOpenTicketsStats.record(start);
+        }
+    }
+
+    /**
+     * @return the last record of this TicketJournal written to the database, 0 if none was, or -1 if it could not be read
+     */
+    public long getJournalCheckpoint(long journalId) {
+        long start = System.nanoTime();
+        try {
+            Long checkpoint = jdbcTemplate().queryForObject(DBConstants.GET_JOURNAL_CHECKPOINT, ps -> ps.setLong(1, journalId), rs -> rs.getLong(1));
+            return (checkpoint == null) ? 0 : checkpoint;
+        }catch (Exception ex){
+            getJournalCheckpointStats.error();
+            logger.error("Error fetching journal checkpoint",ex);
+            return -1;
+        }finally {
+            getJournalCheckpointStats.record(start);
+        }
+    }
+
+    /**
+     * Streams the number of closed tickets of each plate.
+     * @return false if the tickets could not be read, the action may then have seen part of them
+     */
+    public boolean forEachVisitCount(ObjIntConsumer<String> action) {
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate().query(DBConstants.GET_VISIT_COUNTS, JdbcTemplate.NO_PARAMETERS, VISIT_COUNT_FETCH_SIZE,
+                    rs -> action.accept(rs.getString(1), rs.getInt(2)));
+            return true;
+        }catch (Exception ex){
+            forEachVisitCountStats.error();
+            logger.error("Error fetching visit counts",ex);
+            return false;
+        }finally {
+            forEachVisitCountStats.record(start);
+        }
+    }
+
+    public int countOpenTickets() {
+        long start = System.nanoTime();
+        try {
+            Integer count = replicaJdbcTemplate().queryForObject(DBConstants.COUNT_OPEN_TICKETS, JdbcTemplate.NO_PARAMETERS, rs -> rs.getInt(1));
+            return (count == null) ? -1 : count;
+        }catch (Exception ex){
+            countOpenTicketsStats.error();
+            logger.error("Error counting open tickets",ex);
+            return -1;
+        }finally {
+            countOpenTicketsStats.record(start);
+        }
+    }
+
+    /**
+     * @return the sum of the tickets closed in [from, to), or -1 if it could not be read
+     */
+    public double getRevenue(Date from, Date to) {
+        long start = System.nanoTime();
+        try {
+            Double revenue = replicaJdbcTemplate().queryForObject(DBConstants.GET_REVENUE, ps -> bindPeriod(ps, from, to), rs -> rs.getDouble(1));
+            return (revenue == null) ? -1 : revenue;
+        }catch (Exception ex){
+            getRevenueStats.error();
+            logger.error("Error fetching revenue",ex);
+            return -1;
+        }finally {
+            getRevenueStats.record(start);
+        }
+    }
+
+    /**
+     * @return every ticket of the plate, in the ticket table or archived, by arrival time
+     */
+    public List<Ticket> getTicketHistory(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        List<Ticket> tickets = new ArrayList<>();
+        try {
+            tickets.addAll(replicaJdbcTemplate().query(DBConstants.GET_TICKETS_BY_PLATE, ps -> ps.setString(1, vehicleRegNumber), ticketRowMapper()));
+            if(ticketArchive != null){
+                addArchived(ticketArchive.findByPlate(vehicleRegNumber), tickets);
+            }
+            tickets.sort(Comparator.comparing(Ticket::getInTime));
+        }catch (Exception ex){
+            getTicketHistoryStats.error();
+            logger.error("Error fetching ticket history",ex);
+        }finally {
+            getTicketHistoryStats.record(start);
+        }
+        return tickets;
+    }
+
+    /**
+     * @return every ticket that arrived in [from, to), in the ticket table or archived, by arrival time
+     */
+    public List<Ticket> getTicketHistory(Date from, Date to) {
+        long start = System.nanoTime();
+        List<Ticket> tickets = new ArrayList<>();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            ps.setString(1,vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+            tickets.addAll(replicaJdbcTemplate().query(DBConstants.GET_TICKETS_BETWEEN, ps -> bindPeriod(ps, from, to), ticketRowMapper()));
+            if(ticketArchive != null){
+                addArchived(ticketArchive.findBetween(from, to), tickets);
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
+            tickets.sort(Comparator.comparing(Ticket::getInTime));
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            getTicketHistoryStats.error();
+            logger.error("Error fetching ticket history",ex);
         }finally {
-            dataBaseConfig.closeConnection(con);
-            return ticket;
+            getTicketHistoryStats.record(start);
+        }
+        return tickets;
+    }
+
+    //a ticket still in the table wins over its copy left in the archive by an interrupted archiving run
+    private void addArchived(List<Ticket> archived, List<Ticket> tickets) {
+        Set<Integer> ids = new HashSet<>();
+        for(Ticket ticket : tickets){
+            ids.add(ticket.getId());
+        }
+        for(Ticket ticket : archived){
+            if(ids.add(ticket.getId())){
+                ticket.setLotId(dataBaseConfig.getLotId());
+                ticket.getParkingSpot().setLotId(dataBaseConfig.getLotId());
+                tickets.add(ticket);
+            }
         }
     }
 
     public boolean updateTicket(Ticket ticket) {
-        Connection con = null;
+        long start = System.nanoTime();
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3,ticket.getId());
-            ps.execute();
-            return true;
+            return jdbcTemplate().update(DBConstants.UPDATE_TICKET, ps -> bindClosedTicket(ps, ticket)) == 1;
         }catch (Exception ex){
+            updateTicketStats.error();
             logger.error("Error saving ticket info",ex);
+            return false;
         }finally {
-            dataBaseConfig.closeConnection(con);
+            updateTicketStats.record(start);
         }
-        return false;
+    }
+
+    public boolean updateTicketAndFreeSpot(Ticket ticket) {
+        long start = System.nanoTime();
+        //close the ticket and release its parking spot in a single transaction
+        try {
+            boolean updated = jdbcTemplate().inTransaction(con -> {
+                if(JdbcTemplate.update(con, DBConstants.UPDATE_TICKET, ps -> bindClosedTicket(ps, ticket)) != 1
+                        || JdbcTemplate.update(con, DBConstants.UPDATE_PARKING_SPOT, ps -> bindParkingSpot(ps, ticket, true)) != 1){
+                    con.rollback();
+                    return false;
+                }
+                return true;
+            });
+            if(updated){
+                ticket.getParkingSpot().setAvailable(true);
+            }
+            return updated;
+        }catch (Exception ex){
+            updateTicketAndFreeSpotStats.error();
+            logger.error("Error updating ticket and parking info",ex);
+            return false;
+        }finally {
+            updateTicketAndFreeSpotStats.record(start);
+        }
+    }
+
+    //PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNTED
+    private static void bindNewTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setInt(1,ticket.getParkingSpot().getId());
+        ps.setString(2, ticket.getVehicleRegNumber());
+        ps.setDouble(3, ticket.getPrice());
+        ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+        ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+        ps.setBoolean(6, ticket.isDiscounted());
+    }
+
+    //PRICE, OUT_TIME, DISCOUNTED, ID
+    private static void bindClosedTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setDouble(1, ticket.getPrice());
+        ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+        ps.setBoolean(3, ticket.isDiscounted());
+        ps.setInt(4,ticket.getId());
+    }
+
+    private static void bindParkingSpot(PreparedStatement ps, Ticket ticket, boolean available) throws SQLException {
+        ps.setBoolean(1, available);
+        ps.setInt(2, ticket.getParkingSpot().getId());
+    }
+
+    private static void bindPeriod(PreparedStatement ps, Date from, Date to) throws SQLException {
+        ps.setTimestamp(1, new Timestamp(from.getTime()));
+        ps.setTimestamp(2, new Timestamp(to.getTime()));
     }
 }
@@ -0,0 +1,268 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of gate operations in a memory-mapped file, so a gate can acknowledge a vehicle
+ * as soon as its ticket is on local disk and leave the database write to a JournalFlusher.
+ * <p>
+ * The file is a 64 byte header followed by fixed size 64 byte records. The header holds a random journal id,
+ * which tells the database checkpoints of this file from those of a recreated file or of another gate, since
+ * sequence numbers only have a meaning within one file. Records carry consecutive sequence
+ * numbers starting at the base sequence of the header and a CRC, so a torn record written during a crash
+ * ends the log on restart. Once every record is acknowledged the log is rewound and a new base sequence
+ * is written, the sequence numbers keep growing across rewinds.
+ */
+public class TicketJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x504B4A31;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int MAX_PLATE_BYTES = 16;
+    //header layout
+    private static final int BASE_SEQ = 8;
+    private static final int JOURNAL_ID = 16;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    //record layout
+    private static final int SEQ = 0;
+    private static final int KIND = 8;
+    private static final int TYPE = 9;
+    private static final int PLATE_LENGTH = 10;
+    private static final int PARKING_NUMBER = 12;
+    private static final int IN_TIME = 16;
+    private static final int OUT_TIME = 24;
+    private static final int PRICE = 32;
+    private static final int PLATE = 40;
+    private static final int CRC = 56;
+
+    private static final byte ENTRY = 1;
+    private static final byte EXIT = 2;
+    //exit priced with the recurring user discount
+    private static final byte DISCOUNTED_EXIT = 3;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean syncEachAppend;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    //0 for the journals created before the id was added to the header
+    private final long journalId;
+
+    //guarded by appendLock
+    private long nextSeq;
+    private int writePosition;
+    //end of the records readers may see
+    private volatile int committedPosition;
+
+    //only used by the flushing thread
+    private long baseSeq;
+    private volatile int acknowledgedPosition = HEADER_SIZE;
+
+    public static class Entry {
+        private final long seq;
+        private final boolean exit;
+        private final Ticket ticket;
+
+        private Entry(long seq, boolean exit, Ticket ticket) {
+            this.seq = seq;
+            this.exit = exit;
+            this.ticket = ticket;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public boolean isExit() {
+            return exit;
+        }
+
+        public Ticket getTicket() {
+            return ticket;
+        }
+    }
+
+    /**
+     * Opens the journal, creating it if needed, and finds the end of the records already written.
+     * @param capacity size in bytes reserved for records
+     * @param syncEachAppend force every record to the storage device before append returns
+     */
+    public TicketJournal(Path file, int capacity, boolean syncEachAppend) throws IOException {
+        this.syncEachAppend = syncEachAppend;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (capacity / RECORD_SIZE) * RECORD_SIZE);
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putLong(BASE_SEQ, 1);
+            buffer.putLong(JOURNAL_ID, newJournalId());
+            buffer.force();
+        }
+        journalId = buffer.getLong(JOURNAL_ID);
+        baseSeq = buffer.getLong(BASE_SEQ);
+        int position = HEADER_SIZE;
+        long seq = baseSeq;
+        while (position + RECORD_SIZE <= buffer.limit() && isValid(position, seq)) {
+            position += RECORD_SIZE;
+            seq++;
+        }
+        nextSeq = seq;
+        writePosition = position;
+        committedPosition = position;
+    }
+
+    /**
+     * @return the sequence number of the new record
+     * @throws IOException if the journal is full because the flusher could not keep up
+     */
+    public long appendEntry(Ticket ticket) throws IOException {
+        return append(ENTRY, ticket);
+    }
+
+    public long appendExit(Ticket ticket) throws IOException {
+        return append(ticket.isDiscounted() ? DISCOUNTED_EXIT : EXIT, ticket);
+    }
+
+    private long append(byte kind, Ticket ticket) throws IOException {
+        byte[] plate = ticket.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        if (ticket.getVehicleRegNumber().length() > DBConstants.MAX_VEHICLE_REG_NUMBER_LENGTH || plate.length > MAX_PLATE_BYTES) {
+            throw new IllegalArgumentException("Vehicle registration number too long for the journal:" + ticket.getVehicleRegNumber());
+        }
+        appendLock.lock();
+        try {
+            if (writePosition + RECORD_SIZE > buffer.limit()) {
+                throw new IOException("Ticket journal is full, the database flush is behind");
+            }
+            int position = writePosition;
+            long seq = nextSeq;
+            buffer.putLong(position + SEQ, seq);
+            buffer.put(position + KIND, kind);
+            buffer.put(position + TYPE, (byte) ticket.getParkingSpot().getParkingType().ordinal());
+            buffer.putShort(position + PLATE_LENGTH, (short) plate.length);
+            buffer.putInt(position + PARKING_NUMBER, ticket.getParkingSpot().getId());
+            buffer.putLong(position + IN_TIME, ticket.getInTime().getTime());
+            buffer.putLong(position + OUT_TIME, (ticket.getOutTime() == null) ? -1 : ticket.getOutTime().getTime());
+            buffer.putDouble(position + PRICE, ticket.getPrice());
+            for (int i = 0; i < MAX_PLATE_BYTES; i++) {
+                buffer.put(position + PLATE + i, (i < plate.length) ? plate[i] : 0);
+            }
+            buffer.putInt(position + CRC, checksum(position));
+            if (syncEachAppend) {
+                buffer.force();
+            }
+            writePosition = position + RECORD_SIZE;
+            nextSeq = seq + 1;
+            committedPosition = writePosition;
+            return seq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return up to max records appended after the last acknowledged one, oldest first
+     */
+    public List<Entry> readUnacknowledged(int max) {
+        int end = committedPosition;
+        List<Entry> entries = new ArrayList<>();
+        for (int position = acknowledgedPosition; position < end && entries.size() < max; position += RECORD_SIZE) {
+            entries.add(read(position));
+        }
+        return entries;
+    }
+
+    /**
+     * Marks every record up to seq as written to the database. The log is rewound when nothing is left to flush
+     * and more than half of it is used.
+     */
+    public void acknowledge(long seq) {
+        acknowledgedPosition = HEADER_SIZE + (int) (seq - baseSeq + 1) * RECORD_SIZE;
+        if (acknowledgedPosition < committedPosition || acknowledgedPosition - HEADER_SIZE < (buffer.limit() - HEADER_SIZE) / 2) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            if (writePosition == acknowledgedPosition) {
+                baseSeq = nextSeq;
+                buffer.putLong(BASE_SEQ, baseSeq);
+                buffer.force();
+                writePosition = HEADER_SIZE;
+                committedPosition = HEADER_SIZE;
+                acknowledgedPosition = HEADER_SIZE;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long getJournalId() {
+        return journalId;
+    }
+
+    public int getPendingRecords() {
+        return (committedPosition - acknowledgedPosition) / RECORD_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private static long newJournalId() {
+        long id;
+        do {
+            id = new SecureRandom().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    private Entry read(int position) {
+        byte[] plate = new byte[buffer.getShort(position + PLATE_LENGTH)];
+        for (int i = 0; i < plate.length; i++) {
+            plate[i] = buffer.get(position + PLATE + i);
+        }
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(buffer.getInt(position + PARKING_NUMBER), PARKING_TYPES[buffer.get(position + TYPE)], false));
+        ticket.setVehicleRegNumber(new String(plate, StandardCharsets.UTF_8));
+        ticket.setInTime(new Date(buffer.getLong(position + IN_TIME)));
+        long outTime = buffer.getLong(position + OUT_TIME);
+        ticket.setOutTime((outTime < 0) ? null : new Date(outTime));
+        ticket.setPrice(buffer.getDouble(position + PRICE));
+        byte kind = buffer.get(position + KIND);
+        ticket.setDiscounted(kind == DISCOUNTED_EXIT);
+        return new Entry(buffer.getLong(position + SEQ), kind != ENTRY, ticket);
+    }
+
+    private boolean isValid(int position, long expectedSeq) {
+        byte kind = buffer.get(position + KIND);
+        return buffer.getLong(position + SEQ) == expectedSeq
+                && (kind == ENTRY || kind == EXIT || kind == DISCOUNTED_EXIT)
+                && buffer.getInt(position + CRC) == checksum(position);
+    }
+
+    private int checksum(int position) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(position);
+        record.limit(position + CRC);
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
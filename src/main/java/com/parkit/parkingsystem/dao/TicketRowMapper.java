@@ -0,0 +1,36 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the columns of DBConstants.TICKET_COLUMNS to a Ticket of the given lot.
+ */
+public class TicketRowMapper implements RowMapper<Ticket> {
+
+    private final String lotId;
+
+    public TicketRowMapper(String lotId) {
+        this.lotId = lotId;
+    }
+
+    @Override
+    public Ticket mapRow(ResultSet rs) throws SQLException {
+        //ID, VEHICLE_REG_NUMBER, PARKING_NUMBER, TYPE, IN_TIME, OUT_TIME, PRICE
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(3), ParkingType.valueOf(rs.getString(4)), false);
+        parkingSpot.setLotId(lotId);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setLotId(lotId);
+        ticket.setId(rs.getInt(1));
+        ticket.setVehicleRegNumber(rs.getString(2));
+        ticket.setInTime(rs.getTimestamp(5));
+        ticket.setOutTime(rs.getTimestamp(6));
+        ticket.setPrice(rs.getDouble(7));
+        return ticket;
+    }
+}
@@ -0,0 +1,13 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+/**
+ * Persists gate operations, each call writes the ticket together with its parking spot.
+ */
+public interface TicketWriter {
+
+    boolean saveTicketAndOccupySpot(Ticket ticket);
+
+    boolean updateTicketAndFreeSpot(Ticket ticket);
+}
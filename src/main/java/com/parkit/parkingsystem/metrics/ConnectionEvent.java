@@ -0,0 +1,43 @@
+package com.parkit.parkingsystem.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of the wait for a pooled connection. The pool is named once the event is known to be
+ * recorded:
+ * <pre>
+ * ConnectionEvent event = new ConnectionEvent();
+ * event.begin();
+ * ...
+ * if (event.shouldCommit()) {
+ *     event.setPool(poolName);
+ *     event.commit();
+ * }
+ * </pre>
+ */
+@Name("com.parkit.ConnectionAcquire")
+@Label("Connection Acquire")
+@Category({"Parking", "JDBC"})
+@Description("Wait for a connection of a pool")
+@StackTrace(false)
+public class ConnectionEvent extends Event {
+
+    @Label("Pool")
+    private String pool;
+
+    @Label("Acquired")
+    private boolean acquired;
+
+    public void setPool(String pool) {
+        this.pool = pool;
+    }
+
+    public void setAcquired(boolean acquired) {
+        this.acquired = acquired;
+    }
+}
@@ -0,0 +1,59 @@
+package com.parkit.parkingsystem.metrics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Continuous Flight Recorder recording of the JVM default events together with the GateOperation, JdbcStatement and
+ * ConnectionAcquire events of the bundled parking.jfc profile, so that a stalled lane can be put next to the GC
+ * pauses, lock waits and socket reads of the same moment. The recording keeps the last maxAge of events on disk
+ * and writes them to its destination when the JVM exits, jcmd &lt;pid&gt; JFR.dump name=parking dumps it on demand.
+ */
+public class FlightRecording {
+
+    public static final String NAME = "parking";
+
+    private static final String PROFILE = "/parking.jfc";
+
+    private FlightRecording() {
+    }
+
+    /**
+     * @return the settings of the JVM default profile overridden by parking.jfc
+     */
+    public static Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (InputStream in = FlightRecording.class.getResourceAsStream(PROFILE)) {
+            if (in == null) {
+                throw new IOException("Missing recording profile " + PROFILE);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                settings.putAll(Configuration.create(reader).getSettings());
+            }
+        }
+        return settings;
+    }
+
+    public static Recording start(Path destination, Duration maxAge, long maxSizeBytes) throws IOException, ParseException {
+        Recording recording = new Recording(settings());
+        recording.setName(NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return recording;
+    }
+}
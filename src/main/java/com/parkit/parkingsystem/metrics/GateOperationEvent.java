@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a vehicle going through a gate, used as JdbcEvent. The thread of the event is the lane
+ * that handled it; the plate is left out of recordings.
+ */
+@Name("com.parkit.GateOperation")
+@Label("Gate Operation")
+@Category("Parking")
+@Description("Entry or exit of a vehicle")
+public class GateOperationEvent extends Event {
+
+    public static final String ENTRY = "ENTRY";
+    public static final String EXIT = "EXIT";
+
+    public static final String OK = "OK";
+    public static final String FULL = "FULL";
+    public static final String FAILED = "FAILED";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Lot")
+    private String lotId;
+
+    @Label("Parking Type")
+    private String parkingType;
+
+    @Label("Spot")
+    private int parkingNumber;
+
+    @Label("Outcome")
+    @Description("OK, FULL when no spot was free or FAILED")
+    private String outcome = FAILED;
+
+    public static GateOperationEvent start(String operation, String lotId) {
+        GateOperationEvent event = new GateOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.lotId = lotId;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void setParkingType(String parkingType) {
+        this.parkingType = parkingType;
+    }
+
+    public void setParkingNumber(int parkingNumber) {
+        this.parkingNumber = parkingNumber;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+}
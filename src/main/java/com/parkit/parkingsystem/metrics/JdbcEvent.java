@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Flight Recorder event of one statement run by a DAO, from prepare to the last row read.
+ * <pre>
+ * JdbcEvent event = JdbcEvent.start(sql);
+ * try {
+ *     ...
+ *     event.setRows(rows);
+ * } finally {
+ *     event.commit();
+ * }
+ * </pre>
+ * Unless a recording enables it, start and commit do nothing and the JIT removes the allocation.
+ */
+@Name("com.parkit.JdbcStatement")
+@Label("JDBC Statement")
+@Category({"Parking", "JDBC"})
+@Description("SQL statement run by a DAO")
+@StackTrace(false)
+public class JdbcEvent extends Event {
+
+    //DBConstants field name of each query
+    private static final Map<String, String> SQL_IDS = loadSqlIds();
+
+    @Label("SQL Id")
+    @Description("Name of the query in DBConstants, or the SQL itself")
+    private String sqlId;
+
+    @Label("Rows")
+    @Description("Rows read or changed, -1 when the statement failed")
+    private long rows = -1;
+
+    public static JdbcEvent start(String sql) {
+        JdbcEvent event = new JdbcEvent();
+        if (event.isEnabled()) {
+            event.sqlId = SQL_IDS.getOrDefault(sql, sql);
+            event.begin();
+        }
+        return event;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    private static Map<String, String> loadSqlIds() {
+        Map<String, String> sqlIds = new HashMap<>();
+        for (Field field : DBConstants.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String.class) {
+                try {
+                    sqlIds.putIfAbsent((String) field.get(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return sqlIds;
+    }
+}
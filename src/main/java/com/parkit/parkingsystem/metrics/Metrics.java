@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of the instrumented operations, each one is also published as the MBean
+ * com.parkit.parkingsystem:type=Operation,name=&lt;operation&gt;.
+ */
+public class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private static final String DOMAIN = "com.parkit.parkingsystem";
+
+    private static final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the stats of this operation, created and registered on first use
+     */
+    public static OperationStats operation(String name) {
+        return operations.computeIfAbsent(name, Metrics::register);
+    }
+
+    /**
+     * @return every operation, sorted by name
+     */
+    public static List<OperationStats> getOperations() {
+        List<OperationStats> sorted = new ArrayList<>(operations.values());
+        sorted.sort(Comparator.comparing(OperationStats::getName));
+        return sorted;
+    }
+
+    public static void reset() {
+        for (OperationStats stats : operations.values()) {
+            stats.reset();
+        }
+    }
+
+    private static OperationStats register(String name) {
+        OperationStats stats = new OperationStats(name);
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=Operation,name=" + name);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(stats, objectName);
+            }
+        } catch (Exception e) {
+            logger.error("Unable to register MBean for " + name, e);
+        }
+        return stats;
+    }
+}
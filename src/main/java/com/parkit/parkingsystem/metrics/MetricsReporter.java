@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically appends a snapshot of every operation, with its throughput since the previous snapshot,
+ * to a file or to the log when no file is given.
+ */
+public class MetricsReporter implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("MetricsReporter");
+
+    private final Path file;
+    private final long intervalSeconds;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Long> previousCounts = new HashMap<>();
+
+    /**
+     * @param file may be null to write the snapshots to the log
+     */
+    public MetricsReporter(Path file, long intervalSeconds) {
+        this.file = file;
+        this.intervalSeconds = intervalSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized String snapshot() {
+        StringBuilder snapshot = new StringBuilder("metrics at ").append(Instant.now()).append('\n');
+        for (OperationStats stats : Metrics.getOperations()) {
+            long count = stats.getCount();
+            Long previous = previousCounts.put(stats.getName(), count);
+            long delta = count - ((previous == null) ? 0 : previous);
+            snapshot.append(stats).append(String.format(" rate=%.1f/s", (double) delta / intervalSeconds)).append('\n');
+        }
+        return snapshot.toString();
+    }
+
+    private void report() {
+        String snapshot = snapshot();
+        if (file == null) {
+            logger.info(snapshot);
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(snapshot);
+        } catch (IOException e) {
+            logger.error("Unable to write metrics to " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+    }
+}
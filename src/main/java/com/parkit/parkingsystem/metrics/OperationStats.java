@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and error count of one operation, obtained from Metrics.operation(name).
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * stats.record(start);
+ * </pre>
+ */
+public class OperationStats implements OperationStatsMBean {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param startNanos System.nanoTime() taken when the operation started
+     */
+    public void record(long startNanos) {
+        latencies.record(System.nanoTime() - startNanos);
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.getMean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.getValueAtPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latencies.getValueAtPercentile(90) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.getValueAtPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.getMax() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d errors=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                name, getCount(), getErrors(), getMeanMicros(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,25 @@
+package com.parkit.parkingsystem.metrics;
+
+/**
+ * JMX view of one instrumented operation, latencies in microseconds.
+ */
+public interface OperationStatsMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+public class GateEvent {
+
+    public enum Direction {
+        ENTRY,
+        EXIT
+    }
+
+    private Date time;
+    private Direction direction;
+    private String vehicleRegNumber;
+    private ParkingType parkingType;
+
+    public GateEvent(Date time, Direction direction, String vehicleRegNumber, ParkingType parkingType) {
+        this.time = time;
+        this.direction = direction;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+}
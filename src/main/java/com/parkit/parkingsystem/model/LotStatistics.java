@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Spots, open tickets and revenue of one lot, or of several lots once merged. A lot that could not be read is
+ * unavailable and left out of the merged totals.
+ */
+public class LotStatistics {
+
+    private final String lotId;
+    private final int[] totalSpots = new int[ParkingType.values().length];
+    private final int[] freeSpots = new int[ParkingType.values().length];
+    private int openTickets;
+    private double revenue;
+    private boolean available = true;
+    private final List<String> unavailableLots = new ArrayList<>();
+
+    public LotStatistics(String lotId) {
+        this.lotId = lotId;
+    }
+
+    /**
+     * @return the statistics of a lot that could not be read
+     */
+    public static LotStatistics unavailable(String lotId) {
+        LotStatistics statistics = new LotStatistics(lotId);
+        statistics.available = false;
+        return statistics;
+    }
+
+    /**
+     * @return the sum of the available statistics under a new lot id, the other lots being listed as unavailable
+     */
+    public static LotStatistics merge(String lotId, Collection<LotStatistics> lots) {
+        LotStatistics merged = new LotStatistics(lotId);
+        for (LotStatistics lot : lots) {
+            if (!lot.available) {
+                merged.unavailableLots.add(lot.lotId);
+                continue;
+            }
+            for (int i = 0; i < merged.totalSpots.length; i++) {
+                merged.totalSpots[i] += lot.totalSpots[i];
+                merged.freeSpots[i] += lot.freeSpots[i];
+            }
+            merged.openTickets += lot.openTickets;
+            merged.revenue += lot.revenue;
+        }
+        return merged;
+    }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * @return the lots left out of merged statistics because they could not be read
+     */
+    public List<String> getUnavailableLots() {
+        return unavailableLots;
+    }
+
+    public void addSpot(ParkingSpot parkingSpot) {
+        totalSpots[parkingSpot.getParkingType().ordinal()]++;
+        if (parkingSpot.isAvailable()) {
+            freeSpots[parkingSpot.getParkingType().ordinal()]++;
+        }
+    }
+
+    public int getTotalSpots(ParkingType parkingType) {
+        return totalSpots[parkingType.ordinal()];
+    }
+
+    public int getFreeSpots(ParkingType parkingType) {
+        return freeSpots[parkingType.ordinal()];
+    }
+
+    public int getOpenTickets() {
+        return openTickets;
+    }
+
+    public void setOpenTickets(int openTickets) {
+        this.openTickets = openTickets;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(lotId);
+        if (!available) {
+            return text.append(" unavailable").toString();
+        }
+        for (ParkingType parkingType : ParkingType.values()) {
+            text.append(' ').append(parkingType).append(' ')
+                    .append(getFreeSpots(parkingType)).append('/').append(getTotalSpots(parkingType));
+        }
+        text.append(" open tickets ").append(openTickets).append(" revenue ").append(revenue);
+        if (!unavailableLots.isEmpty()) {
+            text.append(" without unavailable lots ").append(String.join(",", unavailableLots));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * A change of the occupancy of a lot, with the free spots of its ParkingType right after the change.
+ */
+public class OccupancyEvent {
+
+    public enum Kind {
+        //a vehicle parked on the spot
+        ENTRY,
+        //a vehicle left the spot
+        EXIT,
+        //the spot is held for a reservation
+        RESERVED,
+        //a reservation was cancelled or expired and its spot freed
+        RELEASED,
+        //only the free spots of the type, for a new subscriber, after reconciliation or instead of older events
+        COUNT
+    }
+
+    private final Kind kind;
+    private final String lotId;
+    private final ParkingType parkingType;
+    private final int parkingNumber;
+    private final int freeSpots;
+    private final int totalSpots;
+    private final long timeMillis;
+
+    public OccupancyEvent(Kind kind, String lotId, ParkingType parkingType, int parkingNumber, int freeSpots, int totalSpots, long timeMillis) {
+        this.kind = kind;
+        this.lotId = lotId;
+        this.parkingType = parkingType;
+        this.parkingNumber = parkingNumber;
+        this.freeSpots = freeSpots;
+        this.totalSpots = totalSpots;
+        this.timeMillis = timeMillis;
+    }
+
+    /**
+     * @return the free spots of this event alone, without the spot that changed
+     */
+    public OccupancyEvent toCount() {
+        return (kind == Kind.COUNT) ? this : new OccupancyEvent(Kind.COUNT, lotId, parkingType, 0, freeSpots, totalSpots, timeMillis);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    /**
+     * @return the spot that changed, 0 for a COUNT
+     */
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public int getFreeSpots() {
+        return freeSpots;
+    }
+
+    public int getTotalSpots() {
+        return totalSpots;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + parkingType + " " + parkingNumber + " " + freeSpots + "/" + totalSpots;
+    }
+}
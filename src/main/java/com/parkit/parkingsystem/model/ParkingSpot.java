@@ -2,10 +2,13 @@ package com.parkit.parkingsystem.model;
 
 import com.parkit.parkingsystem.constants.ParkingType;
 
+import java.util.Objects;
+
 public class ParkingSpot {
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private String lotId;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
         this.number = number;
@@ -37,12 +40,23 @@ public class ParkingSpot {
         isAvailable = available;
     }
 
+    /**
+     * @return the lot (and database) this spot belongs to, null when it was not read from a database
+     */
+    public String getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return number == that.number && Objects.equals(lotId, that.lotId);
     }
 
     @Override
@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+/**
+ * A parking spot held for a pre-booked customer until the customer enters with the code or the hold expires.
+ */
+public class Reservation {
+
+    private final String code;
+    private final ParkingSpot parkingSpot;
+    private final Date expiresAt;
+
+    public Reservation(String code, ParkingSpot parkingSpot, Date expiresAt) {
+        this.code = code;
+        this.parkingSpot = parkingSpot;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public ParkingSpot getParkingSpot() {
+        return parkingSpot;
+    }
+
+    public Date getExpiresAt() {
+        return expiresAt;
+    }
+}
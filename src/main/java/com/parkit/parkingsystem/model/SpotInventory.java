@@ -0,0 +1,25 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.List;
+
+/**
+ * The parking spots of a lot with the tickets still open on them, as read at startup.
+ */
+public class SpotInventory {
+
+    private final List<ParkingSpot> parkingSpots;
+    private final List<Ticket> openTickets;
+
+    public SpotInventory(List<ParkingSpot> parkingSpots, List<Ticket> openTickets) {
+        this.parkingSpots = parkingSpots;
+        this.openTickets = openTickets;
+    }
+
+    public List<ParkingSpot> getParkingSpots() {
+        return parkingSpots;
+    }
+
+    public List<Ticket> getOpenTickets() {
+        return openTickets;
+    }
+}
@@ -10,6 +10,9 @@ public class Ticket {
     private double price;
     private Date inTime;
     private Date outTime;
+    private String lotId;
+    //the recurring user discount is included in the price
+    private boolean discounted;
 
     public int getId() {
         return id;
@@ -58,4 +61,20 @@ public class Ticket {
     public void setOutTime(Date outTime) {
         this.outTime = outTime;
     }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(String lotId) {
+        this.lotId = lotId;
+    }
+
+    public boolean isDiscounted() {
+        return discounted;
+    }
+
+    public void setDiscounted(boolean discounted) {
+        this.discounted = discounted;
+    }
 }
@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/**
+ * Visits, revenue and dwell time of closed tickets per hour of arrival and parking type.
+ * Counters are primitive arrays sized by the reported period, so memory does not grow with the number of tickets.
+ */
+public class UsageReport {
+
+    public static final long HOUR = 60 * 60 * 1000;
+
+    private static final int TYPES = ParkingType.values().length;
+
+    private final long startMillis;
+    private final int hours;
+    private final long[] visits;
+    private final long[] dwellMillis;
+    private final double[] revenue;
+    private long tickets;
+
+    /**
+     * @param fromMillis start of the period, rounded down to the hour
+     * @param toMillis end of the period, exclusive
+     */
+    public UsageReport(long fromMillis, long toMillis) {
+        this.startMillis = fromMillis - Math.floorMod(fromMillis, HOUR);
+        this.hours = (int) Math.max(1, (toMillis - startMillis + HOUR - 1) / HOUR);
+        this.visits = new long[hours * TYPES];
+        this.dwellMillis = new long[hours * TYPES];
+        this.revenue = new double[hours * TYPES];
+    }
+
+    /**
+     * Counts a closed ticket in the hour it arrived, tickets arriving outside of the period are ignored.
+     */
+    public void add(long inMillis, long outMillis, int parkingTypeOrdinal, double price) {
+        long hour = Math.floorDiv(inMillis - startMillis, HOUR);
+        if (hour < 0 || hour >= hours) {
+            return;
+        }
+        int cell = (int) hour * TYPES + parkingTypeOrdinal;
+        visits[cell]++;
+        dwellMillis[cell] += Math.max(0, outMillis - inMillis);
+        revenue[cell] += price;
+        tickets++;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    public long getTickets() {
+        return tickets;
+    }
+
+    public long getHourStartMillis(int hour) {
+        return startMillis + hour * HOUR;
+    }
+
+    public long getVisits(int hour, ParkingType parkingType) {
+        return visits[hour * TYPES + parkingType.ordinal()];
+    }
+
+    public long getDwellMillis(int hour, ParkingType parkingType) {
+        return dwellMillis[hour * TYPES + parkingType.ordinal()];
+    }
+
+    public double getRevenue(int hour, ParkingType parkingType) {
+        return revenue[hour * TYPES + parkingType.ordinal()];
+    }
+}
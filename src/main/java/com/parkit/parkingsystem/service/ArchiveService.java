@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketArchive;
+import com.parkit.parkingsystem.dao.TicketArchiveWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the tickets closed before a cutoff from the ticket table to a new TicketArchive file, so the hot table and
+ * its indexes only hold recent tickets. Rows are deleted once the file is on disk, in one transaction per block:
+ * if the job stops in between, the next run archives the remaining rows again and history lookups drop the copies.
+ */
+public class ArchiveService {
+
+    private static final Logger logger = LogManager.getLogger("ArchiveService");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final TicketArchive ticketArchive;
+    private final int blockSize;
+
+    public static class Result {
+        private long tickets;
+        private Path file;
+        private long elapsedNanos;
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        /**
+         * @return the archive file written, null when there was nothing to archive
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return tickets + " tickets archived" + ((file == null) ? "" : " to " + file)
+                    + " in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms";
+        }
+    }
+
+    public ArchiveService(DataBaseConfig dataBaseConfig, TicketArchive ticketArchive, int blockSize) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.ticketArchive = ticketArchive;
+        this.blockSize = blockSize;
+    }
+
+    public Result archive(Date cutoff) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        Path file = ticketArchive.newFile();
+        //first and last ticket id of every block, the rows are deleted by id range
+        List<int[]> idRanges = new ArrayList<>();
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_TO_ARCHIVE,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             TicketArchiveWriter writer = new TicketArchiveWriter(file, blockSize)) {
+            ps.setFetchSize(blockSize);
+            ps.setTimestamp(1, new Timestamp(cutoff.getTime()));
+            try (ResultSet rs = ps.executeQuery()) {
+                int[] range = null;
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    writer.add(id, rs.getString(2), rs.getInt(3), ParkingType.valueOf(rs.getString(4)).ordinal(),
+                            rs.getTimestamp(5).getTime(), rs.getTimestamp(6).getTime(), rs.getDouble(7));
+                    if (range == null) {
+                        range = new int[]{id, id, 0};
+                        idRanges.add(range);
+                    }
+                    range[1] = id;
+                    if (++range[2] == blockSize) {
+                        range = null;
+                    }
+                }
+            }
+            result.tickets = writer.getTickets();
+            if (result.tickets > 0) {
+                writer.finish();
+                result.file = file;
+            }
+        }
+        if (result.file != null) {
+            ticketArchive.refresh();
+            delete(idRanges, cutoff);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        logger.info("Archiving done: " + result);
+        return result;
+    }
+
+    private void delete(List<int[]> idRanges, Date cutoff) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(DBConstants.DELETE_ARCHIVED_TICKETS)) {
+            con.setAutoCommit(false);
+            for (int[] range : idRanges) {
+                ps.setInt(1, range[0]);
+                ps.setInt(2, range[1]);
+                ps.setTimestamp(3, new Timestamp(cutoff.getTime()));
+                ps.executeUpdate();
+                con.commit();
+            }
+        }
+    }
+}
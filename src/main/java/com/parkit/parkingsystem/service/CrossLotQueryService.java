@@ -0,0 +1,81 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.model.LotStatistics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aggregates over every lot of a LotRouter. Each lot is queried on its own thread, so a report costs
+ * about as much as the slowest lot instead of the sum of all of them.
+ */
+public class CrossLotQueryService implements AutoCloseable {
+
+    public static final String ALL_LOTS = "all";
+
+    private final LotRouter lotRouter;
+    private final ExecutorService executor;
+
+    public CrossLotQueryService(LotRouter lotRouter) {
+        this.lotRouter = lotRouter;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, lotRouter.getLotIds().size()), task -> {
+            Thread thread = new Thread(task, "lot-query-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the statistics of every lot, revenue of the tickets closed in [from, to), in the router order; a lot that
+     * could not be read is returned as unavailable
+     */
+    public List<LotStatistics> getLotStatistics(Date from, Date to) {
+        List<CompletableFuture<LotStatistics>> futures = new ArrayList<>();
+        for (String lotId : lotRouter.getLotIds()) {
+            futures.add(CompletableFuture.supplyAsync(() -> getLotStatistics(lotId, from, to), executor)
+                    .exceptionally(e -> LotStatistics.unavailable(lotId)));
+        }
+        List<LotStatistics> lots = new ArrayList<>();
+        for (CompletableFuture<LotStatistics> future : futures) {
+            lots.add(future.join());
+        }
+        return lots;
+    }
+
+    /**
+     * @return the statistics of every available lot added together
+     */
+    public LotStatistics getTotals(Date from, Date to) {
+        return LotStatistics.merge(ALL_LOTS, getLotStatistics(from, to));
+    }
+
+    //the DAOs report a failed read as an empty spot list or a negative count, which a lot never has
+    private LotStatistics getLotStatistics(String lotId, Date from, Date to) {
+        List<ParkingSpot> parkingSpots = lotRouter.getParkingSpotDAO(lotId).getParkingSpots(true);
+        int openTickets = lotRouter.getTicketDAO(lotId).countOpenTickets();
+        double revenue = lotRouter.getTicketDAO(lotId).getRevenue(from, to);
+        if (parkingSpots.isEmpty() || openTickets < 0 || revenue < 0) {
+            return LotStatistics.unavailable(lotId);
+        }
+        LotStatistics statistics = new LotStatistics(lotId);
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            statistics.addSpot(parkingSpot);
+        }
+        statistics.setOpenTickets(openTickets);
+        statistics.setRevenue(revenue);
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -1,40 +1,104 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.Ticket;
 
 public class FareCalculatorService {
 
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    //hourly rate by ParkingType ordinal
+    private static final double[] RATES_PER_HOUR = new double[ParkingType.values().length];
+
+    static {
+        for (ParkingType parkingType : ParkingType.values()) {
+            switch (parkingType) {
+                case CAR: {
+                    RATES_PER_HOUR[parkingType.ordinal()] = Fare.CAR_RATE_PER_HOUR;
+                    break;
+                }
+                case BIKE: {
+                    RATES_PER_HOUR[parkingType.ordinal()] = Fare.BIKE_RATE_PER_HOUR;
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unkown Parking Type");
+            }
+        }
+    }
+
+    private final VisitCountIndex visitCountIndex;
+    private final int recurringUserMinVisits;
+    private final TariffFile tariffFile;
+
+    public FareCalculatorService() {
+        this(null, 0, null);
+    }
+
+    /**
+     * @param visitCountIndex closed tickets of each plate, looked up in memory at each exit
+     * @param recurringUserMinVisits visits after which a plate gets the recurring user discount, 0 for no discount
+     */
+    public FareCalculatorService(VisitCountIndex visitCountIndex, int recurringUserMinVisits) {
+        this(visitCountIndex, recurringUserMinVisits, null);
+    }
+
+    /**
+     * @param tariffFile tariff replacing the default rates, null to keep them
+     */
+    public FareCalculatorService(VisitCountIndex visitCountIndex, int recurringUserMinVisits, TariffFile tariffFile) {
+        this.visitCountIndex = visitCountIndex;
+        this.recurringUserMinVisits = recurringUserMinVisits;
+        this.tariffFile = tariffFile;
+    }
+
     public void calculateFare(Ticket ticket){
         if( (ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime())) ){
             throw new IllegalArgumentException("Out time provided is incorrect:"+ticket.getOutTime().toString());
         }
+        double price = calculateFare(ticket.getInTime().getTime(), ticket.getOutTime().getTime(),
+                ticket.getParkingSpot().getParkingType().ordinal());
+        boolean discounted = isRecurringUser(ticket.getVehicleRegNumber());
+        ticket.setDiscounted(discounted);
+        ticket.setPrice(discounted ? getDiscountedFare(price) : price);
+    }
+
+    public boolean isRecurringUser(String vehicleRegNumber) {
+        return visitCountIndex != null && recurringUserMinVisits > 0 && vehicleRegNumber != null
+                && visitCountIndex.getVisits(vehicleRegNumber) >= recurringUserMinVisits;
+    }
+
+    public double getDiscountedFare(double fare) {
+        return fare * (1 - Fare.RECURRING_USER_DISCOUNT);
+    }
+
+    /**
+     * Same pricing as calculateFare(Ticket) on primitive values, allocates nothing.
+     * @param parkingTypeOrdinal ordinal of the ParkingType of the spot
+     */
+    public double calculateFare(long inMillis, long outMillis, int parkingTypeOrdinal){
+        if (outMillis < inMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect:" + outMillis);
+        }
+        if (parkingTypeOrdinal < 0 || parkingTypeOrdinal >= RATES_PER_HOUR.length) {
+            throw new IllegalArgumentException("Unkown Parking Type");
+        }
+        if (tariffFile != null) {
+            return tariffFile.get().calculateFare(inMillis, outMillis, parkingTypeOrdinal);
+        }
 
-        //GetTime des milliseconde; /1000 des secondes; /60 des minutes
-        long inMinutes = ticket.getInTime().getTime()/1000/60;
-        long outMinutes = ticket.getOutTime().getTime()/1000/60;
+        //whole minutes of each timestamp, seconds are dropped before the difference
+        long durationm = outMillis / MILLIS_PER_MINUTE - inMillis / MILLIS_PER_MINUTE;
 
         //TODO: Some tests are failing here. Need to check if this logic is correct
-        long durationm = outMinutes - inMinutes;
         double rate = 1.0;
-        int duration = (int) durationm / 60; 
+        int duration = (int) durationm / 60;
         if (durationm < 15) {
             rate = 0.0;
         } else if (durationm < 60) {
             rate = 0.75;
             duration = 1;
         }
-       
-        switch (ticket.getParkingSpot().getParkingType()){
-            case CAR: {
-                ticket.setPrice(rate * duration * Fare.CAR_RATE_PER_HOUR);
-                break;
-            }
-            case BIKE: {
-                ticket.setPrice(rate * duration * Fare.BIKE_RATE_PER_HOUR);
-                break;
-            }
-            default: throw new IllegalArgumentException("Unkown Parking Type");
-        }
+        return rate * duration * RATES_PER_HOUR[parkingTypeOrdinal];
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Prices every closed ticket again with the current fares, for instance after a tariff correction.
+ * Tickets are read from a forward-only cursor into chunks of primitive arrays, each chunk is priced in parallel
+ * on the common fork-join pool and the prices that changed are written back with one JDBC batch and commit per chunk.
+ * Committed chunks stay repriced if a later chunk fails, running it again is harmless. Tickets that got the recurring
+ * user discount at exit get it on their new price too.
+ */
+public class FareRepricingService {
+
+    private static final Logger logger = LogManager.getLogger("FareRepricingService");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final FareCalculatorService fareCalculatorService;
+    private final int chunkSize;
+
+    public static class Result {
+        private long tickets;
+        private long repriced;
+        private long elapsedNanos;
+
+        public long getTickets() {
+            return tickets;
+        }
+
+        public long getRepriced() {
+            return repriced;
+        }
+
+        public double getTicketsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : tickets * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return tickets + " closed tickets, " + repriced + " repriced in "
+                    + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms (" + Math.round(getTicketsPerSecond()) + " tickets/s)";
+        }
+    }
+
+    private static final class Chunk {
+        private final int[] ids;
+        private final long[] inTimes;
+        private final long[] outTimes;
+        private final int[] parkingTypes;
+        private final double[] prices;
+        //1 discounted, 0 not discounted, -1 unknown for the tickets closed before the DISCOUNTED column
+        private final byte[] discounted;
+        private final double[] newPrices;
+        private int size;
+
+        private Chunk(int capacity) {
+            ids = new int[capacity];
+            inTimes = new long[capacity];
+            outTimes = new long[capacity];
+            parkingTypes = new int[capacity];
+            prices = new double[capacity];
+            discounted = new byte[capacity];
+            newPrices = new double[capacity];
+        }
+    }
+
+    public FareRepricingService(DataBaseConfig dataBaseConfig, FareCalculatorService fareCalculatorService, int chunkSize) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.fareCalculatorService = fareCalculatorService;
+        this.chunkSize = chunkSize;
+    }
+
+    public Result reprice() throws SQLException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        Chunk chunk = new Chunk(chunkSize);
+        //the cursor stays open while chunks are written, so updates go through a second connection
+        try (Connection readCon = dataBaseConfig.getConnection();
+             Connection writeCon = dataBaseConfig.getConnection();
+             PreparedStatement ps = readCon.prepareStatement(DBConstants.GET_CLOSED_TICKET_PRICES,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             PreparedStatement update = writeCon.prepareStatement(DBConstants.UPDATE_TICKET_PRICE)) {
+            writeCon.setAutoCommit(false);
+            ps.setFetchSize(chunkSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int i = chunk.size++;
+                    chunk.ids[i] = rs.getInt(1);
+                    chunk.inTimes[i] = rs.getTimestamp(2).getTime();
+                    chunk.outTimes[i] = rs.getTimestamp(3).getTime();
+                    chunk.parkingTypes[i] = ParkingType.valueOf(rs.getString(4)).ordinal();
+                    chunk.prices[i] = rs.getDouble(5);
+                    boolean discounted = rs.getBoolean(6);
+                    chunk.discounted[i] = rs.wasNull() ? (byte) -1 : (byte) (discounted ? 1 : 0);
+                    if (chunk.size == chunkSize) {
+                        write(chunk, update, writeCon, result);
+                    }
+                }
+            }
+            write(chunk, update, writeCon, result);
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        logger.info("Repricing done: " + result);
+        return result;
+    }
+
+    private void write(Chunk chunk, PreparedStatement update, Connection writeCon, Result result) throws SQLException {
+        if (chunk.size == 0) {
+            return;
+        }
+        price(chunk);
+        int batched = 0;
+        for (int i = 0; i < chunk.size; i++) {
+            if (Double.compare(chunk.newPrices[i], chunk.prices[i]) != 0) {
+                update.setDouble(1, chunk.newPrices[i]);
+                update.setInt(2, chunk.ids[i]);
+                update.addBatch();
+                batched++;
+            }
+        }
+        if (batched > 0) {
+            update.executeBatch();
+        }
+        writeCon.commit();
+        result.tickets += chunk.size;
+        result.repriced += batched;
+        chunk.size = 0;
+    }
+
+    private void price(Chunk chunk) {
+        IntStream.range(0, chunk.size).parallel().forEach(i -> {
+            //a ticket closed before it was opened cannot be priced, it keeps its price
+            if (chunk.outTimes[i] < chunk.inTimes[i]) {
+                chunk.newPrices[i] = chunk.prices[i];
+                return;
+            }
+            double fare = fareCalculatorService.calculateFare(chunk.inTimes[i], chunk.outTimes[i], chunk.parkingTypes[i]);
+            double discountedFare = fareCalculatorService.getDiscountedFare(fare);
+            if (chunk.discounted[i] < 0) {
+                //closed before the discount was recorded: only a price already discounted from the current fare tells
+                chunk.newPrices[i] = (chunk.prices[i] == discountedFare) ? discountedFare : fare;
+            } else {
+                chunk.newPrices[i] = (chunk.discounted[i] == 1) ? discountedFare : fare;
+            }
+        });
+    }
+}
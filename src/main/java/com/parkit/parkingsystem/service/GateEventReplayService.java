@@ -0,0 +1,126 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.BatchTicketWriter;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.GateEventParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Replays a camera event log through ParkingService, writing tickets in JDBC batches
+ * and committing every commitInterval events.
+ */
+public class GateEventReplayService {
+
+    private static final Logger logger = LogManager.getLogger("GateEventReplayService");
+
+    private final ParkingService parkingService;
+    private final BatchTicketWriter batchTicketWriter;
+    private final GateEventParser gateEventParser;
+    private final int commitInterval;
+
+    public GateEventReplayService(ParkingService parkingService, BatchTicketWriter batchTicketWriter,
+                                  GateEventParser gateEventParser, int commitInterval) {
+        this.parkingService = parkingService;
+        this.batchTicketWriter = batchTicketWriter;
+        this.gateEventParser = gateEventParser;
+        this.commitInterval = commitInterval;
+        parkingService.setTicketWriter(batchTicketWriter);
+    }
+
+    public Report replay(BufferedReader reader) throws IOException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            GateEvent event;
+            try {
+                event = gateEventParser.parse(line);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping malformed event: " + e.getMessage());
+                report.malformed++;
+                continue;
+            }
+            if (event == null) {
+                continue;
+            }
+            apply(event, report);
+            if (batchTicketWriter.getPendingOperations() >= commitInterval) {
+                flush();
+            }
+        }
+        flush();
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void apply(GateEvent event, Report report) {
+        report.events++;
+        try {
+            if (event.getDirection() == GateEvent.Direction.ENTRY) {
+                Ticket ticket = parkingService.processIncomingVehicle(event.getParkingType(), event.getVehicleRegNumber(), event.getTime());
+                if (ticket == null) {
+                    logger.warn("No free " + event.getParkingType() + " spot for " + event.getVehicleRegNumber() + " at " + event.getTime());
+                    report.rejected++;
+                } else {
+                    report.entries++;
+                }
+            } else {
+                parkingService.processExitingVehicle(event.getVehicleRegNumber(), event.getTime());
+                report.exits++;
+            }
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            logger.warn("Rejected " + event.getDirection() + " of " + event.getVehicleRegNumber() + ": " + e.getMessage());
+            report.rejected++;
+        }
+    }
+
+    private void flush() throws IOException {
+        if (!batchTicketWriter.flush()) {
+            throw new IOException("Unable to write ticket batch, replay stopped");
+        }
+    }
+
+    public static class Report {
+        private long events;
+        private long entries;
+        private long exits;
+        private long rejected;
+        private long malformed;
+        private long elapsedNanos;
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getEntries() {
+            return entries;
+        }
+
+        public long getExits() {
+            return exits;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getMalformed() {
+            return malformed;
+        }
+
+        public double getEventsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : events * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d events (%d entries, %d exits, %d rejected, %d malformed) in %.1f s, %.0f events/s",
+                    events, entries, exits, rejected, malformed, elapsedNanos / 1_000_000_000.0, getEventsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OccupancyEvent;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves many entry/exit lanes from one process over a line based TCP protocol, one thread per lane connection.
+ * <pre>
+ * ENTER CAR|BIKE plate [code] -> OK spot ticketId | FULL | ERROR message
+ * EXIT plate            -> OK price | ERROR message
+ * RESERVE CAR|BIKE minutes -> OK code spot | FULL | ERROR message
+ * CANCEL code           -> OK | ERROR message
+ * OCCUPANCY             -> OK CAR free/total BIKE free/total
+ * WATCH                 -> OK, then EVENT ENTRY|EXIT|RESERVED|RELEASED|COUNT CAR|BIKE spot free/total at each change
+ * LOT id                -> OK | ERROR message
+ * QUIT                  -> BYE
+ * </pre>
+ * A WATCH connection only streams events until it sends QUIT or closes, it is meant for displays and dashboards.
+ * A server may serve several lots: a connection starts on the first one and LOT moves its next commands to another.
+ */
+public class GateServer implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("GateServer");
+
+    private final Map<String, ParkingService> parkingServices;
+    private final ParkingService defaultParkingService;
+    private final ServerSocket serverSocket;
+    private final ExecutorService lanes;
+    private final AtomicInteger laneCount = new AtomicInteger();
+
+    public GateServer(ParkingService parkingService, InetAddress bindAddress, int port) throws IOException {
+        this(Collections.singletonList(parkingService), bindAddress, port);
+    }
+
+    /**
+     * @param parkingServices one per lot, the first one serves the connections that did not send LOT
+     */
+    public GateServer(List<ParkingService> parkingServices, InetAddress bindAddress, int port) throws IOException {
+        this.parkingServices = new LinkedHashMap<>();
+        for (ParkingService parkingService : parkingServices) {
+            if (this.parkingServices.put(parkingService.getLotId(), parkingService) != null) {
+                throw new IllegalArgumentException("Duplicate lot:" + parkingService.getLotId());
+            }
+        }
+        this.defaultParkingService = parkingServices.get(0);
+        this.serverSocket = new ServerSocket(port, 128, bindAddress);
+        this.lanes = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "gate-lane-" + laneCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts lane connections until the server is closed.
+     */
+    public void run() {
+        logger.info("Gate server listening on port " + getPort());
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                lanes.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                //closed while waiting in accept
+            } catch (IOException e) {
+                logger.error("Error accepting lane connection", e);
+            }
+        }
+    }
+
+    public void start() {
+        Thread acceptor = new Thread(this::run, "gate-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        lanes.shutdownNow();
+        try {
+            lanes.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket lane = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(lane.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(lane.getOutputStream(), true)) {
+            ParkingService parkingService = defaultParkingService;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if ("WATCH".equalsIgnoreCase(line.trim())) {
+                    watch(parkingService, in, out);
+                    break;
+                }
+                String[] words = line.trim().split("\\s+");
+                if ("LOT".equalsIgnoreCase(words[0])) {
+                    ParkingService selected = (words.length == 2) ? parkingServices.get(words[1]) : null;
+                    if (selected == null) {
+                        out.println((words.length == 2) ? "ERROR unknown lot: " + words[1] : "ERROR usage: LOT id");
+                    } else {
+                        parkingService = selected;
+                        out.println("OK");
+                    }
+                    continue;
+                }
+                String response = handle(parkingService, line.trim());
+                out.println(response);
+                if ("BYE".equals(response)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Lane connection lost: " + e.getMessage());
+        }
+    }
+
+    private void watch(ParkingService parkingService, BufferedReader in, PrintWriter out) throws IOException {
+        OccupancyPublisher occupancyPublisher = parkingService.getOccupancyPublisher();
+        if (occupancyPublisher == null) {
+            out.println("ERROR occupancy stream not enabled");
+            return;
+        }
+        out.println("OK");
+        LineSubscriber subscriber = new LineSubscriber(out);
+        occupancyPublisher.subscribe(subscriber);
+        try {
+            String line;
+            while ((line = in.readLine()) != null && !"QUIT".equalsIgnoreCase(line.trim())) {
+                //nothing else is expected on a watch connection
+            }
+        } finally {
+            subscriber.cancel();
+        }
+        out.println("BYE");
+    }
+
+    /**
+     * Writes the events to a watch connection one at a time: the next one is requested once the line is written,
+     * so a display reading slowly gets coalesced counts instead of a growing backlog.
+     */
+    private static class LineSubscriber implements Flow.Subscriber<OccupancyEvent> {
+
+        private final PrintWriter out;
+        private volatile Flow.Subscription subscription;
+        private volatile boolean cancelled;
+
+        LineSubscriber(PrintWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (cancelled) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(OccupancyEvent event) {
+            out.println("EVENT " + event);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            logger.warn("Occupancy stream failed: " + throwable.getMessage());
+        }
+
+        @Override
+        public void onComplete() {
+            //the connection is closed by the lane thread
+        }
+
+        void cancel() {
+            cancelled = true;
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    String handle(ParkingService parkingService, String command) {
+        String[] words = command.split("\\s+");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "ENTER": {
+                    if (words.length != 3 && words.length != 4) {
+                        return "ERROR usage: ENTER CAR|BIKE plate [code]";
+                    }
+                    Ticket ticket = parkingService.processIncomingVehicle(ParkingType.valueOf(words[1].toUpperCase()), words[2], new Date(),
+                            (words.length == 4) ? words[3] : null);
+                    return (ticket == null) ? "FULL" : "OK " + ticket.getParkingSpot().getId() + " " + ticket.getId();
+                }
+                case "EXIT": {
+                    if (words.length != 2) {
+                        return "ERROR usage: EXIT plate";
+                    }
+                    return "OK " + parkingService.processExitingVehicle(words[1], new Date()).getPrice();
+                }
+                case "RESERVE": {
+                    if (words.length != 3) {
+                        return "ERROR usage: RESERVE CAR|BIKE minutes";
+                    }
+                    long minutes = Long.parseLong(words[2]);
+                    if (minutes <= 0) {
+                        return "ERROR reservation minutes must be positive";
+                    }
+                    Date expiresAt = new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(minutes));
+                    Reservation reservation = parkingService.reserveSpot(ParkingType.valueOf(words[1].toUpperCase()), expiresAt);
+                    return (reservation == null) ? "FULL" : "OK " + reservation.getCode() + " " + reservation.getParkingSpot().getId();
+                }
+                case "CANCEL": {
+                    if (words.length != 2) {
+                        return "ERROR usage: CANCEL code";
+                    }
+                    return parkingService.cancelReservation(words[1]) ? "OK" : "ERROR no pending reservation " + words[1];
+                }
+                case "OCCUPANCY": {
+                    StringBuilder response = new StringBuilder("OK");
+                    for (ParkingType parkingType : ParkingType.values()) {
+                        response.append(' ').append(parkingType).append(' ')
+                                .append(parkingService.getFreeSpots(parkingType)).append('/')
+                                .append(parkingService.getTotalSpots(parkingType));
+                    }
+                    return response.toString();
+                }
+                case "QUIT":
+                    return "BYE";
+                default:
+                    return "ERROR unknown command: " + words[0];
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "ERROR " + e.getMessage();
+        } catch (Exception e) {
+            logger.error("Error processing lane command " + command, e);
+            return "ERROR internal error";
+        }
+    }
+}
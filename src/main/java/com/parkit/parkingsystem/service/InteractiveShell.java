@@ -1,11 +1,14 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.dao.LotRouter;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
@@ -14,15 +17,30 @@ public class InteractiveShell {
         logger.info("App initialized!!!");
         System.out.println("Welcome to Parking System!");
 
-        boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        FutureTask<ParkingSystem> opening = new FutureTask<>(() -> ParkingSystem.open(gateDataBaseConfig(), inputReaderUtil));
+        if (Boolean.parseBoolean(DataBaseConfig.getProperty("startup.fast"))) {
+            //the database is prepared while the first driver reads the menu
+            Thread startup = new Thread(opening, "parking-startup");
+            startup.setDaemon(true);
+            startup.start();
+        } else {
+            opening.run();
+            if (getParkingSystem(opening) == null) {
+                return;
+            }
+        }
+
+        boolean continueApp = true;
 
         while(continueApp){
             loadMenu();
             int option = inputReaderUtil.readSelection();
+            ParkingSystem parkingSystem = getParkingSystem(opening);
+            if (parkingSystem == null) {
+                return;
+            }
+            ParkingService parkingService = parkingSystem.getParkingService();
             switch(option){
                 case 1: {
                     parkingService.processIncomingVehicle();
@@ -34,6 +52,7 @@ public class InteractiveShell {
                 }
                 case 3: {
                     System.out.println("Exiting from the system!");
+                    parkingSystem.close();
                     continueApp = false;
                     break;
                 }
@@ -42,6 +61,26 @@ public class InteractiveShell {
         }
     }
 
+    //the console is the gate of one lot: gate.lot, or the first of lots
+    private static DataBaseConfig gateDataBaseConfig() {
+        LotRouter lotRouter = LotRouter.fromProperties();
+        String lotId = DataBaseConfig.getProperty("gate.lot");
+        return lotRouter.getDataBaseConfig((lotId == null || lotId.trim().isEmpty()) ? lotRouter.getLotIds().get(0) : lotId.trim());
+    }
+
+    private static ParkingSystem getParkingSystem(FutureTask<ParkingSystem> opening) {
+        try {
+            return opening.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.error("Unable to start parking system", e.getCause());
+            System.out.println("Unable to prepare the database. Shutting down");
+            return null;
+        }
+    }
+
     private static void loadMenu(){
         System.out.println("Please select an option. Simply enter the number to choose an action");
         System.out.println("1 New Vehicle Entering - Allocate Parking Space");
@@ -0,0 +1,283 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OccupancyEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes the occupancy changes of a lot to displays and dashboards instead of having them poll the parking table.
+ * Submitted events are fanned out by one dispatcher thread, so a gate only pays for queuing its event whatever the
+ * number of subscribers. Each subscriber has its own buffer of bufferSize events, delivered on a pool thread as it
+ * requests them; when a slow subscriber lets its buffer fill up, the buffered events are dropped and replaced by the
+ * latest free spots of each ParkingType (COUNT events), so it skips the stale changes but always ends on the current
+ * counts. A new subscriber first gets the current counts.
+ */
+public class OccupancyPublisher implements Flow.Publisher<OccupancyEvent>, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyPublisher");
+
+    private final int bufferSize;
+    private final ExecutorService dispatcher;
+    private final ExecutorService deliveries;
+    private final List<OccupancySubscription> subscriptions = new CopyOnWriteArrayList<>();
+    //latest COUNT of each ParkingType, only touched by the dispatcher thread
+    private final OccupancyEvent[] counts = new OccupancyEvent[ParkingType.values().length];
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param bufferSize events kept for each subscriber, more than the number of ParkingType
+     */
+    public OccupancyPublisher(int bufferSize) {
+        if (bufferSize <= counts.length) {
+            throw new IllegalArgumentException("Buffer of " + bufferSize + " events cannot hold the count of every ParkingType");
+        }
+        this.bufferSize = bufferSize;
+        this.dispatcher = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "occupancy-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger deliveryCount = new AtomicInteger();
+        this.deliveries = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "occupancy-delivery-" + deliveryCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues an event for every subscriber. Events are delivered in the order they are submitted, so callers
+     * submitting from several threads must read the free spots and submit under one lock.
+     */
+    public void submit(OccupancyEvent event) {
+        if (closed) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> dispatch(event));
+        } catch (RejectedExecutionException e) {
+            //closed meanwhile
+        }
+    }
+
+    private void dispatch(OccupancyEvent event) {
+        counts[event.getParkingType().ordinal()] = event.toCount();
+        for (OccupancySubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super OccupancyEvent> subscriber) {
+        Objects.requireNonNull(subscriber);
+        OccupancySubscription subscription = new OccupancySubscription(subscriber);
+        if (!closed) {
+            try {
+                dispatcher.execute(() -> {
+                    for (OccupancyEvent count : counts) {
+                        if (count != null) {
+                            subscription.offer(count);
+                        }
+                    }
+                    subscriptions.add(subscription);
+                    subscription.signal();
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                //closed meanwhile
+            }
+        }
+        subscriber.onSubscribe(subscription);
+        subscriber.onComplete();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * @return events dropped for slow subscribers and replaced by counts
+     */
+    public long getCoalescedEvents() {
+        return coalescedEvents.get();
+    }
+
+    /**
+     * Completes the subscriptions once their buffered events are delivered; the delivery threads stop after the
+     * last one is done.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        dispatcher.execute(() -> {
+            for (OccupancySubscription subscription : subscriptions) {
+                subscription.complete();
+            }
+        });
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shutdownIfDone();
+    }
+
+    private void shutdownIfDone() {
+        if (closed && subscriptions.isEmpty()) {
+            deliveries.shutdown();
+        }
+    }
+
+    private final class OccupancySubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super OccupancyEvent> subscriber;
+        //delivery runs on one pool thread at a time, scheduled by the signal that finds no delivery running
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        //guarded by this
+        private final ArrayDeque<OccupancyEvent> buffer = new ArrayDeque<>();
+        private long demand;
+        private boolean cancelled;
+        private boolean completed;
+        private Throwable error;
+        //only touched by the delivering thread
+        private boolean subscribed;
+
+        OccupancySubscription(Flow.Subscriber<? super OccupancyEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        //called by the dispatcher thread only
+        void offer(OccupancyEvent event) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (buffer.size() < bufferSize) {
+                    buffer.add(event);
+                } else {
+                    //counts already include this event
+                    coalescedEvents.addAndGet(buffer.size() + 1);
+                    buffer.clear();
+                    for (OccupancyEvent count : counts) {
+                        if (count != null) {
+                            buffer.add(count);
+                        }
+                    }
+                }
+            }
+            signal();
+        }
+
+        void complete() {
+            synchronized (this) {
+                completed = true;
+            }
+            signal();
+        }
+
+        void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                try {
+                    deliveries.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    if (error == null) {
+                        error = new IllegalArgumentException("Requested " + n + " events, the request must be positive");
+                    }
+                } else {
+                    demand += n;
+                    if (demand < 0) {
+                        demand = Long.MAX_VALUE;
+                    }
+                }
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+            }
+            subscriptions.remove(this);
+            shutdownIfDone();
+        }
+
+        @Override
+        public void run() {
+            int signals = 1;
+            do {
+                try {
+                    deliver();
+                } catch (RuntimeException e) {
+                    logger.error("Occupancy subscriber failed, it is unsubscribed", e);
+                    cancel();
+                }
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+
+        private void deliver() {
+            if (!subscribed) {
+                subscribed = true;
+                subscriber.onSubscribe(this);
+            }
+            while (true) {
+                OccupancyEvent event = null;
+                Throwable failure;
+                synchronized (this) {
+                    if (cancelled) {
+                        return;
+                    }
+                    failure = error;
+                    if (failure == null) {
+                        event = (demand > 0) ? buffer.poll() : null;
+                        if (event != null) {
+                            demand--;
+                        } else if (!completed || !buffer.isEmpty()) {
+                            return;
+                        }
+                    }
+                }
+                if (event != null) {
+                    subscriber.onNext(event);
+                    continue;
+                }
+                cancel();
+                if (failure != null) {
+                    subscriber.onError(failure);
+                } else {
+                    subscriber.onComplete();
+                }
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the vehicles currently parked, so an exit finds its open ticket without querying the ticket table.
+ * Plates are packed into longs by PlateCodec and point to a row of primitive arrays; the rare plate
+ * that cannot be packed goes to a plain map.
+ */
+public class OpenSessionIndex {
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+    private static final int NO_ROW = -1;
+
+    private final LongIntHashMap rowsByPlate;
+    private final Map<String, Integer> rowsByUnencodedPlate = new HashMap<>();
+
+    private int[] ticketIds;
+    private int[] parkingNumbers;
+    private byte[] parkingTypes;
+    private long[] inTimes;
+
+    private int[] freeRows;
+    private int freeRowCount;
+    private int rowCount;
+
+    public OpenSessionIndex(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        rowsByPlate = new LongIntHashMap(capacity, NO_ROW);
+        ticketIds = new int[capacity];
+        parkingNumbers = new int[capacity];
+        parkingTypes = new byte[capacity];
+        inTimes = new long[capacity];
+        freeRows = new int[capacity];
+    }
+
+    public static OpenSessionIndex load(TicketDAO ticketDAO) {
+        return load(ticketDAO.getOpenTickets());
+    }
+
+    public static OpenSessionIndex load(List<Ticket> openTickets) {
+        OpenSessionIndex openSessionIndex = new OpenSessionIndex(openTickets.size());
+        for (Ticket ticket : openTickets) {
+            openSessionIndex.put(ticket);
+        }
+        return openSessionIndex;
+    }
+
+    /**
+     * @return false, leaving the index unchanged, if this vehicle already has an open session
+     */
+    public synchronized boolean putIfAbsent(Ticket ticket) {
+        if (findRow(ticket.getVehicleRegNumber()) != NO_ROW) {
+            return false;
+        }
+        put(ticket);
+        return true;
+    }
+
+    public synchronized void put(Ticket ticket) {
+        String vehicleRegNumber = ticket.getVehicleRegNumber();
+        int row = findRow(vehicleRegNumber);
+        if (row == NO_ROW) {
+            row = newRow();
+            long key = PlateCodec.encode(vehicleRegNumber);
+            if (key == PlateCodec.NOT_ENCODABLE) {
+                rowsByUnencodedPlate.put(vehicleRegNumber.toUpperCase(), row);
+            } else {
+                rowsByPlate.put(key, row);
+            }
+        }
+        ticketIds[row] = ticket.getId();
+        parkingNumbers[row] = ticket.getParkingSpot().getId();
+        parkingTypes[row] = (byte) ticket.getParkingSpot().getParkingType().ordinal();
+        inTimes[row] = ticket.getInTime().getTime();
+    }
+
+    /**
+     * @return a new open ticket for this plate, or null if the vehicle is not parked
+     */
+    public synchronized Ticket get(String vehicleRegNumber) {
+        int row = findRow(vehicleRegNumber);
+        if (row == NO_ROW) {
+            return null;
+        }
+        Ticket ticket = new Ticket();
+        ticket.setId(ticketIds[row]);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumbers[row], PARKING_TYPES[parkingTypes[row]], false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(new Date(inTimes[row]));
+        return ticket;
+    }
+
+    public synchronized boolean contains(String vehicleRegNumber) {
+        return findRow(vehicleRegNumber) != NO_ROW;
+    }
+
+    /**
+     * Takes the vehicle out of the index, only one of several threads removing the same plate gets its ticket.
+     * @return the open ticket, as get would return it, or null if the vehicle is not parked
+     */
+    public synchronized Ticket remove(String vehicleRegNumber) {
+        Ticket ticket = get(vehicleRegNumber);
+        if (ticket == null) {
+            return null;
+        }
+        long key = PlateCodec.encode(vehicleRegNumber);
+        int row;
+        if (key == PlateCodec.NOT_ENCODABLE) {
+            Integer unencodedRow = rowsByUnencodedPlate.remove(vehicleRegNumber.toUpperCase());
+            row = (unencodedRow == null) ? NO_ROW : unencodedRow;
+        } else {
+            row = rowsByPlate.remove(key);
+        }
+        freeRows[freeRowCount++] = row;
+        return ticket;
+    }
+
+    public synchronized int size() {
+        return rowCount - freeRowCount;
+    }
+
+    private int findRow(String vehicleRegNumber) {
+        long key = PlateCodec.encode(vehicleRegNumber);
+        if (key == PlateCodec.NOT_ENCODABLE) {
+            Integer row = rowsByUnencodedPlate.get(vehicleRegNumber.toUpperCase());
+            return (row == null) ? NO_ROW : row;
+        }
+        return rowsByPlate.get(key);
+    }
+
+    private int newRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        if (rowCount == ticketIds.length) {
+            int capacity = rowCount << 1;
+            ticketIds = Arrays.copyOf(ticketIds, capacity);
+            parkingNumbers = Arrays.copyOf(parkingNumbers, capacity);
+            parkingTypes = Arrays.copyOf(parkingTypes, capacity);
+            inTimes = Arrays.copyOf(inTimes, capacity);
+            freeRows = Arrays.copyOf(freeRows, capacity);
+        }
+        return rowCount++;
+    }
+}
@@ -1,59 +1,268 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriter;
+import com.parkit.parkingsystem.metrics.GateOperationEvent;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import com.parkit.parkingsystem.model.OccupancyEvent;
 import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Date;
+import java.util.List;
 
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
-    private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private static final String METRICS_NAME = "ParkingService";
+
+    private OperationStats incomingStats = Metrics.operation(METRICS_NAME + ".processIncomingVehicle");
+    private OperationStats parkVehicleStats = Metrics.operation(METRICS_NAME + ".parkVehicle");
+    private OperationStats exitingStats = Metrics.operation(METRICS_NAME + ".processExitingVehicle");
+    private String eventLotId;
 
     private InputReaderUtil inputReaderUtil;
     private ParkingSpotDAO parkingSpotDAO;
     private  TicketDAO ticketDAO;
+    private ParkingSpotAllocator parkingSpotAllocator;
+    private OpenSessionIndex openSessionIndex;
+    private TicketWriter ticketWriter;
+    private FareCalculatorService fareCalculatorService = new FareCalculatorService();
+    private VisitCountIndex visitCountIndex;
+    private int recurringUserMinVisits;
+    private TariffFile tariffFile;
+    private OccupancyPublisher occupancyPublisher;
+    private ReservationDAO reservationDAO;
+    private SpotReservations spotReservations;
+    private String lotId;
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, ParkingSpotAllocator.load(parkingSpotDAO), OpenSessionIndex.load(ticketDAO));
+    }
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO,
+                          ParkingSpotAllocator parkingSpotAllocator, OpenSessionIndex openSessionIndex){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.parkingSpotAllocator = parkingSpotAllocator;
+        this.openSessionIndex = openSessionIndex;
+        this.ticketWriter = ticketDAO;
+        this.lotId = parkingSpotDAO.getLotId();
+        this.eventLotId = lotId;
+    }
+
+    /**
+     * Records the operations of this gate under name instead of ParkingService, and labels its Flight Recorder
+     * events with name instead of the lot id, e.g. to keep a scratch gate out of the figures of the real ones.
+     */
+    public void setMetricsName(String name) {
+        this.incomingStats = Metrics.operation(name + ".processIncomingVehicle");
+        this.parkVehicleStats = Metrics.operation(name + ".parkVehicle");
+        this.exitingStats = Metrics.operation(name + ".processExitingVehicle");
+        this.eventLotId = name;
+    }
+
+    /**
+     * Replaces the per vehicle transactions of TicketDAO, e.g. to buffer the writes of a bulk replay.
+     */
+    public void setTicketWriter(TicketWriter ticketWriter) {
+        this.ticketWriter = ticketWriter;
+    }
+
+    /**
+     * Gives the recurring user discount at exit to the plates with at least minVisits closed tickets in the index,
+     * which is then told of every ticket closed here.
+     */
+    public void setVisitCountIndex(VisitCountIndex visitCountIndex, int minVisits) {
+        this.visitCountIndex = visitCountIndex;
+        this.recurringUserMinVisits = minVisits;
+        this.fareCalculatorService = new FareCalculatorService(visitCountIndex, minVisits, tariffFile);
+    }
+
+    /**
+     * Prices the exits with the current tariff of the file instead of the default rates.
+     */
+    public void setTariffFile(TariffFile tariffFile) {
+        this.tariffFile = tariffFile;
+        this.fareCalculatorService = new FareCalculatorService(visitCountIndex, recurringUserMinVisits, tariffFile);
+    }
+
+    /**
+     * Submits every change of occupancy to the publisher, starting with the current free spots of each type.
+     */
+    public void setOccupancyPublisher(OccupancyPublisher occupancyPublisher) {
+        this.occupancyPublisher = occupancyPublisher;
+        for(ParkingType parkingType : ParkingType.values()){
+            publish(OccupancyEvent.Kind.COUNT, parkingType, 0);
+        }
+    }
+
+    public OccupancyPublisher getOccupancyPublisher() {
+        return occupancyPublisher;
+    }
+
+    /**
+     * Enables spot reservations; the ones left in the reservation table are pending again and expire as planned.
+     * @param tickMillis precision of the expiries, expireReservations is expected to be called at this rate
+     */
+    public void loadReservations(ReservationDAO reservationDAO, long tickMillis) {
+        SpotReservations loaded = new SpotReservations(tickMillis, System.currentTimeMillis());
+        for(Reservation reservation : reservationDAO.getReservations()){
+            loaded.add(reservation);
+        }
+        this.reservationDAO = reservationDAO;
+        this.spotReservations = loaded;
     }
 
     public void processIncomingVehicle() {
         try{
             ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
             if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
+                String vehicleRegNumber;
+                try {
+                    vehicleRegNumber = getVehichleRegNumber();
+                } catch (Exception e) {
+                    parkingSpotAllocator.release(parkingSpot);
+                    throw e;
+                }
+                Ticket ticket = parkVehicle(parkingSpot, vehicleRegNumber, new Date());
                 System.out.println("Generated Ticket and saved in DB");
                 System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+ticket.getInTime());
             }
+        }catch(IllegalStateException e){
+            System.out.println(e.getMessage());
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
         }
     }
 
+    /**
+     * Parks a vehicle without console interaction.
+     * @return the saved ticket, or null if no spot of this type is free
+     * @throws IllegalStateException if the vehicle is already parked or the ticket could not be saved
+     */
+    public Ticket processIncomingVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        return processIncomingVehicle(parkingType, vehicleRegNumber, inTime, null);
+    }
+
+    /**
+     * Parks a vehicle without console interaction, on the spot held for it when the reservation code is pending.
+     * An unknown or expired code gets any free spot, as no code does.
+     * @return the saved ticket, or null if no spot of this type is free
+     * @throws IllegalArgumentException if the plate is longer than the ticket table allows or the reservation is for
+     * another type of vehicle
+     * @throws IllegalStateException if the vehicle is already parked or the ticket could not be saved
+     */
+    public Ticket processIncomingVehicle(ParkingType parkingType, String vehicleRegNumber, Date inTime, String reservationCode) {
+        long start = System.nanoTime();
+        GateOperationEvent event = GateOperationEvent.start(GateOperationEvent.ENTRY, eventLotId);
+        event.setParkingType(parkingType.name());
+        try{
+            if(vehicleRegNumber.length() > DBConstants.MAX_VEHICLE_REG_NUMBER_LENGTH){
+                throw new IllegalArgumentException("Vehicle registration number longer than "
+                        + DBConstants.MAX_VEHICLE_REG_NUMBER_LENGTH + " characters:" + vehicleRegNumber);
+            }
+            Reservation reservation = takeReservation(reservationCode, parkingType);
+            Ticket ticket;
+            if(reservation != null){
+                ticket = parkReservedVehicle(reservation, vehicleRegNumber, inTime);
+            }else{
+                int parkingNumber = parkingSpotAllocator.claim(parkingType);
+                if(parkingNumber <= 0){
+                    event.setOutcome(GateOperationEvent.FULL);
+                    return null;
+                }
+                ticket = parkVehicle(new ParkingSpot(parkingNumber, parkingType, true), vehicleRegNumber, inTime);
+            }
+            event.setParkingNumber(ticket.getParkingSpot().getId());
+            event.setOutcome(GateOperationEvent.OK);
+            return ticket;
+        }catch(RuntimeException e){
+            incomingStats.error();
+            throw e;
+        }finally {
+            incomingStats.record(start);
+            event.commit();
+        }
+    }
+
+    private Reservation takeReservation(String reservationCode, ParkingType parkingType) {
+        if(reservationCode == null || spotReservations == null){
+            return null;
+        }
+        Reservation reservation = spotReservations.remove(reservationCode);
+        if(reservation != null && reservation.getParkingSpot().getParkingType() != parkingType){
+            spotReservations.add(reservation);
+            throw new IllegalArgumentException("Reservation " + reservation.getCode() + " is for a "
+                    + reservation.getParkingSpot().getParkingType() + " spot");
+        }
+        return reservation;
+    }
+
+    private Ticket parkReservedVehicle(Reservation reservation, String vehicleRegNumber, Date inTime) {
+        ParkingSpot parkingSpot = new ParkingSpot(reservation.getParkingSpot().getId(), reservation.getParkingSpot().getParkingType(), true);
+        Ticket ticket;
+        try{
+            ticket = parkVehicle(parkingSpot, vehicleRegNumber, inTime);
+        }catch(RuntimeException e){
+            //the spot went back to the allocator, free it in the table as well
+            reservationDAO.releaseReservation(reservation);
+            throw e;
+        }
+        //a reservation row left by a failure here is expired at the next start without freeing the occupied spot
+        reservationDAO.deleteReservation(reservation.getCode());
+        return ticket;
+    }
+
+    private Ticket parkVehicle(ParkingSpot parkingSpot, String vehicleRegNumber, Date inTime) {
+        long start = System.nanoTime();
+        try{
+            return saveIncomingTicket(parkingSpot, vehicleRegNumber, inTime);
+        }catch(RuntimeException e){
+            parkVehicleStats.error();
+            throw e;
+        }finally {
+            parkVehicleStats.record(start);
+        }
+    }
+
+    private Ticket saveIncomingTicket(ParkingSpot parkingSpot, String vehicleRegNumber, Date inTime) {
+        Ticket ticket = new Ticket();
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        parkingSpot.setLotId(lotId);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setLotId(lotId);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(inTime);
+        ticket.setOutTime(null);
+        //the index entry is taken first so that two gates cannot park the same vehicle
+        if(!openSessionIndex.putIfAbsent(ticket)){
+            parkingSpotAllocator.release(parkingSpot);
+            throw new IllegalStateException("Vehicle number:"+vehicleRegNumber+" is already parked");
+        }
+        if(!ticketWriter.saveTicketAndOccupySpot(ticket)){//allot this parking space and save the ticket in one transaction
+            openSessionIndex.remove(vehicleRegNumber);
+            parkingSpotAllocator.release(parkingSpot);
+            throw new IllegalStateException("Unable to save ticket information. Error occurred");
+        }
+        openSessionIndex.put(ticket);
+        publish(OccupancyEvent.Kind.ENTRY, parkingSpot.getParkingType(), parkingSpot.getId());
+        return ticket;
+    }
+
     private String getVehichleRegNumber() throws Exception {
         System.out.println("Please type the vehicle registration number and press enter key");
         return inputReaderUtil.readVehicleRegistrationNumber();
@@ -64,11 +273,12 @@ public class ParkingService {
         ParkingSpot parkingSpot = null;
         try{
             ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            parkingNumber = parkingSpotAllocator.claim(parkingType);
             if(parkingNumber > 0){
                 parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
             }else{
-                throw new Exception("Error fetching parking number from DB. Parking slots might be full");
+                //a full lot is an expected answer, not an error
+                System.out.println("Parking slots are full for vehicle type:" + parkingType);
             }
         }catch(IllegalArgumentException ie){
             logger.error("Error parsing user input for type of vehicle", ie);
@@ -100,21 +310,189 @@ public class ParkingService {
     public void processExitingVehicle() {
         try{
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
+            Ticket ticket = processExitingVehicle(vehicleRegNumber, new Date());
+            System.out.println("Please pay the parking fare:" + ticket.getPrice());
+            System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
+        }catch(IllegalStateException e){
+            System.out.println(e.getMessage());
+        }catch(Exception e){
+            logger.error("Unable to process exiting vehicle",e);
+        }
+    }
+
+    /**
+     * Closes the open ticket of a vehicle without console interaction.
+     * @return the closed ticket with its price
+     * @throws IllegalStateException if the vehicle has no open ticket or the ticket could not be updated
+     */
+    public Ticket processExitingVehicle(String vehicleRegNumber, Date outTime) {
+        long start = System.nanoTime();
+        GateOperationEvent event = GateOperationEvent.start(GateOperationEvent.EXIT, eventLotId);
+        try{
+            Ticket ticket = closeTicket(vehicleRegNumber, outTime);
+            event.setParkingType(ticket.getParkingSpot().getParkingType().name());
+            event.setParkingNumber(ticket.getParkingSpot().getId());
+            event.setOutcome(GateOperationEvent.OK);
+            return ticket;
+        }catch(RuntimeException e){
+            exitingStats.error();
+            throw e;
+        }finally {
+            exitingStats.record(start);
+            event.commit();
+        }
+    }
+
+    private Ticket closeTicket(String vehicleRegNumber, Date outTime) {
+        //taking the session out of the index claims the exit, a second lane exiting the same vehicle finds nothing
+        Ticket ticket = openSessionIndex.remove(vehicleRegNumber);
+        boolean claimed = (ticket != null);
+        if(!claimed){
+            //not entered through this process, e.g. by another gate sharing the database,
+            //UPDATE_TICKET only closes it if no other gate did meanwhile
+            ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if(ticket == null){
+                throw new IllegalStateException("No parked vehicle found for vehicle number:" + vehicleRegNumber);
+            }
+        }
+        try{
+            ticket.setLotId(lotId);
+            ticket.getParkingSpot().setLotId(lotId);
             ticket.setOutTime(outTime);
             fareCalculatorService.calculateFare(ticket);
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
-            }else{
-                System.out.println("Unable to update ticket information. Error occurred");
+            if(!ticketWriter.updateTicketAndFreeSpot(ticket)) {
+                throw new IllegalStateException("Unable to update ticket information. Error occurred");
             }
-        }catch(Exception e){
-            logger.error("Unable to process exiting vehicle",e);
+        }catch(RuntimeException e){
+            if(claimed){
+                openSessionIndex.put(ticket);
+            }
+            throw e;
+        }
+        parkingSpotAllocator.release(ticket.getParkingSpot());
+        publish(OccupancyEvent.Kind.EXIT, ticket.getParkingSpot().getParkingType(), ticket.getParkingSpot().getId());
+        if(visitCountIndex != null){
+            visitCountIndex.recordVisit(vehicleRegNumber);
+        }
+        return ticket;
+    }
+
+    /**
+     * Holds a free spot of this type for a pre-booked customer until expiresAt.
+     * @return the reservation, or null if no spot of this type is free
+     * @throws IllegalArgumentException if expiresAt is not in the future
+     * @throws IllegalStateException if reservations are not enabled or the reservation could not be saved
+     */
+    public Reservation reserveSpot(ParkingType parkingType, Date expiresAt) {
+        if(spotReservations == null){
+            throw new IllegalStateException("Reservations are not enabled");
+        }
+        if(!expiresAt.after(new Date())){
+            throw new IllegalArgumentException("Reservation already expired at " + expiresAt);
+        }
+        int parkingNumber = parkingSpotAllocator.claim(parkingType);
+        if(parkingNumber <= 0){
+            return null;
+        }
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false);
+        parkingSpot.setLotId(lotId);
+        Reservation reservation = new Reservation(spotReservations.newCode(), parkingSpot, expiresAt);
+        if(!reservationDAO.saveReservation(reservation)){
+            parkingSpotAllocator.release(parkingSpot);
+            throw new IllegalStateException("Unable to save reservation. Error occurred");
+        }
+        spotReservations.add(reservation);
+        publish(OccupancyEvent.Kind.RESERVED, parkingType, parkingNumber);
+        return reservation;
+    }
+
+    /**
+     * @return false if no reservation with this code is pending
+     */
+    public boolean cancelReservation(String reservationCode) {
+        Reservation reservation = (spotReservations == null) ? null : spotReservations.remove(reservationCode);
+        if(reservation == null){
+            return false;
+        }
+        releaseReservation(reservation);
+        return true;
+    }
+
+    /**
+     * Gives the spots of the reservations expired by now back to the allocator, called every tick by ParkingSystem.
+     * @return the number of reservations expired
+     */
+    public int expireReservations() {
+        if(spotReservations == null){
+            return 0;
+        }
+        List<Reservation> expired = spotReservations.expire(System.currentTimeMillis());
+        for(Reservation reservation : expired){
+            releaseReservation(reservation);
+        }
+        return expired.size();
+    }
+
+    public int getPendingReservations() {
+        return (spotReservations == null) ? 0 : spotReservations.size();
+    }
+
+    private void releaseReservation(Reservation reservation) {
+        if(reservationDAO.releaseReservation(reservation)){
+            parkingSpotAllocator.release(reservation.getParkingSpot());
+            publish(OccupancyEvent.Kind.RELEASED, reservation.getParkingSpot().getParkingType(), reservation.getParkingSpot().getId());
+        }else{
+            logger.warn("Spot " + reservation.getParkingSpot().getId() + " of reservation " + reservation.getCode() + " was not freed");
+        }
+    }
+
+    public String getLotId() {
+        return lotId;
+    }
+
+    public int getFreeSpots(ParkingType parkingType) {
+        return parkingSpotAllocator.getFreeSpots(parkingType);
+    }
+
+    public int getTotalSpots(ParkingType parkingType) {
+        return parkingSpotAllocator.getTotalSpots(parkingType);
+    }
+
+    public int getOccupiedSpots(ParkingType parkingType) {
+        return parkingSpotAllocator.getOccupiedSpots(parkingType);
+    }
+
+    /**
+     * @return how many vehicles of this type were turned away because the lot was full
+     */
+    public long getRejectedVehicles(ParkingType parkingType) {
+        return parkingSpotAllocator.getRejectedClaims(parkingType);
+    }
+
+    /**
+     * Corrects the free spot counters from the parking table, see ParkingSpotAllocator.reconcile.
+     * @return the number of spots changed
+     */
+    public synchronized int reconcileOccupancy() {
+        int changed = parkingSpotAllocator.reconcile(parkingSpotDAO.getParkingSpots());
+        if(changed > 0){
+            logger.warn("Occupancy reconciled with the parking table, " + changed + " spots changed");
+            for(ParkingType parkingType : ParkingType.values()){
+                publish(OccupancyEvent.Kind.COUNT, parkingType, 0);
+            }
+        }
+        return changed;
+    }
+
+    private void publish(OccupancyEvent.Kind kind, ParkingType parkingType, int parkingNumber) {
+        OccupancyPublisher publisher = occupancyPublisher;
+        if(publisher == null){
+            return;
+        }
+        //the counts are read and submitted under one lock, so that the last event always carries the current counts
+        synchronized (publisher) {
+            publisher.submit(new OccupancyEvent(kind, lotId, parkingType, parkingNumber,
+                    getFreeSpots(parkingType), getTotalSpots(parkingType), System.currentTimeMillis()));
         }
     }
 }
@@ -0,0 +1,177 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory view of the free parking spots, one bitset per parking type.
+ * Spots are claimed and released with CAS on the bitset words so concurrent gates never get the same spot.
+ * A free spot counter is kept next to each bitset, so a full lot is turned away with one volatile read.
+ * The parking table is read at startup and by reconcile, callers write every claim and release through to the DAO.
+ */
+public class ParkingSpotAllocator {
+
+    private final Map<ParkingType, SpotSet> spotSets = new EnumMap<>(ParkingType.class);
+
+    public ParkingSpotAllocator(List<ParkingSpot> parkingSpots) {
+        for (ParkingType parkingType : ParkingType.values()) {
+            spotSets.put(parkingType, new SpotSet(parkingType, parkingSpots));
+        }
+    }
+
+    public static ParkingSpotAllocator load(ParkingSpotDAO parkingSpotDAO) {
+        return new ParkingSpotAllocator(parkingSpotDAO.getParkingSpots());
+    }
+
+    /**
+     * Aligns the bitsets on the parking table, for spots changed by another process or a failed write.
+     * A spot the table shows as taken is taken at once. A spot the table shows as free while it is taken here
+     * is only freed when two reconciliations in a row see it so, a write in flight must not free a spot.
+     * Must not be called concurrently with itself.
+     * @return the number of spots changed
+     */
+    public int reconcile(List<ParkingSpot> parkingSpots) {
+        int changed = 0;
+        for (ParkingSpot parkingSpot : parkingSpots) {
+            if (spotSets.get(parkingSpot.getParkingType()).reconcile(parkingSpot.getId(), parkingSpot.isAvailable())) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return the lowest free spot number for this type, now marked as taken, or -1 if none is free
+     */
+    public int claim(ParkingType parkingType) {
+        return spotSets.get(parkingType).claim();
+    }
+
+    /**
+     * @return true if the spot was taken and is now free again
+     */
+    public boolean release(ParkingSpot parkingSpot) {
+        return spotSets.get(parkingSpot.getParkingType()).release(parkingSpot.getId());
+    }
+
+    public int getFreeSpots(ParkingType parkingType) {
+        return spotSets.get(parkingType).freeCount.get();
+    }
+
+    public int getOccupiedSpots(ParkingType parkingType) {
+        return getTotalSpots(parkingType) - getFreeSpots(parkingType);
+    }
+
+    /**
+     * @return how many claims found no free spot since startup
+     */
+    public long getRejectedClaims(ParkingType parkingType) {
+        return spotSets.get(parkingType).rejectedClaims.sum();
+    }
+
+    public int getTotalSpots(ParkingType parkingType) {
+        return spotSets.get(parkingType).spotNumbers.length;
+    }
+
+    private static final class SpotSet {
+
+        //sorted spot numbers, bit i of the bitset stands for spotNumbers[i]
+        private final int[] spotNumbers;
+        private final AtomicLongArray freeBits;
+        //number of set bits, moved right after each bit flip
+        private final AtomicInteger freeCount = new AtomicInteger();
+        private final LongAdder rejectedClaims = new LongAdder();
+        //free in the parking table but taken here at the previous reconciliation
+        private final boolean[] freeInTable;
+
+        private SpotSet(ParkingType parkingType, List<ParkingSpot> parkingSpots) {
+            spotNumbers = parkingSpots.stream()
+                    .filter(spot -> spot.getParkingType() == parkingType)
+                    .mapToInt(ParkingSpot::getId)
+                    .sorted()
+                    .toArray();
+            freeBits = new AtomicLongArray((spotNumbers.length + 63) >>> 6);
+            freeInTable = new boolean[spotNumbers.length];
+            for (ParkingSpot spot : parkingSpots) {
+                if (spot.getParkingType() == parkingType && spot.isAvailable()) {
+                    setFree(Arrays.binarySearch(spotNumbers, spot.getId()));
+                }
+            }
+        }
+
+        private int claim() {
+            //full lot: no bitset scan, no allocation
+            if (freeCount.get() > 0) {
+                for (int w = 0; w < freeBits.length(); w++) {
+                    long word;
+                    while ((word = freeBits.get(w)) != 0) {
+                        long lowest = Long.lowestOneBit(word);
+                        if (freeBits.compareAndSet(w, word, word & ~lowest)) {
+                            freeCount.decrementAndGet();
+                            return spotNumbers[(w << 6) + Long.numberOfTrailingZeros(lowest)];
+                        }
+                    }
+                }
+            }
+            rejectedClaims.increment();
+            return -1;
+        }
+
+        private boolean release(int spotNumber) {
+            int index = Arrays.binarySearch(spotNumbers, spotNumber);
+            return index >= 0 && setFree(index);
+        }
+
+        private boolean setFree(int index) {
+            long bit = 1L << index;
+            long previous = freeBits.getAndAccumulate(index >>> 6, bit, (word, b) -> word | b);
+            if ((previous & bit) != 0) {
+                return false;
+            }
+            freeCount.incrementAndGet();
+            return true;
+        }
+
+        private boolean setTaken(int index) {
+            long bit = 1L << index;
+            long previous = freeBits.getAndAccumulate(index >>> 6, bit, (word, b) -> word & ~b);
+            if ((previous & bit) == 0) {
+                return false;
+            }
+            freeCount.decrementAndGet();
+            return true;
+        }
+
+        private boolean reconcile(int spotNumber, boolean availableInTable) {
+            int index = Arrays.binarySearch(spotNumbers, spotNumber);
+            if (index < 0) {
+                //added to the table after startup
+                return false;
+            }
+            boolean free = (freeBits.get(index >>> 6) & (1L << index)) != 0;
+            if (!availableInTable) {
+                freeInTable[index] = false;
+                return free && setTaken(index);
+            }
+            if (free) {
+                freeInTable[index] = false;
+                return false;
+            }
+            if (!freeInTable[index]) {
+                freeInTable[index] = true;
+                return false;
+            }
+            freeInTable[index] = false;
+            return setFree(index);
+        }
+    }
+}
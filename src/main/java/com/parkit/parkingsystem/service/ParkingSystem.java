@@ -0,0 +1,210 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.dao.JournalFlusher;
+import com.parkit.parkingsystem.dao.JournalTicketWriter;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.metrics.MetricsReporter;
+import com.parkit.parkingsystem.model.SpotInventory;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wires a ParkingService on a migrated database, with the write-behind ticket journal when journal.file is set
+ * and the periodic metrics dump and occupancy reconciliation when their interval is positive.
+ * The spots and open tickets are read in one query; with startup.fast the gate is then warmed up in the background.
+ * Visit counts are loaded for the recurring user discount when fare.recurringUserMinVisits is positive,
+ * and spot reservations expire on the maintenance thread every reservation.tickMillis when it is positive.
+ * Exits are priced with fare.tariffFile when it is set, compiled again when it is modified.
+ * Occupancy changes are published to subscribers buffering up to occupancy.streamBufferSize events, 0 disables it.
+ * The lots of a LotRouter each get their own ParkingSystem, and journal file suffixed with the lot id.
+ */
+public class ParkingSystem implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingSystem");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final ParkingService parkingService;
+    private final TicketJournal ticketJournal;
+    private final JournalFlusher journalFlusher;
+    private MetricsReporter metricsReporter;
+    private OccupancyPublisher occupancyPublisher;
+    private ScheduledExecutorService maintenance;
+    private Thread warmup;
+
+    private ParkingSystem(DataBaseConfig dataBaseConfig, ParkingService parkingService, TicketJournal ticketJournal, JournalFlusher journalFlusher) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.parkingService = parkingService;
+        this.ticketJournal = ticketJournal;
+        this.journalFlusher = journalFlusher;
+    }
+
+    public static ParkingSystem open(DataBaseConfig dataBaseConfig, InputReaderUtil inputReaderUtil) throws Exception {
+        return open(dataBaseConfig, inputReaderUtil, true);
+    }
+
+    /**
+     * @return a ParkingSystem per lot of the router, in its order; the metrics, shared by the lots, are dumped by the first
+     */
+    public static List<ParkingSystem> openLots(LotRouter lotRouter, InputReaderUtil inputReaderUtil) throws Exception {
+        List<ParkingSystem> parkingSystems = new ArrayList<>();
+        try {
+            for (String lotId : lotRouter.getLotIds()) {
+                parkingSystems.add(open(lotRouter.getDataBaseConfig(lotId), inputReaderUtil, parkingSystems.isEmpty()));
+            }
+        } catch (Exception e) {
+            parkingSystems.forEach(ParkingSystem::close);
+            throw e;
+        }
+        return parkingSystems;
+    }
+
+    private static ParkingSystem open(DataBaseConfig dataBaseConfig, InputReaderUtil inputReaderUtil, boolean dumpMetrics) throws Exception {
+        ParkingSystem parkingSystem = create(dataBaseConfig, inputReaderUtil);
+        long dumpInterval = Long.parseLong(DataBaseConfig.getProperty("metrics.dumpIntervalSeconds"));
+        if (dumpMetrics && dumpInterval > 0) {
+            String dumpFile = DataBaseConfig.getProperty("metrics.dumpFile");
+            parkingSystem.metricsReporter = new MetricsReporter(isBlank(dumpFile) ? null : Paths.get(dumpFile), dumpInterval);
+            parkingSystem.metricsReporter.start();
+        }
+        ParkingService parkingService = parkingSystem.parkingService;
+        long reconcileInterval = Long.parseLong(DataBaseConfig.getProperty("occupancy.reconcileIntervalSeconds"));
+        if (reconcileInterval > 0) {
+            parkingSystem.maintenance().scheduleWithFixedDelay(parkingService::reconcileOccupancy, reconcileInterval, reconcileInterval, TimeUnit.SECONDS);
+        }
+        TariffFile tariffFile = TariffFile.fromProperties();
+        if (tariffFile != null) {
+            parkingService.setTariffFile(tariffFile);
+            long tariffReloadInterval = Long.parseLong(DataBaseConfig.getProperty("fare.tariffReloadSeconds"));
+            if (tariffReloadInterval > 0) {
+                parkingSystem.maintenance().scheduleWithFixedDelay(tariffFile::reloadIfChanged, tariffReloadInterval, tariffReloadInterval, TimeUnit.SECONDS);
+            }
+        }
+        int streamBufferSize = Integer.parseInt(DataBaseConfig.getProperty("occupancy.streamBufferSize"));
+        if (streamBufferSize > 0) {
+            parkingSystem.occupancyPublisher = new OccupancyPublisher(streamBufferSize);
+            parkingService.setOccupancyPublisher(parkingSystem.occupancyPublisher);
+        }
+        long reservationTick = Long.parseLong(DataBaseConfig.getProperty("reservation.tickMillis"));
+        if (reservationTick > 0) {
+            parkingService.loadReservations(new ReservationDAO(dataBaseConfig), reservationTick);
+            parkingSystem.maintenance().scheduleAtFixedRate(parkingService::expireReservations, reservationTick, reservationTick, TimeUnit.MILLISECONDS);
+        }
+        if (Boolean.parseBoolean(DataBaseConfig.getProperty("startup.fast"))) {
+            int iterations = Integer.parseInt(DataBaseConfig.getProperty("startup.warmupIterations"));
+            parkingSystem.warmup = new Thread(new ParkingWarmup(dataBaseConfig, iterations), "parking-warmup");
+            parkingSystem.warmup.setDaemon(true);
+            parkingSystem.warmup.start();
+        }
+        return parkingSystem;
+    }
+
+    private ScheduledExecutorService maintenance() {
+        if (maintenance == null) {
+            maintenance = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "parking-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return maintenance;
+    }
+
+    private static ParkingSystem create(DataBaseConfig dataBaseConfig, InputReaderUtil inputReaderUtil) throws Exception {
+        new DataBaseMigration(dataBaseConfig).migrate();
+        String journalFile = DataBaseConfig.getProperty("journal.file");
+        if (isBlank(journalFile)) {
+            return new ParkingSystem(dataBaseConfig, createParkingService(dataBaseConfig, inputReaderUtil), null, null);
+        }
+        if (!DataBaseConfig.DEFAULT_LOT.equals(dataBaseConfig.getLotId())) {
+            journalFile = journalFile + "." + dataBaseConfig.getLotId();
+        }
+        TicketJournal ticketJournal = new TicketJournal(Paths.get(journalFile),
+                Integer.parseInt(DataBaseConfig.getProperty("journal.capacity")),
+                Boolean.parseBoolean(DataBaseConfig.getProperty("journal.syncEachAppend")));
+        JournalFlusher journalFlusher = new JournalFlusher(ticketJournal, dataBaseConfig,
+                Integer.parseInt(DataBaseConfig.getProperty("journal.batchSize")),
+                Long.parseLong(DataBaseConfig.getProperty("journal.flushIntervalMillis")));
+        //records left by the previous run must be in the database before the spots and open tickets are loaded
+        int replayed = journalFlusher.drain();
+        logger.info("Replayed " + replayed + " journal records from " + journalFile);
+        ParkingService parkingService = createParkingService(dataBaseConfig, inputReaderUtil);
+        parkingService.setTicketWriter(new JournalTicketWriter(ticketJournal));
+        journalFlusher.start();
+        return new ParkingSystem(dataBaseConfig, parkingService, ticketJournal, journalFlusher);
+    }
+
+    private static ParkingService createParkingService(DataBaseConfig dataBaseConfig, InputReaderUtil inputReaderUtil) {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+        TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
+        SpotInventory spotInventory = parkingSpotDAO.getSpotInventory();
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO,
+                new ParkingSpotAllocator(spotInventory.getParkingSpots()), OpenSessionIndex.load(spotInventory.getOpenTickets()));
+        int recurringUserMinVisits = Integer.parseInt(DataBaseConfig.getProperty("fare.recurringUserMinVisits"));
+        if (recurringUserMinVisits > 0) {
+            parkingService.setVisitCountIndex(VisitCountIndex.load(ticketDAO), recurringUserMinVisits);
+        }
+        return parkingService;
+    }
+
+    private static boolean isBlank(String property) {
+        return property == null || property.trim().isEmpty();
+    }
+
+    public DataBaseConfig getDataBaseConfig() {
+        return dataBaseConfig;
+    }
+
+    public ParkingService getParkingService() {
+        return parkingService;
+    }
+
+    /**
+     * @return true once the background warmup is over, or if there is none
+     */
+    public boolean awaitWarmup(long timeoutMillis) throws InterruptedException {
+        if (warmup != null) {
+            warmup.join(timeoutMillis);
+            return !warmup.isAlive();
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (warmup != null) {
+            warmup.interrupt();
+        }
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        if (occupancyPublisher != null) {
+            occupancyPublisher.close();
+        }
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        if (journalFlusher != null) {
+            journalFlusher.close();
+            try {
+                ticketJournal.close();
+            } catch (IOException e) {
+                logger.error("Error while closing ticket journal", e);
+            }
+        }
+    }
+}
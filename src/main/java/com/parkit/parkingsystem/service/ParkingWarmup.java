@@ -0,0 +1,115 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriter;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Gets a freshly started gate up to speed before the first vehicle: runs entries and exits through a scratch
+ * ParkingService so the JIT compiles them, then opens the pooled connections and prepares the gate statements on each.
+ * Nothing is written: the scratch lot has its own spots and its tickets go to a writer that drops them. The scratch
+ * gate records its operations and Flight Recorder events as ParkingWarmup, apart from the real gates.
+ */
+public class ParkingWarmup implements Runnable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingWarmup");
+
+    private static final long MINUTE = 60 * 1000;
+    private static final int SCRATCH_SPOTS = 64;
+
+    private static final String[] GATE_STATEMENTS = {
+            DBConstants.UPDATE_PARKING_SPOT, DBConstants.SAVE_TICKET, DBConstants.UPDATE_TICKET, DBConstants.GET_TICKET
+    };
+
+    private static final String SCRATCH_METRICS_NAME = "ParkingWarmup";
+
+    private static final TicketWriter DROPPING_WRITER = new TicketWriter() {
+        @Override
+        public boolean saveTicketAndOccupySpot(Ticket ticket) {
+            return true;
+        }
+
+        @Override
+        public boolean updateTicketAndFreeSpot(Ticket ticket) {
+            return true;
+        }
+    };
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int iterations;
+
+    public ParkingWarmup(DataBaseConfig dataBaseConfig, int iterations) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        int vehicles = warmUpGatePaths();
+        int connections = warmUpConnections();
+        logger.info("Warmed up " + vehicles + " scratch vehicles and " + connections + " connections in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    private int warmUpGatePaths() {
+        List<ParkingSpot> scratchSpots = new ArrayList<>();
+        for (int i = 1; i <= SCRATCH_SPOTS; i++) {
+            scratchSpots.add(new ParkingSpot(i, (i % 4 == 0) ? ParkingType.BIKE : ParkingType.CAR, true));
+        }
+        ParkingService scratchGate = new ParkingService(new InputReaderUtil(), new ParkingSpotDAO(dataBaseConfig),
+                new TicketDAO(dataBaseConfig), new ParkingSpotAllocator(scratchSpots), new OpenSessionIndex(SCRATCH_SPOTS));
+        scratchGate.setTicketWriter(DROPPING_WRITER);
+        scratchGate.setMetricsName(SCRATCH_METRICS_NAME);
+        scratchGate.setVisitCountIndex(new VisitCountIndex(iterations), 1);
+        long now = System.currentTimeMillis();
+        int vehicles = 0;
+        for (; vehicles < iterations && !Thread.currentThread().isInterrupted(); vehicles++) {
+            String vehicleRegNumber = "WARMUP" + (vehicles % 100000);
+            ParkingType parkingType = (vehicles % 4 == 0) ? ParkingType.BIKE : ParkingType.CAR;
+            //stays from a few minutes to a few hours go through every fare branch
+            if (scratchGate.processIncomingVehicle(parkingType, vehicleRegNumber, new Date(now - (vehicles % 300) * MINUTE)) != null) {
+                scratchGate.processExitingVehicle(vehicleRegNumber, new Date(now));
+            }
+        }
+        return vehicles;
+    }
+
+    private int warmUpConnections() {
+        //borrowed together so the pool opens minimumIdle connections now instead of on the first vehicles
+        int connections = Integer.parseInt(DataBaseConfig.getProperty("db.pool.minimumIdle"));
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            while (borrowed.size() < connections && !Thread.currentThread().isInterrupted()) {
+                Connection con = dataBaseConfig.getConnection();
+                borrowed.add(con);
+                for (String sql : GATE_STATEMENTS) {
+                    //cached by the driver or the database when closed, the first vehicle does not parse them
+                    con.prepareStatement(sql).close();
+                    logger.debug("Prepared " + sql);
+                }
+            }
+        } catch (SQLException e) {
+            logger.warn("Unable to warm up the connection pool", e);
+        } finally {
+            for (Connection con : borrowed) {
+                dataBaseConfig.closeConnection(con);
+            }
+        }
+        return borrowed.size();
+    }
+}
@@ -0,0 +1,152 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReportPeriod;
+import com.parkit.parkingsystem.model.UsageReport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Reports on the ticket history without loading it: tickets are read from a forward-only cursor with a streaming
+ * fetch size and are either folded into a UsageReport or written to CSV one row at a time.
+ * The tickets are read from the replica when there is one close enough behind the primary.
+ */
+public class ReportService {
+
+    private static final Logger logger = LogManager.getLogger("ReportService");
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int fetchSize;
+    private final ZoneId zoneId;
+
+    public ReportService(DataBaseConfig dataBaseConfig, int fetchSize) {
+        this(dataBaseConfig, fetchSize, ZoneId.systemDefault());
+    }
+
+    public ReportService(DataBaseConfig dataBaseConfig, int fetchSize, ZoneId zoneId) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.fetchSize = fetchSize;
+        this.zoneId = zoneId;
+    }
+
+    /**
+     * @return the closed tickets that arrived between from, inclusive, and to, exclusive
+     */
+    public UsageReport getUsageReport(Date from, Date to) throws SQLException {
+        UsageReport usageReport = new UsageReport(from.getTime(), to.getTime());
+        try (Connection con = dataBaseConfig.getReadConnection();
+             PreparedStatement ps = prepareStreaming(con, DBConstants.GET_CLOSED_TICKETS_BETWEEN, from, to);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                usageReport.add(rs.getTimestamp(1).getTime(), rs.getTimestamp(2).getTime(),
+                        ParkingType.valueOf(rs.getString(3)).ordinal(), rs.getDouble(4));
+            }
+        }
+        logger.info("Usage report built from " + usageReport.getTickets() + " tickets");
+        return usageReport;
+    }
+
+    /**
+     * Writes one line per period and parking type that had visits.
+     */
+    public void writeUsageCsv(UsageReport usageReport, ReportPeriod reportPeriod, Writer writer) throws IOException {
+        writer.write("period,type,visits,revenue,average_dwell_minutes\n");
+        long[] visits = new long[PARKING_TYPES.length];
+        long[] dwellMillis = new long[PARKING_TYPES.length];
+        double[] revenue = new double[PARKING_TYPES.length];
+        String period = null;
+        for (int hour = 0; hour < usageReport.getHours(); hour++) {
+            LocalDateTime hourStart = LocalDateTime.ofInstant(Instant.ofEpochMilli(usageReport.getHourStartMillis(hour)), zoneId);
+            String hourPeriod = (reportPeriod == ReportPeriod.DAY) ? hourStart.toLocalDate().toString() : hourStart.toString();
+            if (!hourPeriod.equals(period)) {
+                writePeriod(writer, period, visits, dwellMillis, revenue);
+                period = hourPeriod;
+            }
+            for (ParkingType parkingType : PARKING_TYPES) {
+                visits[parkingType.ordinal()] += usageReport.getVisits(hour, parkingType);
+                dwellMillis[parkingType.ordinal()] += usageReport.getDwellMillis(hour, parkingType);
+                revenue[parkingType.ordinal()] += usageReport.getRevenue(hour, parkingType);
+            }
+        }
+        writePeriod(writer, period, visits, dwellMillis, revenue);
+        writer.flush();
+    }
+
+    private void writePeriod(Writer writer, String period, long[] visits, long[] dwellMillis, double[] revenue) throws IOException {
+        for (int i = 0; i < PARKING_TYPES.length; i++) {
+            if (visits[i] > 0) {
+                writer.write(String.format(Locale.ROOT, "%s,%s,%d,%.2f,%.1f\n", period, PARKING_TYPES[i], visits[i],
+                        revenue[i], dwellMillis[i] / 60000.0 / visits[i]));
+            }
+            visits[i] = 0;
+            dwellMillis[i] = 0;
+            revenue[i] = 0;
+        }
+    }
+
+    /**
+     * Writes every ticket that arrived between from, inclusive, and to, exclusive, as it is read from the database.
+     * @return the number of tickets written
+     */
+    public long exportTicketsCsv(Date from, Date to, Writer writer) throws SQLException, IOException {
+        long tickets = 0;
+        writer.write("id,vehicle_reg_number,parking_number,type,in_time,out_time,price\n");
+        try (Connection con = dataBaseConfig.getReadConnection();
+             PreparedStatement ps = prepareStreaming(con, DBConstants.GET_TICKETS_BETWEEN, from, to);
+             ResultSet rs = ps.executeQuery()) {
+            StringBuilder line = new StringBuilder(128);
+            while (rs.next()) {
+                Timestamp outTime = rs.getTimestamp(6);
+                line.setLength(0);
+                line.append(rs.getInt(1)).append(',')
+                        .append(csv(rs.getString(2))).append(',')
+                        .append(rs.getInt(3)).append(',')
+                        .append(rs.getString(4)).append(',')
+                        .append(format(rs.getTimestamp(5))).append(',')
+                        .append((outTime == null) ? "" : format(outTime)).append(',')
+                        .append(rs.getDouble(7)).append('\n');
+                writer.append(line);
+                tickets++;
+            }
+        }
+        writer.flush();
+        logger.info("Exported " + tickets + " tickets");
+        return tickets;
+    }
+
+    private PreparedStatement prepareStreaming(Connection con, String sql, Date from, Date to) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+        ps.setTimestamp(1, new Timestamp(from.getTime()));
+        ps.setTimestamp(2, new Timestamp(to.getTime()));
+        return ps;
+    }
+
+    private String format(Timestamp timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp.getTime()), zoneId).toString();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
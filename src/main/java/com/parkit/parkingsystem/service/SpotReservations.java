@@ -0,0 +1,74 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.util.TimingWheel;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pending reservations of a lot by code, their expiry tracked in a TimingWheel: any number of holds costs one
+ * bucket per tick, with no scheduled task per hold and no query for the expired ones.
+ */
+public class SpotReservations {
+
+    private static final char[] CODE_CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray();
+    private static final int CODE_LENGTH = 8;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, TimingWheel.Timeout<Reservation>> reservations = new HashMap<>();
+    private final TimingWheel<Reservation> expiries;
+
+    public SpotReservations(long tickMillis, long startMillis) {
+        expiries = new TimingWheel<>(tickMillis, WHEEL_LEVELS, startMillis);
+    }
+
+    /**
+     * @return a random code no pending reservation uses
+     */
+    public synchronized String newCode() {
+        char[] code = new char[CODE_LENGTH];
+        do {
+            for (int i = 0; i < CODE_LENGTH; i++) {
+                code[i] = CODE_CHARS[random.nextInt(CODE_CHARS.length)];
+            }
+        } while (reservations.containsKey(new String(code)));
+        return new String(code);
+    }
+
+    public synchronized void add(Reservation reservation) {
+        reservations.put(reservation.getCode(), expiries.schedule(reservation, reservation.getExpiresAt().getTime()));
+    }
+
+    /**
+     * @return the pending reservation with this code, no longer pending, or null if there is none
+     */
+    public synchronized Reservation remove(String code) {
+        TimingWheel.Timeout<Reservation> timeout = reservations.remove(code.toUpperCase());
+        if (timeout == null) {
+            return null;
+        }
+        expiries.cancel(timeout);
+        return timeout.getItem();
+    }
+
+    /**
+     * @return the reservations expired by nowMillis, no longer pending
+     */
+    public synchronized List<Reservation> expire(long nowMillis) {
+        List<Reservation> expired = new ArrayList<>();
+        expiries.advance(nowMillis, reservation -> {
+            reservations.remove(reservation.getCode());
+            expired.add(reservation);
+        });
+        return expired;
+    }
+
+    public synchronized int size() {
+        return reservations.size();
+    }
+}
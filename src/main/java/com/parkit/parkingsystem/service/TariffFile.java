@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tariff file compiled into a TariffTable, compiled again and swapped in when the file is modified:
+ * exits read the current table without locking, a file that cannot be compiled leaves the previous table in use.
+ */
+public class TariffFile {
+
+    private static final Logger logger = LogManager.getLogger("TariffFile");
+
+    private final Path path;
+    private final AtomicReference<TariffTable> tariffTable;
+    private FileTime lastModified;
+
+    private TariffFile(Path path, TariffTable tariffTable, FileTime lastModified) {
+        this.path = path;
+        this.tariffTable = new AtomicReference<>(tariffTable);
+        this.lastModified = lastModified;
+    }
+
+    public static TariffFile open(Path path) throws IOException {
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        return new TariffFile(path, TariffTable.load(path), lastModified);
+    }
+
+    /**
+     * @return the tariff file of fare.tariffFile, null when none is set and the default rates apply
+     */
+    public static TariffFile fromProperties() throws IOException {
+        String tariffFile = DataBaseConfig.getProperty("fare.tariffFile");
+        if (tariffFile == null || tariffFile.trim().isEmpty()) {
+            return null;
+        }
+        return open(Paths.get(tariffFile.trim()));
+    }
+
+    public TariffTable get() {
+        return tariffTable.get();
+    }
+
+    /**
+     * @return true if the file was modified and its new tariff is now in use
+     */
+    public synchronized boolean reloadIfChanged() {
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(lastModified)) {
+                return false;
+            }
+            lastModified = modified;
+            tariffTable.set(TariffTable.load(path));
+            logger.info("Tariff reloaded from " + path);
+            return true;
+        } catch (Exception ex) {
+            logger.error("Error while reloading tariff from " + path + ", the previous tariff is kept", ex);
+            return false;
+        }
+    }
+}
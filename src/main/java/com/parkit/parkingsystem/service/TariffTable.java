@@ -0,0 +1,170 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Properties;
+
+/**
+ * Tariff compiled into price lookup tables: for each ParkingType, the price from Monday 00:00 to every minute of the
+ * week, and the capped price of the whole days from Monday to every day. A stay is then priced with a few array
+ * reads whatever its length, the week tables repeat for stays longer than a week.
+ * Rules, every rate is per hour and charged by the minute on the wall clock of the tariff zone:
+ * <pre>
+ * zone=Europe/Paris              zone of the bands and weekends, system zone when missing
+ * freeMinutes=15                 stays shorter than this are free
+ * nightStart=20:00               night band, none when missing or when start and end are equal
+ * nightEnd=07:00
+ * CAR.ratePerHour=1.5            required for every ParkingType
+ * CAR.nightRatePerHour=1.0       in the night band, ratePerHour when missing
+ * CAR.weekendRatePerHour=1.0     all Saturday and Sunday, ratePerHour when missing
+ * CAR.dailyCap=15                most charged per calendar day, no cap when missing or 0
+ * </pre>
+ */
+public class TariffTable {
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+    private static final long DAYS_PER_WEEK = 7;
+    private static final int MINUTES_PER_WEEK = (int) (DAYS_PER_WEEK * MINUTES_PER_DAY);
+    //1970-01-01 was a Thursday, minutes are shifted so that the weeks of the tables start on Monday
+    private static final long EPOCH_SHIFT_MINUTES = 3 * MINUTES_PER_DAY;
+
+    private final ZoneRules zoneRules;
+    private final long fixedOffsetMillis;
+    private final int freeMinutes;
+    //by ParkingType ordinal, price from Monday 00:00 to each minute of the week, the last one is the whole week
+    private final double[][] pricesToMinute;
+    //by ParkingType ordinal, capped price of the whole days from Monday to each day of the week
+    private final double[][] cappedPricesToDay;
+    private final double[] dailyCaps;
+
+    private TariffTable(ZoneId zone, int freeMinutes, double[][] pricesToMinute, double[][] cappedPricesToDay, double[] dailyCaps) {
+        this.zoneRules = zone.getRules();
+        this.fixedOffsetMillis = zoneRules.isFixedOffset() ? zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : 0;
+        this.freeMinutes = freeMinutes;
+        this.pricesToMinute = pricesToMinute;
+        this.cappedPricesToDay = cappedPricesToDay;
+        this.dailyCaps = dailyCaps;
+    }
+
+    public static TariffTable load(Path path) throws IOException {
+        Properties rules = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            rules.load(in);
+        }
+        return compile(rules);
+    }
+
+    /**
+     * @throws IllegalArgumentException if a ParkingType has no rate or a rule cannot be parsed
+     */
+    public static TariffTable compile(Properties rules) {
+        String zone = rules.getProperty("zone", "").trim();
+        int freeMinutes = Integer.parseInt(rules.getProperty("freeMinutes", "0").trim());
+        int nightStart = minuteOfDay(rules.getProperty("nightStart", "00:00"));
+        int nightEnd = minuteOfDay(rules.getProperty("nightEnd", "00:00"));
+        int types = ParkingType.values().length;
+        double[][] pricesToMinute = new double[types][];
+        double[][] cappedPricesToDay = new double[types][];
+        double[] dailyCaps = new double[types];
+        for (ParkingType parkingType : ParkingType.values()) {
+            String ratePerHour = rules.getProperty(parkingType + ".ratePerHour");
+            if (ratePerHour == null) {
+                throw new IllegalArgumentException("No " + parkingType + ".ratePerHour in tariff");
+            }
+            double rate = Double.parseDouble(ratePerHour.trim()) / 60;
+            double nightRate = Double.parseDouble(rules.getProperty(parkingType + ".nightRatePerHour", ratePerHour).trim()) / 60;
+            double weekendRate = Double.parseDouble(rules.getProperty(parkingType + ".weekendRatePerHour", ratePerHour).trim()) / 60;
+            double dailyCap = Double.parseDouble(rules.getProperty(parkingType + ".dailyCap", "0").trim());
+            dailyCaps[parkingType.ordinal()] = (dailyCap > 0) ? dailyCap : Double.POSITIVE_INFINITY;
+
+            double[] prices = new double[MINUTES_PER_WEEK + 1];
+            double[] cappedDays = new double[(int) DAYS_PER_WEEK + 1];
+            for (int minute = 0; minute < MINUTES_PER_WEEK; minute++) {
+                long day = minute / MINUTES_PER_DAY;
+                int minuteOfDay = (int) (minute % MINUTES_PER_DAY);
+                double minuteRate;
+                if (day >= 5) {
+                    minuteRate = weekendRate;
+                } else if (isNight(minuteOfDay, nightStart, nightEnd)) {
+                    minuteRate = nightRate;
+                } else {
+                    minuteRate = rate;
+                }
+                prices[minute + 1] = prices[minute] + minuteRate;
+            }
+            for (int day = 0; day < DAYS_PER_WEEK; day++) {
+                double dayPrice = prices[(int) ((day + 1) * MINUTES_PER_DAY)] - prices[(int) (day * MINUTES_PER_DAY)];
+                cappedDays[day + 1] = cappedDays[day] + Math.min(dailyCaps[parkingType.ordinal()], dayPrice);
+            }
+            pricesToMinute[parkingType.ordinal()] = prices;
+            cappedPricesToDay[parkingType.ordinal()] = cappedDays;
+        }
+        return new TariffTable(zone.isEmpty() ? ZoneId.systemDefault() : ZoneId.of(zone), freeMinutes,
+                pricesToMinute, cappedPricesToDay, dailyCaps);
+    }
+
+    private static int minuteOfDay(String time) {
+        LocalTime localTime = LocalTime.parse(time.trim());
+        return localTime.getHour() * 60 + localTime.getMinute();
+    }
+
+    private static boolean isNight(int minuteOfDay, int nightStart, int nightEnd) {
+        if (nightStart <= nightEnd) {
+            return minuteOfDay >= nightStart && minuteOfDay < nightEnd;
+        }
+        return minuteOfDay >= nightStart || minuteOfDay < nightEnd;
+    }
+
+    /**
+     * Price of a stay, seconds are dropped from both timestamps like the default pricing does.
+     * @param parkingTypeOrdinal ordinal of the ParkingType of the spot
+     */
+    public double calculateFare(long inMillis, long outMillis, int parkingTypeOrdinal) {
+        if (outMillis / MILLIS_PER_MINUTE - inMillis / MILLIS_PER_MINUTE < freeMinutes) {
+            return 0;
+        }
+        long from = localMinute(inMillis);
+        //the wall clock goes back when summer time ends, a stay within that hour costs nothing
+        long to = Math.max(from, localMinute(outMillis));
+        long fromDay = Math.floorDiv(from, MINUTES_PER_DAY);
+        long toDay = Math.floorDiv(to, MINUTES_PER_DAY);
+        double dailyCap = dailyCaps[parkingTypeOrdinal];
+        if (fromDay == toDay) {
+            return Math.min(dailyCap, price(parkingTypeOrdinal, from, to));
+        }
+        return Math.min(dailyCap, price(parkingTypeOrdinal, from, (fromDay + 1) * MINUTES_PER_DAY))
+                + cappedPriceToDay(parkingTypeOrdinal, toDay) - cappedPriceToDay(parkingTypeOrdinal, fromDay + 1)
+                + Math.min(dailyCap, price(parkingTypeOrdinal, toDay * MINUTES_PER_DAY, to));
+    }
+
+    private long localMinute(long millis) {
+        long offsetMillis = zoneRules.isFixedOffset() ? fixedOffsetMillis
+                : zoneRules.getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(millis + offsetMillis, MILLIS_PER_MINUTE) + EPOCH_SHIFT_MINUTES;
+    }
+
+    private double price(int parkingTypeOrdinal, long from, long to) {
+        return priceToMinute(parkingTypeOrdinal, to) - priceToMinute(parkingTypeOrdinal, from);
+    }
+
+    private double priceToMinute(int parkingTypeOrdinal, long minute) {
+        double[] prices = pricesToMinute[parkingTypeOrdinal];
+        return Math.floorDiv(minute, (long) MINUTES_PER_WEEK) * prices[MINUTES_PER_WEEK]
+                + prices[(int) Math.floorMod(minute, (long) MINUTES_PER_WEEK)];
+    }
+
+    private double cappedPriceToDay(int parkingTypeOrdinal, long day) {
+        double[] cappedDays = cappedPricesToDay[parkingTypeOrdinal];
+        return Math.floorDiv(day, DAYS_PER_WEEK) * cappedDays[(int) DAYS_PER_WEEK]
+                + cappedDays[(int) Math.floorMod(day, DAYS_PER_WEEK)];
+    }
+}
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Produces the gate events of a TrafficProfile in time order. Arrivals follow a Poisson process whose rate rises in
+ * gaussian waves around the peak hours (drawn by thinning a process at the peak rate), each vehicle leaves after a
+ * log-normal dwell time of its type, and a vehicle only comes back once it has left.
+ * Only the vehicles inside the lot are held in memory, so any number of vehicles can be generated.
+ */
+public class TrafficGenerator {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final int PLATE_ATTEMPTS = 8;
+
+    private final TrafficProfile profile;
+    private final Random random;
+    private final double maxRatePerMilli;
+    private final long zoneOffset;
+    private final PriorityQueue<GateEvent> departures = new PriorityQueue<>(Comparator.comparing(GateEvent::getTime));
+
+    //per vehicle of the population: when it leaves the lot, and its type once it visited
+    private final long[] insideUntil;
+    private final byte[] plateTypes;
+    private int visitedPlates;
+    private int overflowPlates;
+
+    private long clock;
+    private int arrivals;
+    private GateEvent nextArrival;
+
+    public TrafficGenerator(TrafficProfile profile) {
+        this.profile = profile;
+        this.random = new Random(profile.getSeed());
+        this.maxRatePerMilli = profile.getArrivalsPerHour() * Math.max(1, profile.getPeakFactor()) / HOUR;
+        this.zoneOffset = TimeZone.getDefault().getOffset(profile.getStartMillis());
+        this.insideUntil = new long[profile.getPlatePopulation()];
+        this.plateTypes = new byte[profile.getPlatePopulation()];
+        this.clock = profile.getStartMillis();
+    }
+
+    /**
+     * @return the next event, or null once every vehicle arrived and left
+     */
+    public GateEvent next() {
+        if (nextArrival == null && arrivals < profile.getVehicles()) {
+            nextArrival = arrive();
+        }
+        GateEvent departure = departures.peek();
+        if (nextArrival != null && (departure == null || nextArrival.getTime().before(departure.getTime()))) {
+            GateEvent arrival = nextArrival;
+            nextArrival = null;
+            return arrival;
+        }
+        return departures.poll();
+    }
+
+    /**
+     * @return arrivals per hour over all gates at this time
+     */
+    public double getArrivalRate(long millis) {
+        double hourOfDay = (double) Math.floorMod(millis + zoneOffset, DAY) / HOUR;
+        double wave = 0;
+        for (double peakHour : profile.getPeakHours()) {
+            double distance = Math.abs(hourOfDay - peakHour);
+            distance = Math.min(distance, 24 - distance);
+            wave = Math.max(wave, Math.exp(-distance * distance / (2 * profile.getPeakWidthHours() * profile.getPeakWidthHours())));
+        }
+        return profile.getArrivalsPerHour() * (1 + (profile.getPeakFactor() - 1) * wave);
+    }
+
+    private GateEvent arrive() {
+        //thinning: candidates come at the peak rate and are kept with probability rate / peak rate
+        do {
+            clock += (long) Math.ceil(-Math.log(1 - random.nextDouble()) / maxRatePerMilli);
+        } while (random.nextDouble() * maxRatePerMilli * HOUR > getArrivalRate(clock));
+        arrivals++;
+
+        int plate = pickPlate();
+        ParkingType parkingType;
+        String vehicleRegNumber;
+        if (plate < 0) {
+            parkingType = randomType();
+            vehicleRegNumber = "SIMX" + (++overflowPlates);
+        } else {
+            parkingType = ParkingType.values()[plateTypes[plate]];
+            vehicleRegNumber = "SIM" + plate;
+        }
+        double dwellMinutes = profile.getDwellMedianMinutes(parkingType) * Math.exp(profile.getDwellSigma(parkingType) * random.nextGaussian());
+        long outTime = clock + Math.max(MINUTE, (long) (dwellMinutes * MINUTE));
+        if (plate >= 0) {
+            insideUntil[plate] = outTime;
+        }
+        departures.add(new GateEvent(new Date(outTime), GateEvent.Direction.EXIT, vehicleRegNumber, parkingType));
+        return new GateEvent(new Date(clock), GateEvent.Direction.ENTRY, vehicleRegNumber, parkingType);
+    }
+
+    //a returning vehicle, a first visit, or -1 for a one-off vehicle when the ones picked are all inside
+    private int pickPlate() {
+        for (int attempt = 0; attempt < PLATE_ATTEMPTS; attempt++) {
+            int plate;
+            if (visitedPlates > 0 && (visitedPlates == insideUntil.length || random.nextDouble() < profile.getRepeatShare())) {
+                plate = random.nextInt(visitedPlates);
+            } else if (visitedPlates < insideUntil.length) {
+                plate = visitedPlates++;
+                plateTypes[plate] = (byte) randomType().ordinal();
+            } else {
+                return -1;
+            }
+            if (insideUntil[plate] <= clock) {
+                return plate;
+            }
+        }
+        return -1;
+    }
+
+    private ParkingType randomType() {
+        return (random.nextDouble() < profile.getBikeShare()) ? ParkingType.BIKE : ParkingType.CAR;
+    }
+}
@@ -0,0 +1,172 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.TimeZone;
+
+/**
+ * Shape of the synthetic traffic played by TrafficSimulator. The defaults describe a busy city center lot:
+ * a morning and an evening peak three times busier than the rest of the day, cars staying about two hours,
+ * bikes about 45 minutes, and more than half of the visits made by returning vehicles.
+ */
+public class TrafficProfile {
+
+    private int gates = 4;
+    private int vehicles = 10000;
+    private double arrivalsPerHour = 600;
+    private double[] peakHours = {8.5, 18};
+    private double peakFactor = 3;
+    private double peakWidthHours = 1;
+    private double bikeShare = 0.2;
+    private final double[] dwellMedianMinutes = new double[ParkingType.values().length];
+    private final double[] dwellSigma = new double[ParkingType.values().length];
+    private int platePopulation = 5000;
+    private double repeatShare = 0.6;
+    private long startMillis;
+    private double speedup;
+    private long seed = 1;
+
+    public TrafficProfile() {
+        dwellMedianMinutes[ParkingType.CAR.ordinal()] = 120;
+        dwellSigma[ParkingType.CAR.ordinal()] = 0.8;
+        dwellMedianMinutes[ParkingType.BIKE.ordinal()] = 45;
+        dwellSigma[ParkingType.BIKE.ordinal()] = 0.6;
+        //midnight today, so the peaks fall in the first simulated day
+        long now = System.currentTimeMillis();
+        long offset = TimeZone.getDefault().getOffset(now);
+        startMillis = now - Math.floorMod(now + offset, 24 * 60 * 60 * 1000L);
+    }
+
+    public int getGates() {
+        return gates;
+    }
+
+    public void setGates(int gates) {
+        this.gates = gates;
+    }
+
+    public int getVehicles() {
+        return vehicles;
+    }
+
+    /**
+     * @param vehicles number of arrivals to simulate
+     */
+    public void setVehicles(int vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    public double getArrivalsPerHour() {
+        return arrivalsPerHour;
+    }
+
+    /**
+     * @param arrivalsPerHour off-peak arrival rate over all gates
+     */
+    public void setArrivalsPerHour(double arrivalsPerHour) {
+        this.arrivalsPerHour = arrivalsPerHour;
+    }
+
+    public double[] getPeakHours() {
+        return peakHours;
+    }
+
+    /**
+     * @param peakHours hours of the day, e.g. 8.5 for 8:30, around which the arrival rate is multiplied by the peak factor
+     */
+    public void setPeakHours(double... peakHours) {
+        this.peakHours = peakHours;
+    }
+
+    public double getPeakFactor() {
+        return peakFactor;
+    }
+
+    public void setPeakFactor(double peakFactor) {
+        this.peakFactor = peakFactor;
+    }
+
+    public double getPeakWidthHours() {
+        return peakWidthHours;
+    }
+
+    /**
+     * @param peakWidthHours standard deviation of the gaussian wave around each peak hour
+     */
+    public void setPeakWidthHours(double peakWidthHours) {
+        this.peakWidthHours = peakWidthHours;
+    }
+
+    public double getBikeShare() {
+        return bikeShare;
+    }
+
+    public void setBikeShare(double bikeShare) {
+        this.bikeShare = bikeShare;
+    }
+
+    public double getDwellMedianMinutes(ParkingType parkingType) {
+        return dwellMedianMinutes[parkingType.ordinal()];
+    }
+
+    public double getDwellSigma(ParkingType parkingType) {
+        return dwellSigma[parkingType.ordinal()];
+    }
+
+    /**
+     * Dwell times are log-normal: half of the vehicles stay less than the median, sigma sets how long the tail is.
+     */
+    public void setDwell(ParkingType parkingType, double medianMinutes, double sigma) {
+        dwellMedianMinutes[parkingType.ordinal()] = medianMinutes;
+        dwellSigma[parkingType.ordinal()] = sigma;
+    }
+
+    public int getPlatePopulation() {
+        return platePopulation;
+    }
+
+    /**
+     * @param platePopulation number of distinct vehicles that can visit the lot
+     */
+    public void setPlatePopulation(int platePopulation) {
+        this.platePopulation = platePopulation;
+    }
+
+    public double getRepeatShare() {
+        return repeatShare;
+    }
+
+    /**
+     * @param repeatShare probability that an arrival is a vehicle that already visited the lot
+     */
+    public void setRepeatShare(double repeatShare) {
+        this.repeatShare = repeatShare;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public void setStartMillis(long startMillis) {
+        this.startMillis = startMillis;
+    }
+
+    public double getSpeedup() {
+        return speedup;
+    }
+
+    /**
+     * @param speedup simulated time played per unit of wall clock time, 0 plays the events as fast as possible
+     */
+    public void setSpeedup(double speedup) {
+        this.speedup = speedup;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
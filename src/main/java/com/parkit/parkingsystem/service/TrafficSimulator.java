@@ -0,0 +1,222 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays the traffic of a TrafficProfile through a ParkingService, one thread per gate, and measures it.
+ * Gates call the same ParkingService methods as the gate server, with the simulated time as entry and exit time.
+ * A vehicle always goes through the gate picked from its plate, so its entry and exit are handled in order.
+ */
+public class TrafficSimulator {
+
+    private static final Logger logger = LogManager.getLogger("TrafficSimulator");
+
+    private static final GateEvent END = new GateEvent(null, null, null, null);
+    private static final int GATE_QUEUE_SIZE = 1024;
+    private static final OperationStats connectionStats = Metrics.operation("DataBaseConfig.getConnection");
+
+    private final ParkingService parkingService;
+    private final TrafficProfile profile;
+
+    public static class Report {
+        private final LatencyHistogram entryLatencies = new LatencyHistogram();
+        private final LatencyHistogram exitLatencies = new LatencyHistogram();
+        private final LongAdder entries = new LongAdder();
+        private final LongAdder exits = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder[] allocationFailures = new LongAdder[ParkingType.values().length];
+        private long vehicles;
+        private long databaseCalls;
+        private long elapsedNanos;
+
+        private Report() {
+            for (int i = 0; i < allocationFailures.length; i++) {
+                allocationFailures[i] = new LongAdder();
+            }
+        }
+
+        public long getVehicles() {
+            return vehicles;
+        }
+
+        public long getEntries() {
+            return entries.sum();
+        }
+
+        public long getExits() {
+            return exits.sum();
+        }
+
+        /**
+         * @return vehicles turned away because no spot of their type was free
+         */
+        public long getAllocationFailures(ParkingType parkingType) {
+            return allocationFailures[parkingType.ordinal()].sum();
+        }
+
+        /**
+         * @return entries and exits that threw, e.g. because the database was unavailable
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public LatencyHistogram getEntryLatencies() {
+            return entryLatencies;
+        }
+
+        public LatencyHistogram getExitLatencies() {
+            return exitLatencies;
+        }
+
+        public double getOperationsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : (getEntries() + getExits()) * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return connections borrowed from the pool per simulated vehicle, each one being a DAO call
+         */
+        public double getDatabaseCallsPerVehicle() {
+            return (vehicles == 0) ? 0 : (double) databaseCalls / vehicles;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(vehicles).append(" vehicles in ").append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms: ")
+                    .append(Math.round(getOperationsPerSecond())).append(" operations/s, ")
+                    .append(getEntries()).append(" entries, ").append(getExits()).append(" exits, ")
+                    .append(getErrors()).append(" errors\n");
+            appendLatencies(text, "entry", entryLatencies);
+            appendLatencies(text, "exit", exitLatencies);
+            text.append("allocation failures:");
+            for (ParkingType parkingType : ParkingType.values()) {
+                text.append(' ').append(parkingType).append(' ').append(getAllocationFailures(parkingType));
+            }
+            text.append('\n').append(String.format("database calls per vehicle: %.2f", getDatabaseCallsPerVehicle()));
+            return text.toString();
+        }
+
+        private static void appendLatencies(StringBuilder text, String name, LatencyHistogram latencies) {
+            text.append(String.format("%s latency (us): p50 %.1f p99 %.1f p99.9 %.1f max %.1f%n", name,
+                    latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                    latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMax() / 1000.0));
+        }
+    }
+
+    public TrafficSimulator(ParkingService parkingService, TrafficProfile profile) {
+        this.parkingService = parkingService;
+        this.profile = profile;
+    }
+
+    public Report run() throws InterruptedException {
+        Report report = new Report();
+        TrafficGenerator trafficGenerator = new TrafficGenerator(profile);
+        List<BlockingQueue<GateEvent>> gateQueues = new ArrayList<>();
+        List<Thread> gates = new ArrayList<>();
+        long databaseCallsBefore = connectionStats.getCount();
+        long start = System.nanoTime();
+        for (int gate = 0; gate < profile.getGates(); gate++) {
+            BlockingQueue<GateEvent> gateQueue = new ArrayBlockingQueue<>(GATE_QUEUE_SIZE);
+            Thread thread = new Thread(() -> runGate(gateQueue, report, start), "simulated-gate-" + gate);
+            gateQueues.add(gateQueue);
+            gates.add(thread);
+            thread.start();
+        }
+        try {
+            GateEvent event;
+            while ((event = trafficGenerator.next()) != null) {
+                if (event.getDirection() == GateEvent.Direction.ENTRY) {
+                    report.vehicles++;
+                }
+                gateQueues.get(Math.floorMod(event.getVehicleRegNumber().hashCode(), gateQueues.size())).put(event);
+            }
+        } finally {
+            for (BlockingQueue<GateEvent> gateQueue : gateQueues) {
+                gateQueue.put(END);
+            }
+            for (Thread gate : gates) {
+                gate.join();
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        report.databaseCalls = connectionStats.getCount() - databaseCallsBefore;
+        logger.info("Simulation done: " + report);
+        return report;
+    }
+
+    private void runGate(BlockingQueue<GateEvent> gateQueue, Report report, long start) {
+        //vehicles turned away at this gate, their exit is not played
+        Set<String> turnedAway = new HashSet<>();
+        try {
+            GateEvent event;
+            while ((event = gateQueue.take()) != END) {
+                waitForEventTime(event, start);
+                if (event.getDirection() == GateEvent.Direction.ENTRY) {
+                    enter(event, report, turnedAway);
+                } else if (!turnedAway.remove(event.getVehicleRegNumber())) {
+                    exit(event, report);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enter(GateEvent event, Report report, Set<String> turnedAway) {
+        long operationStart = System.nanoTime();
+        try {
+            Ticket ticket = parkingService.processIncomingVehicle(event.getParkingType(), event.getVehicleRegNumber(), event.getTime());
+            report.entryLatencies.record(System.nanoTime() - operationStart);
+            if (ticket == null) {
+                report.allocationFailures[event.getParkingType().ordinal()].increment();
+                turnedAway.add(event.getVehicleRegNumber());
+            } else {
+                report.entries.increment();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Entry of " + event.getVehicleRegNumber() + " failed: " + e.getMessage());
+            report.errors.increment();
+            turnedAway.add(event.getVehicleRegNumber());
+        }
+    }
+
+    private void exit(GateEvent event, Report report) {
+        long operationStart = System.nanoTime();
+        try {
+            parkingService.processExitingVehicle(event.getVehicleRegNumber(), event.getTime());
+            report.exitLatencies.record(System.nanoTime() - operationStart);
+            report.exits.increment();
+        } catch (RuntimeException e) {
+            logger.warn("Exit of " + event.getVehicleRegNumber() + " failed: " + e.getMessage());
+            report.errors.increment();
+        }
+    }
+
+    private void waitForEventTime(GateEvent event, long start) throws InterruptedException {
+        if (profile.getSpeedup() <= 0) {
+            return;
+        }
+        long dueNanos = start + (long) ((event.getTime().getTime() - profile.getStartMillis()) * 1e6 / profile.getSpeedup());
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
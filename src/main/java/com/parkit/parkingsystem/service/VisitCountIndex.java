@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.util.BloomFilter;
+import com.parkit.parkingsystem.util.LongIntHashMap;
+import com.parkit.parkingsystem.util.PlateCodec;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of closed tickets of each plate, so an exit knows a recurring user without counting tickets in the database.
+ * Loaded from the ticket table at startup and told of every ticket closed by this process afterwards.
+ * Plates are packed into longs by PlateCodec as in OpenSessionIndex; a Bloom filter of the packed plates answers
+ * most first visits without probing the map, it is rebuilt twice as large when the plates outgrow it.
+ */
+public class VisitCountIndex {
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final LongIntHashMap visitsByPlate;
+    private final Map<String, Integer> visitsByUnencodedPlate = new HashMap<>();
+    private BloomFilter seenPlates;
+    private int seenPlatesCapacity;
+
+    public VisitCountIndex(int expectedPlates) {
+        visitsByPlate = new LongIntHashMap(expectedPlates, 0);
+        seenPlatesCapacity = Math.max(MIN_CAPACITY, expectedPlates);
+        seenPlates = new BloomFilter(seenPlatesCapacity, BITS_PER_KEY);
+    }
+
+    /**
+     * @return the visits of the closed tickets, empty if they could not be read
+     */
+    public static VisitCountIndex load(TicketDAO ticketDAO) {
+        VisitCountIndex visitCountIndex = new VisitCountIndex(MIN_CAPACITY);
+        ticketDAO.forEachVisitCount(visitCountIndex::addVisits);
+        return visitCountIndex;
+    }
+
+    /**
+     * @return the closed tickets of this plate, 0 for a plate never seen
+     */
+    public synchronized int getVisits(String vehicleRegNumber) {
+        long key = PlateCodec.encode(vehicleRegNumber);
+        if (key == PlateCodec.NOT_ENCODABLE) {
+            Integer visits = visitsByUnencodedPlate.get(vehicleRegNumber.toUpperCase());
+            return (visits == null) ? 0 : visits;
+        }
+        if (!seenPlates.mightContain(key)) {
+            return 0;
+        }
+        return visitsByPlate.get(key);
+    }
+
+    /**
+     * Counts one more closed ticket for this plate.
+     * @return the visits of the plate, this one included
+     */
+    public int recordVisit(String vehicleRegNumber) {
+        return addVisits(vehicleRegNumber, 1);
+    }
+
+    public synchronized int addVisits(String vehicleRegNumber, int visits) {
+        long key = PlateCodec.encode(vehicleRegNumber);
+        if (key == PlateCodec.NOT_ENCODABLE) {
+            return visitsByUnencodedPlate.merge(vehicleRegNumber.toUpperCase(), visits, Integer::sum);
+        }
+        int updated = visitsByPlate.addTo(key, visits);
+        if (updated == visits) {
+            if (visitsByPlate.size() > seenPlatesCapacity) {
+                growSeenPlates();
+            } else {
+                seenPlates.add(key);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * @return the number of plates with at least one visit
+     */
+    public synchronized int size() {
+        return visitsByPlate.size() + visitsByUnencodedPlate.size();
+    }
+
+    private void growSeenPlates() {
+        seenPlatesCapacity <<= 1;
+        BloomFilter grown = new BloomFilter(seenPlatesCapacity, BITS_PER_KEY);
+        visitsByPlate.forEachKey(grown::add);
+        seenPlates = grown;
+    }
+}
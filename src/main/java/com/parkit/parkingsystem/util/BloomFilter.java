@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Bloom filter over long keys: mightContain never misses a key that was added, and answers true for an absent key
+ * with a probability of about 1% at 10 bits per key. Not thread safe, callers guard it themselves.
+ */
+public class BloomFilter {
+
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+
+    public BloomFilter(int expectedKeys, int bitsPerKey) {
+        this(new long[(int) Math.max(1, ((long) expectedKeys * bitsPerKey + 63) / 64)],
+                Math.max(1, (int) Math.round(bitsPerKey * Math.log(2))));
+    }
+
+    /**
+     * Restores a filter from the words and hash count of another one.
+     */
+    public BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.bits = (long) words.length * 64;
+        this.hashes = hashes;
+    }
+
+    public void add(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & 0x7fffffffL) % bits;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + i * h2) & 0x7fffffffL) % bits;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long[] getWords() {
+        return words;
+    }
+
+    public int getHashes() {
+        return hashes;
+    }
+
+    //murmur3 finalizer, spreads keys that only differ in a few bits
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,96 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses one line of a camera event log, either CSV:
+ * <pre>time,direction,plate,type</pre>
+ * or NDJSON:
+ * <pre>{"time":"2024-05-01T08:15:00","direction":"ENTRY","plate":"AB123CD","type":"CAR"}</pre>
+ * Time is an ISO local date time or epoch milliseconds, direction is ENTRY/IN or EXIT/OUT and type is
+ * only needed on entries.
+ */
+public class GateEventParser {
+
+    private static final Pattern JSON_FIELD = Pattern.compile("\"(\\w+)\"\\s*:\\s*\"?([^\",}]*)\"?");
+
+    private final ZoneId zoneId;
+
+    public GateEventParser(ZoneId zoneId) {
+        this.zoneId = zoneId;
+    }
+
+    /**
+     * @return the event, or null for blank lines and the CSV header
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public GateEvent parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.regionMatches(true, 0, "time,", 0, 5)) {
+            return null;
+        }
+        String time;
+        String direction;
+        String plate;
+        String type = null;
+        if (trimmed.startsWith("{")) {
+            time = direction = plate = null;
+            Matcher matcher = JSON_FIELD.matcher(trimmed);
+            while (matcher.find()) {
+                String value = matcher.group(2).trim();
+                switch (matcher.group(1)) {
+                    case "time": time = value; break;
+                    case "direction": direction = value; break;
+                    case "plate": plate = value; break;
+                    case "type": type = value; break;
+                    default: break;
+                }
+            }
+        } else {
+            String[] fields = trimmed.split(",");
+            if (fields.length < 3) {
+                throw new IllegalArgumentException("Expected time,direction,plate[,type] but got:" + line);
+            }
+            time = fields[0].trim();
+            direction = fields[1].trim();
+            plate = fields[2].trim();
+            type = (fields.length > 3) ? fields[3].trim() : null;
+        }
+        if (time == null || direction == null || plate == null || plate.isEmpty()) {
+            throw new IllegalArgumentException("Missing time, direction or plate in:" + line);
+        }
+        GateEvent.Direction parsedDirection = parseDirection(direction);
+        ParkingType parkingType = (type == null || type.isEmpty()) ? null : ParkingType.valueOf(type.toUpperCase());
+        if (parsedDirection == GateEvent.Direction.ENTRY && parkingType == null) {
+            throw new IllegalArgumentException("Missing vehicle type on entry:" + line);
+        }
+        return new GateEvent(parseTime(time), parsedDirection, plate, parkingType);
+    }
+
+    private Date parseTime(String time) {
+        if (time.chars().allMatch(Character::isDigit)) {
+            return new Date(Long.parseLong(time));
+        }
+        return Date.from(LocalDateTime.parse(time).atZone(zoneId).toInstant());
+    }
+
+    private static GateEvent.Direction parseDirection(String direction) {
+        switch (direction.toUpperCase()) {
+            case "ENTRY":
+            case "IN":
+                return GateEvent.Direction.ENTRY;
+            case "EXIT":
+            case "OUT":
+                return GateEvent.Direction.EXIT;
+            default:
+                throw new IllegalArgumentException("Unknown direction:" + direction);
+        }
+    }
+}
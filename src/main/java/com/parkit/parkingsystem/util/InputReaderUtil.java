@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.util;
 
+import com.parkit.parkingsystem.constants.DBConstants;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -24,7 +25,8 @@ public class InputReaderUtil {
     public String readVehicleRegistrationNumber() throws Exception {
         try {
             String vehicleRegNumber= scan.nextLine();
-            if(vehicleRegNumber == null || vehicleRegNumber.trim().length()==0) {
+            if(vehicleRegNumber == null || vehicleRegNumber.trim().length()==0
+                    || vehicleRegNumber.length() > DBConstants.MAX_VEHICLE_REG_NUMBER_LENGTH) {
                 throw new IllegalArgumentException("Invalid input provided");
             }
             return vehicleRegNumber;
@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.util;
+
+/**
+ * Packs a vehicle registration number into a single long so it can be used as a primitive hash key.
+ * Plates are case insensitive, like the VEHICLE_REG_NUMBER column, and use digits, letters, '-' and ' '.
+ */
+public final class PlateCodec {
+
+    public static final long NOT_ENCODABLE = -1L;
+
+    private static final int RADIX = 39;
+    private static final int MAX_LENGTH = 11;
+
+    private PlateCodec() {
+    }
+
+    /**
+     * @return a strictly positive key, or NOT_ENCODABLE when the plate is too long or has other characters
+     */
+    public static long encode(String vehicleRegNumber) {
+        int length = vehicleRegNumber.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return NOT_ENCODABLE;
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = digit(vehicleRegNumber.charAt(i));
+            if (digit == 0) {
+                return NOT_ENCODABLE;
+            }
+            key = key * RADIX + digit;
+        }
+        return key;
+    }
+
+    //0 is kept free so that "AB" and "0AB" never share a key
+    private static int digit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 11;
+        }
+        if (c == '-') {
+            return 37;
+        }
+        if (c == ' ') {
+            return 38;
+        }
+        return 0;
+    }
+}
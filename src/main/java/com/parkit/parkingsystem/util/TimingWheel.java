@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: timeouts sit in buckets of 64 ticks at the first level, 64 * 64 ticks at the second
+ * and so on, and are moved down a level when the wheel below has turned once. Scheduling and cancelling are O(1),
+ * advancing costs one bucket per tick plus the timeouts expired or moved down, whatever the number pending.
+ * Timeouts beyond the last level wait in its buckets and are placed again each time their bucket comes up.
+ * Not thread safe, callers guard it themselves.
+ */
+public class TimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * A scheduled item, its handle to cancel it.
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isPending() {
+            return next != null;
+        }
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    //buckets[level][slot] is the sentinel of a circular list
+    private final Timeout<T>[][] buckets;
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0 || levels * WHEEL_BITS > 62) {
+            throw new IllegalArgumentException("Invalid timing wheel: tick " + tickMillis + " ms, " + levels + " levels");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.buckets = newBuckets(levels);
+        for (Timeout<T>[] level : buckets) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                Timeout<T> sentinel = new Timeout<>(null, Long.MAX_VALUE);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                level[slot] = sentinel;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Timeout<T>[][] newBuckets(int levels) {
+        return (Timeout<T>[][]) new Timeout<?>[levels][WHEEL_SIZE];
+    }
+
+    /**
+     * @return the handle of the item, expired by the first advance reaching deadlineMillis rounded up to a tick
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis);
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        place(timeout, currentTick + 1);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * @return false if the timeout already expired or was cancelled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isPending()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Turns the wheel up to nowMillis and hands each expired item to the consumer, in tick order.
+     * @return the number of items expired
+     */
+    public int advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        int count = 0;
+        while (currentTick < targetTick) {
+            currentTick++;
+            //a level turns into the one below each time the levels below wrap around
+            for (int level = 1; level < buckets.length; level++) {
+                int shift = level * WHEEL_BITS;
+                if ((currentTick & ((1L << shift) - 1)) != 0) {
+                    break;
+                }
+                //detached first, a timeout beyond the last level may go back to the same bucket
+                Timeout<T> sentinel = buckets[level][(int) (currentTick >>> shift) & WHEEL_MASK];
+                Timeout<T> timeout = sentinel.next;
+                sentinel.next = sentinel;
+                sentinel.previous = sentinel;
+                while (timeout != sentinel) {
+                    Timeout<T> next = timeout.next;
+                    place(timeout, currentTick);
+                    timeout = next;
+                }
+            }
+            Timeout<T> sentinel = buckets[0][(int) currentTick & WHEEL_MASK];
+            Timeout<T> timeout = sentinel.next;
+            while (timeout != sentinel) {
+                Timeout<T> next = timeout.next;
+                if (timeout.deadlineTick <= currentTick) {
+                    unlink(timeout);
+                    size--;
+                    count++;
+                    expired.accept(timeout.item);
+                }
+                timeout = next;
+            }
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout, long earliestTick) {
+        long tick = Math.max(timeout.deadlineTick, earliestTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < buckets.length - 1 && delta >= 1L << ((level + 1) * WHEEL_BITS)) {
+            level++;
+        }
+        Timeout<T> sentinel = buckets[level][(int) (tick >>> (level * WHEEL_BITS)) & WHEEL_MASK];
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
@@ -0,0 +1,22 @@
+/* Base schema, matches the tables historically created by resources/Data.sql */
+create table if not exists parking(
+PARKING_NUMBER int PRIMARY KEY,
+AVAILABLE bool NOT NULL,
+TYPE varchar(10) NOT NULL
+);
+
+create table if not exists ticket(
+ ID int PRIMARY KEY AUTO_INCREMENT,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
+
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) select 1,true,'CAR' from dual where not exists (select * from parking where PARKING_NUMBER = 1);
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) select 2,true,'CAR' from dual where not exists (select * from parking where PARKING_NUMBER = 2);
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) select 3,true,'CAR' from dual where not exists (select * from parking where PARKING_NUMBER = 3);
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) select 4,true,'BIKE' from dual where not exists (select * from parking where PARKING_NUMBER = 4);
+insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) select 5,true,'BIKE' from dual where not exists (select * from parking where PARKING_NUMBER = 5);
@@ -0,0 +1,5 @@
+/* GET_TICKET: open ticket of a plate, covers every ticket column the query reads */
+create index IDX_TICKET_PLATE_OPEN on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME, PARKING_NUMBER, PRICE);
+
+/* GET_NEXT_PARKING_SPOT: lowest free spot of a type */
+create index IDX_PARKING_FREE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
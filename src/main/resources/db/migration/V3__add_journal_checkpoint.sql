@@ -0,0 +1,6 @@
+/* last ticket journal record written to the database, updated in the same transaction as the records */
+create table if not exists journal_checkpoint(
+ ID int PRIMARY KEY,
+ LAST_SEQ bigint NOT NULL);
+
+insert into journal_checkpoint(ID, LAST_SEQ) select 1, 0 from dual where not exists (select 1 from journal_checkpoint where ID = 1);
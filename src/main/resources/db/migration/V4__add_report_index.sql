@@ -0,0 +1,2 @@
+/* GET_CLOSED_TICKETS_BETWEEN and GET_TICKETS_BETWEEN: range scan on arrival time */
+create index IDX_TICKET_IN_TIME on ticket(IN_TIME, OUT_TIME, PARKING_NUMBER, PRICE);
@@ -0,0 +1,7 @@
+/* spots held for pre-booked customers, the spot is marked unavailable for as long as its reservation exists */
+create table if not exists reservation(
+ CODE varchar(16) PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ EXPIRES_AT DATETIME NOT NULL,
+ FOREIGN KEY (PARKING_NUMBER)
+ REFERENCES parking(PARKING_NUMBER));
@@ -0,0 +1,6 @@
+/* time written on the primary and read back from the replica to know how far behind the replica is */
+create table if not exists replica_heartbeat(
+ ID int PRIMARY KEY,
+ BEAT_MILLIS bigint NOT NULL);
+
+insert into replica_heartbeat(ID, BEAT_MILLIS) select 1, 0 from dual where not exists (select 1 from replica_heartbeat where ID = 1);
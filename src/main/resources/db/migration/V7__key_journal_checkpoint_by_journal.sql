@@ -0,0 +1,10 @@
+/* last record written to the database of each ticket journal, keyed by the random id in the journal header:
+   sequence numbers belong to one journal file and start again in a new one. Journals created before have id 0
+   and keep the checkpoint of the single row of V3 */
+create table if not exists journal_checkpoints(
+ JOURNAL_ID bigint PRIMARY KEY,
+ LAST_SEQ bigint NOT NULL);
+
+insert into journal_checkpoints(JOURNAL_ID, LAST_SEQ) select 0, LAST_SEQ from journal_checkpoint where ID = 1 and LAST_SEQ > 0;
+
+drop table if exists journal_checkpoint;
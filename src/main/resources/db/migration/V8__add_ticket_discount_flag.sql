@@ -0,0 +1,2 @@
+/* whether the recurring user discount was applied at exit, so a reprice keeps it; null for the tickets closed before */
+alter table ticket add column DISCOUNTED bool;
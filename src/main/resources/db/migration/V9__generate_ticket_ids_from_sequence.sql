@@ -0,0 +1 @@
+/* MySQL hands out AUTO_INCREMENT ticket ids safely to concurrent entries, only H2 needs the script of db/migration/h2 */
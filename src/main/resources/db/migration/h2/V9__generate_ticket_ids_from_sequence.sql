@@ -0,0 +1,9 @@
+/* H2 can give the same AUTO_INCREMENT id to two entries committed by concurrent lanes, and the second one fails on
+   the primary key; ticket ids come from a sequence instead, starting after the existing tickets */
+create sequence if not exists ticket_id_seq;
+
+alter sequence ticket_id_seq restart with (select coalesce(max(ID), 0) + 1 from ticket);
+
+alter table ticket alter column ID drop identity;
+
+alter table ticket alter column ID set default next value for ticket_id_seq;
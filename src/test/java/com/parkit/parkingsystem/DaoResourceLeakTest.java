@@ -0,0 +1,178 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.BatchTicketWriter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DaoResourceLeakTest {
+
+    /**
+     * Hands out connections whose statements and result sets are tracked until they are closed,
+     * and can make every statement execution fail.
+     */
+    private static class LeakTrackingDataBaseConfig extends DataBaseConfig {
+
+        private final Set<Object> open = ConcurrentHashMap.newKeySet();
+        private volatile boolean failExecutions;
+
+        @Override
+        protected String getJdbcUrl() {
+            return "jdbc:h2:mem:leaks;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        }
+
+        @Override
+        protected String getPoolName() {
+            return "parkit-leaks";
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return track(super.getConnection(), Connection.class);
+        }
+
+        private <T> T track(T target, Class<T> type) {
+            open.add(target);
+            return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if ("close".equals(method.getName())) {
+                    open.remove(target);
+                }
+                if (failExecutions && method.getName().startsWith("execute")) {
+                    throw new SQLException("Injected failure");
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (result instanceof PreparedStatement) {
+                    return track((PreparedStatement) result, PreparedStatement.class);
+                }
+                if (result instanceof Statement) {
+                    return track((Statement) result, Statement.class);
+                }
+                if (result instanceof ResultSet) {
+                    return track((ResultSet) result, ResultSet.class);
+                }
+                return result;
+            }));
+        }
+    }
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static LeakTrackingDataBaseConfig dataBaseConfig = new LeakTrackingDataBaseConfig();
+    private static TicketDAO ticketDAO = new TicketDAO(dataBaseConfig);
+    private static ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseConfig);
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        new DataBaseMigration(dataBaseConfig).migrate();
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        DataBaseConfig.shutdown();
+    }
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBaseConfig.failExecutions = false;
+    }
+
+    private static Ticket ticket(int spot, String plate) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(spot, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(plate);
+        ticket.setInTime(new Date(System.currentTimeMillis() - HOUR));
+        return ticket;
+    }
+
+    //every DAO call, in an order that works on an empty database
+    private static Map<String, Supplier<Object>> daoCalls() {
+        Date from = new Date(System.currentTimeMillis() - 2 * HOUR);
+        Date to = new Date();
+        Map<String, Supplier<Object>> calls = new LinkedHashMap<>();
+        calls.put("saveTicket", () -> ticketDAO.saveTicket(ticket(1, "LEAK-1")));
+        calls.put("saveTicketAndOccupySpot", () -> ticketDAO.saveTicketAndOccupySpot(ticket(2, "LEAK-2")));
+        calls.put("getTicket", () -> ticketDAO.getTicket("LEAK-1"));
+        calls.put("getOpenTickets", () -> ticketDAO.getOpenTickets());
+        calls.put("getJournalCheckpoint", () -> ticketDAO.getJournalCheckpoint(1));
+        calls.put("countOpenTickets", () -> ticketDAO.countOpenTickets());
+        calls.put("getRevenue", () -> ticketDAO.getRevenue(from, to));
+        calls.put("getTicketHistory(plate)", () -> ticketDAO.getTicketHistory("LEAK-1"));
+        calls.put("getTicketHistory(period)", () -> ticketDAO.getTicketHistory(from, to));
+        calls.put("updateTicket", () -> {
+            Ticket ticket = ticketDAO.getTicket("LEAK-1");
+            if (ticket == null) {
+                ticket = ticket(1, "LEAK-1");
+            }
+            ticket.setOutTime(to);
+            return ticketDAO.updateTicket(ticket);
+        });
+        calls.put("updateTicketAndFreeSpot", () -> {
+            Ticket ticket = ticketDAO.getTicket("LEAK-2");
+            if (ticket == null) {
+                ticket = ticket(2, "LEAK-2");
+            }
+            ticket.setOutTime(to);
+            return ticketDAO.updateTicketAndFreeSpot(ticket);
+        });
+        calls.put("getNextAvailableSlot", () -> parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        calls.put("getParkingSpots", () -> parkingSpotDAO.getParkingSpots());
+        calls.put("updateParking", () -> parkingSpotDAO.updateParking(new ParkingSpot(3, ParkingType.CAR, true)));
+        calls.put("BatchTicketWriter.flush", () -> {
+            BatchTicketWriter batchTicketWriter = new BatchTicketWriter(dataBaseConfig, 10);
+            batchTicketWriter.saveTicketAndOccupySpot(ticket(3, "LEAK-3"));
+            return batchTicketWriter.flush();
+        });
+        return calls;
+    }
+
+    @Test
+    public void everyDaoCallReleasesItsResources() {
+        for (Map.Entry<String, Supplier<Object>> call : daoCalls().entrySet()) {
+            Object result = call.getValue().get();
+            assertNotEquals(Boolean.FALSE, result, call.getKey());
+            assertNotNull(result, call.getKey());
+            assertTrue(dataBaseConfig.open.isEmpty(), call.getKey() + " leaked " + dataBaseConfig.open);
+        }
+    }
+
+    @Test
+    public void failedDaoCallsReleaseTheirResources() {
+        dataBaseConfig.failExecutions = true;
+        for (Map.Entry<String, Supplier<Object>> call : daoCalls().entrySet()) {
+            call.getValue().get();
+            assertTrue(dataBaseConfig.open.isEmpty(), call.getKey() + " leaked " + dataBaseConfig.open);
+        }
+        assertFalse(ticketDAO.saveTicket(ticket(4, "LEAK-4")));
+        assertNull(ticketDAO.getTicket("LEAK-1"));
+        assertEquals(-1, ticketDAO.countOpenTickets());
+    }
+}
@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataBaseConfigTest {
+
+    private static DataBaseConfig dataBaseConfig;
+
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+
+    @BeforeAll
+    private static void setUp() throws SQLException {
+        //create the in-memory database up front so the pool never waits on H2 start up
+        DriverManager.getConnection(URL, "root", "rootroot").close();
+        dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected String getJdbcUrl() {
+                return URL;
+            }
+
+            @Override
+            protected String getPoolName() {
+                return "parkit-pool-test";
+            }
+
+            @Override
+            protected HikariConfig getPoolConfig(String url) {
+                HikariConfig config = super.getPoolConfig(url);
+                config.setMaximumPoolSize(2);
+                config.setMinimumIdle(2);
+                config.setConnectionTimeout(1000);
+                return config;
+            }
+        };
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        DataBaseConfig.shutdown();
+    }
+
+    @Test
+    public void connectionsAreReusedAcrossCalls() throws SQLException {
+        Connection first = dataBaseConfig.getConnection();
+        Connection firstPhysical = first.unwrap(Connection.class);
+        dataBaseConfig.closeConnection(first);
+
+        Connection second = dataBaseConfig.getConnection();
+        assertSame(firstPhysical, second.unwrap(Connection.class));
+        dataBaseConfig.closeConnection(second);
+    }
+
+    @Test
+    public void borrowTimesOutWhenPoolIsExhausted() throws SQLException {
+        Connection first = dataBaseConfig.getConnection();
+        Connection second = dataBaseConfig.getConnection();
+        try {
+            HikariPoolMXBean stats = dataBaseConfig.getPoolStats();
+            assertEquals(2, stats.getActiveConnections());
+            assertThrows(SQLException.class, () -> dataBaseConfig.getConnection());
+        } finally {
+            dataBaseConfig.closeConnection(first);
+            dataBaseConfig.closeConnection(second);
+        }
+        assertEquals(0, dataBaseConfig.getPoolStats().getActiveConnections());
+    }
+}
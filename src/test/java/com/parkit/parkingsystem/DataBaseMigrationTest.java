@@ -0,0 +1,128 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataBaseMigrationTest {
+
+    private static DataBaseConfig dataBaseConfig;
+    private static int appliedOnFirstRun;
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected String getJdbcUrl() {
+                return "jdbc:h2:mem:migrationtest;MODE=MySQL;DB_CLOSE_DELAY=-1";
+            }
+
+            @Override
+            protected String getPoolName() {
+                return "parkit-migration-test";
+            }
+        };
+        appliedOnFirstRun = new DataBaseMigration(dataBaseConfig).migrate();
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        DataBaseConfig.shutdown();
+    }
+
+    private static DataBaseConfig dataBaseConfig(String name) {
+        return new DataBaseConfig() {
+            @Override
+            protected String getJdbcUrl() {
+                return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+            }
+
+            @Override
+            protected String getPoolName() {
+                return "parkit-" + name;
+            }
+        };
+    }
+
+    private String explain(String sql, Object... parameters) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("explain " + sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+
+    @Test
+    public void migrationsAreAppliedOnlyOnce() throws Exception {
+        assertEquals(DataBaseMigration.getLatestVersion(), appliedOnFirstRun);
+        assertEquals(0, new DataBaseMigration(dataBaseConfig).migrate());
+
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*) from parking");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(5, rs.getInt(1));
+        }
+    }
+
+    @Test
+    public void concurrentMigrationsApplyEachScriptOnce() throws Exception {
+        DataBaseConfig fresh = dataBaseConfig("concurrent-migration-test");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Integer>> runs = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                runs.add(executor.submit(() -> new DataBaseMigration(fresh).migrate()));
+            }
+            int applied = 0;
+            for (Future<Integer> run : runs) {
+                applied += run.get();
+            }
+            assertEquals(DataBaseMigration.getLatestVersion(), applied);
+        } finally {
+            executor.shutdown();
+        }
+
+        try (Connection con = fresh.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*), count(distinct VERSION) from schema_version");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(DataBaseMigration.getLatestVersion(), rs.getInt(1));
+            assertEquals(DataBaseMigration.getLatestVersion(), rs.getInt(2));
+        }
+    }
+
+    @Test
+    public void getTicketIsServedByTicketIndex() throws SQLException {
+        String plan = explain(DBConstants.GET_TICKET, "ABCDEF");
+        assertTrue(plan.contains("IDX_TICKET_PLATE_OPEN"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+
+    @Test
+    public void getNextParkingSpotIsServedByParkingIndex() throws SQLException {
+        String plan = explain(DBConstants.GET_NEXT_PARKING_SPOT, "CAR");
+        assertTrue(plan.contains("IDX_PARKING_FREE"), plan);
+        assertFalse(plan.contains("tableScan"), plan);
+    }
+}
@@ -5,12 +5,18 @@ import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.TariffFile;
+import com.parkit.parkingsystem.service.VisitCountIndex;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Date;
 
 public class FareCalculatorServiceTest {
@@ -124,4 +130,80 @@ public class FareCalculatorServiceTest {
         assertEquals( (24 * Fare.CAR_RATE_PER_HOUR) , ticket.getPrice());
     }
 
+    @Test
+    public void calculateFareFromMillisMatchesTicketFare(){
+        long outTime = System.currentTimeMillis();
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (int minutes = 0; minutes < 3 * 24 * 60; minutes += 7) {
+                long inTime = outTime - minutes * 60 * 1000L;
+                ticket.setInTime(new Date(inTime));
+                ticket.setOutTime(new Date(outTime));
+                ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+                fareCalculatorService.calculateFare(ticket);
+                assertEquals(ticket.getPrice(), fareCalculatorService.calculateFare(inTime, outTime, parkingType.ordinal()));
+            }
+        }
+    }
+
+    @Test
+    public void calculateFareFromMillisRejectsBadInput(){
+        long now = System.currentTimeMillis();
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(now, now - 1, ParkingType.CAR.ordinal()));
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(now, now, ParkingType.values().length));
+    }
+
+    @Test
+    public void calculateFareCarWithDiscountForRecurringUser(){
+        VisitCountIndex visitCountIndex = new VisitCountIndex(16);
+        FareCalculatorService loyaltyFareCalculatorService = new FareCalculatorService(visitCountIndex, 2);
+        Date outTime = new Date();
+        ticket.setInTime(new Date(outTime.getTime() - 60 * 60 * 1000));
+        ticket.setOutTime(outTime);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+
+        visitCountIndex.recordVisit("ABCDEF");
+        loyaltyFareCalculatorService.calculateFare(ticket);
+        assertEquals(Fare.CAR_RATE_PER_HOUR, ticket.getPrice());
+
+        visitCountIndex.recordVisit("ABCDEF");
+        loyaltyFareCalculatorService.calculateFare(ticket);
+        assertEquals(Fare.CAR_RATE_PER_HOUR * 0.95, ticket.getPrice(), 1e-9);
+    }
+
+    @Test
+    public void calculateFareWithoutVisitIndexHasNoDiscount(){
+        Date outTime = new Date();
+        ticket.setInTime(new Date(outTime.getTime() - 60 * 60 * 1000));
+        ticket.setOutTime(outTime);
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.BIKE, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        fareCalculatorService.calculateFare(ticket);
+        assertEquals(Fare.BIKE_RATE_PER_HOUR, ticket.getPrice());
+        assertFalse(fareCalculatorService.isRecurringUser("ABCDEF"));
+    }
+
+    @Test
+    public void calculateFareWithTariffFileIsChargedByTheMinute() throws IOException {
+        Path path = Files.createTempFile("tariff", ".properties");
+        try {
+            Files.write(path, "zone=UTC\nCAR.ratePerHour=2\nBIKE.ratePerHour=1\n".getBytes(StandardCharsets.ISO_8859_1));
+            VisitCountIndex visitCountIndex = new VisitCountIndex(16);
+            FareCalculatorService tariffFareCalculatorService = new FareCalculatorService(visitCountIndex, 1, TariffFile.open(path));
+            Date outTime = new Date();
+            ticket.setInTime(new Date(outTime.getTime() - 40 * 60 * 1000));
+            ticket.setOutTime(outTime);
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            ticket.setVehicleRegNumber("ABCDEF");
+            tariffFareCalculatorService.calculateFare(ticket);
+            assertEquals(40 * 2.0 / 60, ticket.getPrice(), 1e-9);
+
+            visitCountIndex.recordVisit("ABCDEF");
+            tariffFareCalculatorService.calculateFare(ticket);
+            assertEquals(40 * 2.0 / 60 * 0.95, ticket.getPrice(), 1e-9);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
 }
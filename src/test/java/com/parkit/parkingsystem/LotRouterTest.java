@@ -0,0 +1,174 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.config.LotDataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.LotRouter;
+import com.parkit.parkingsystem.model.LotStatistics;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.CrossLotQueryService;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LotRouterTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final List<String> LOTS = Arrays.asList("north", "south", "east");
+
+    private static LotRouter lotRouter;
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        for (String lotId : LOTS) {
+            System.setProperty("lot." + lotId + ".url", "jdbc:h2:mem:lot-" + lotId + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        }
+        System.setProperty("lots", String.join(",", LOTS));
+        lotRouter = LotRouter.fromProperties();
+        for (String lotId : LOTS) {
+            new DataBaseMigration(lotRouter.getDataBaseConfig(lotId)).migrate();
+        }
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        for (String lotId : LOTS) {
+            System.clearProperty("lot." + lotId + ".url");
+        }
+        System.clearProperty("lots");
+        DataBaseConfig.shutdown();
+    }
+
+    private ParkingService parkingService(String lotId) {
+        return new ParkingService(new InputReaderUtil(), lotRouter.getParkingSpotDAO(lotId), lotRouter.getTicketDAO(lotId));
+    }
+
+    @Test
+    public void eachLotIsStoredInItsOwnDataBase() {
+        assertEquals(LOTS, lotRouter.getLotIds());
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        Ticket north = parkingService("north").processIncomingVehicle(ParkingType.CAR, "SAME-1", inTime);
+        Ticket south = parkingService("south").processIncomingVehicle(ParkingType.CAR, "SAME-1", inTime);
+
+        //the same plate and spot number in two lots are two different sessions
+        assertEquals("north", north.getLotId());
+        assertEquals("south", south.getLotId());
+        assertEquals(north.getParkingSpot().getId(), south.getParkingSpot().getId());
+        assertNotEquals(north.getParkingSpot(), south.getParkingSpot());
+
+        Ticket found = lotRouter.getTicketDAO(south).getTicket("SAME-1");
+        assertEquals("south", found.getLotId());
+        assertNull(lotRouter.getTicketDAO("east").getTicket("SAME-1"));
+
+        parkingService("north").processExitingVehicle("SAME-1", new Date());
+        assertNull(lotRouter.getTicketDAO("north").getTicket("SAME-1"));
+        assertNotNull(lotRouter.getTicketDAO("south").getTicket("SAME-1"));
+        parkingService("south").processExitingVehicle("SAME-1", new Date());
+    }
+
+    @Test
+    public void statisticsAreAggregatedAcrossLots() {
+        Date start = new Date();
+        ParkingService east = parkingService("east");
+        east.processIncomingVehicle(ParkingType.BIKE, "BIKE-1", new Date(start.getTime() - 3 * HOUR));
+        east.processIncomingVehicle(ParkingType.CAR, "CAR-1", new Date(start.getTime() - 3 * HOUR));
+        east.processExitingVehicle("BIKE-1", new Date(start.getTime() + 1000));
+
+        try (CrossLotQueryService crossLotQueryService = new CrossLotQueryService(lotRouter)) {
+            Date to = new Date(start.getTime() + HOUR);
+            List<LotStatistics> lots = crossLotQueryService.getLotStatistics(start, to);
+            assertEquals(3, lots.size());
+            LotStatistics eastStatistics = lots.get(2);
+            assertEquals("east", eastStatistics.getLotId());
+            assertEquals(1, eastStatistics.getOpenTickets());
+            assertEquals(3.0, eastStatistics.getRevenue());
+            assertEquals(2, eastStatistics.getFreeSpots(ParkingType.CAR));
+
+            LotStatistics totals = crossLotQueryService.getTotals(start, to);
+            assertEquals(CrossLotQueryService.ALL_LOTS, totals.getLotId());
+            assertEquals(9, totals.getTotalSpots(ParkingType.CAR));
+            assertEquals(6, totals.getTotalSpots(ParkingType.BIKE));
+            assertEquals(6, totals.getFreeSpots(ParkingType.BIKE));
+            assertEquals(8, totals.getFreeSpots(ParkingType.CAR));
+            assertEquals(3.0, totals.getRevenue());
+        }
+    }
+
+    @Test
+    public void unreachableLotIsLeftOutOfTheTotals() {
+        //a database without the parking tables fails every statistics query
+        System.setProperty("lot.west.url", "jdbc:h2:mem:lot-west;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try {
+            LotRouter router = new LotRouter(Arrays.asList(new LotDataBaseConfig("north"), new LotDataBaseConfig("west")));
+            try (CrossLotQueryService crossLotQueryService = new CrossLotQueryService(router)) {
+                Date to = new Date();
+                List<LotStatistics> lots = crossLotQueryService.getLotStatistics(new Date(to.getTime() - HOUR), to);
+                assertTrue(lots.get(0).isAvailable());
+                assertFalse(lots.get(1).isAvailable());
+                assertEquals("west unavailable", lots.get(1).toString());
+
+                LotStatistics totals = LotStatistics.merge(CrossLotQueryService.ALL_LOTS, lots);
+                assertEquals(Arrays.asList("west"), totals.getUnavailableLots());
+                assertEquals(3, totals.getTotalSpots(ParkingType.CAR));
+                assertTrue(totals.toString().endsWith(" without unavailable lots west"));
+            }
+        } finally {
+            System.clearProperty("lot.west.url");
+        }
+    }
+
+    @Test
+    public void gateServerRoutesEachLaneToItsLot() throws Exception {
+        ParkingService north = parkingService("north");
+        ParkingService south = parkingService("south");
+        int northFree = north.getFreeSpots(ParkingType.CAR);
+        int southFree = south.getFreeSpots(ParkingType.CAR);
+        try (GateServer gateServer = new GateServer(Arrays.asList(north, south), InetAddress.getLoopbackAddress(), 0)) {
+            gateServer.start();
+            try (Socket lane = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(lane.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(lane.getOutputStream(), true)) {
+                //a lane starts on the first lot
+                out.println("ENTER CAR ROUTED");
+                assertTrue(in.readLine().startsWith("OK"));
+                out.println("LOT south");
+                assertEquals("OK", in.readLine());
+                out.println("ENTER CAR ROUTED");
+                assertTrue(in.readLine().startsWith("OK"));
+                out.println("LOT west");
+                assertEquals("ERROR unknown lot: west", in.readLine());
+                out.println("EXIT ROUTED");
+                assertTrue(in.readLine().startsWith("OK"));
+                out.println("QUIT");
+                assertEquals("BYE", in.readLine());
+            }
+        }
+        assertEquals(northFree - 1, north.getFreeSpots(ParkingType.CAR));
+        assertEquals(southFree, south.getFreeSpots(ParkingType.CAR));
+        assertNotNull(lotRouter.getTicketDAO("north").getTicket("ROUTED"));
+        assertNull(lotRouter.getTicketDAO("south").getTicket("ROUTED"));
+        north.processExitingVehicle("ROUTED", new Date());
+    }
+
+    @Test
+    public void unknownLotIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> lotRouter.getTicketDAO("west"));
+        assertThrows(IllegalArgumentException.class, () -> new LotDataBaseConfig("west"));
+    }
+}
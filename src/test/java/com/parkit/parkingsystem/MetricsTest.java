@@ -0,0 +1,79 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000, histogram.getMax());
+        assertEquals(5000500, histogram.getMean(), 1);
+        assertEquals(5000000, histogram.getValueAtPercentile(50), 5000000 * 0.035);
+        assertEquals(9900000, histogram.getValueAtPercentile(99), 9900000 * 0.035);
+        assertEquals(10000000, histogram.getValueAtPercentile(100));
+        assertEquals(1000, histogram.getValueAtPercentile(0), 1000 * 0.035);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(-5);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(3, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(800000, histogram.getCount());
+        assertEquals(99999, histogram.getMax());
+    }
+
+    @Test
+    public void operationIsPublishedOverJmx() throws Exception {
+        OperationStats stats = Metrics.operation("MetricsTest.operation");
+        assertSame(stats, Metrics.operation("MetricsTest.operation"));
+        stats.record(System.nanoTime() - 2000000);
+        stats.error();
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.parkit.parkingsystem:type=Operation,name=MetricsTest.operation");
+        assertEquals(1L, mBeanServer.getAttribute(name, "Count"));
+        assertEquals(1L, mBeanServer.getAttribute(name, "Errors"));
+        assertTrue((Double) mBeanServer.getAttribute(name, "MaxMicros") >= 2000);
+
+        mBeanServer.invoke(name, "reset", null, null);
+        assertEquals(0, stats.getCount());
+    }
+}
@@ -0,0 +1,143 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.OccupancyEvent;
+import com.parkit.parkingsystem.service.OccupancyPublisher;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OccupancyPublisherTest {
+
+    private static final int TOTAL = 1000;
+
+    private static class RecordingSubscriber implements Flow.Subscriber<OccupancyEvent> {
+
+        private final List<OccupancyEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final long initialRequest;
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(OccupancyEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        OccupancyEvent last() {
+            return events.get(events.size() - 1);
+        }
+    }
+
+    //car spots taken one after the other, then bikes: the free counts go down to TOTAL - n
+    private static void publishEntries(OccupancyPublisher publisher, ParkingType parkingType, int count) {
+        for (int i = 1; i <= count; i++) {
+            publisher.submit(new OccupancyEvent(OccupancyEvent.Kind.ENTRY, "default", parkingType, i, TOTAL - i, TOTAL, i));
+        }
+    }
+
+    @Test
+    public void slowSubscriberGetsCoalescedCounts() throws InterruptedException {
+        OccupancyPublisher publisher = new OccupancyPublisher(16);
+        RecordingSubscriber fast = new RecordingSubscriber(Long.MAX_VALUE);
+        RecordingSubscriber slow = new RecordingSubscriber(0);
+        publisher.subscribe(fast);
+        publisher.subscribe(slow);
+        assertTrue(fast.subscribed.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.subscribed.await(5, TimeUnit.SECONDS));
+
+        //one at a time, so that the fast subscriber keeps up
+        for (int i = 1; i <= 510; i++) {
+            ParkingType parkingType = (i <= 10) ? ParkingType.BIKE : ParkingType.CAR;
+            int spot = (i <= 10) ? i : i - 10;
+            publisher.submit(new OccupancyEvent(OccupancyEvent.Kind.ENTRY, "default", parkingType, spot, TOTAL - spot, TOTAL, i));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (fast.events.size() < i && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+        }
+        publisher.close();
+        assertTrue(fast.completed.await(5, TimeUnit.SECONDS));
+
+        //every change, in order
+        assertEquals(510, fast.events.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i + 1, fast.events.get(10 + i).getParkingNumber());
+        }
+        assertEquals(0, slow.events.size());
+
+        //the backlog of the slow one was replaced by the latest counts, then it caught up with the last changes
+        slow.subscription.request(Long.MAX_VALUE);
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.events.size() <= 16, slow.events.toString());
+        assertTrue(publisher.getCoalescedEvents() >= 510 - 16);
+        assertEquals(OccupancyEvent.Kind.COUNT, slow.events.get(0).getKind());
+        assertTrue(slow.events.stream().anyMatch(event -> event.getParkingType() == ParkingType.BIKE && event.getFreeSpots() == TOTAL - 10));
+        assertEquals(TOTAL - 500, slow.last().getFreeSpots());
+        assertEquals(ParkingType.CAR, slow.last().getParkingType());
+        assertNull(slow.error);
+    }
+
+    @Test
+    public void newSubscriberStartsFromTheCurrentCounts() throws InterruptedException {
+        try (OccupancyPublisher publisher = new OccupancyPublisher(8)) {
+            publishEntries(publisher, ParkingType.CAR, 3);
+            publishEntries(publisher, ParkingType.BIKE, 2);
+            RecordingSubscriber late = new RecordingSubscriber(1);
+            publisher.subscribe(late);
+            assertTrue(late.subscribed.await(5, TimeUnit.SECONDS));
+            late.subscription.request(1);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (late.events.size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, late.events.size());
+            assertEquals(OccupancyEvent.Kind.COUNT, late.events.get(0).getKind());
+            assertEquals(TOTAL - 3, late.events.get(0).getFreeSpots());
+            assertEquals(TOTAL - 2, late.events.get(1).getFreeSpots());
+
+            //cancelled subscribers are dropped, a bad request is an error
+            late.subscription.cancel();
+            RecordingSubscriber bad = new RecordingSubscriber(0);
+            publisher.subscribe(bad);
+            assertTrue(bad.subscribed.await(5, TimeUnit.SECONDS));
+            bad.subscription.request(0);
+            assertTrue(bad.completed.await(5, TimeUnit.SECONDS));
+            assertTrue(bad.error instanceof IllegalArgumentException);
+            assertEquals(0, publisher.getSubscriberCount());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new OccupancyPublisher(ParkingType.values().length));
+    }
+}
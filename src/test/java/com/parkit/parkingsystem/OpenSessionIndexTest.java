@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.OpenSessionIndex;
+import com.parkit.parkingsystem.util.PlateCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenSessionIndexTest {
+
+    private OpenSessionIndex openSessionIndex;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        openSessionIndex = new OpenSessionIndex(4);
+    }
+
+    private Ticket openTicket(int id, String vehicleRegNumber, int parkingNumber, ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+        ticket.setInTime(new Date(1_600_000_000_000L + id));
+        return ticket;
+    }
+
+    @Test
+    public void getReturnsOpenTicketOfParkedVehicle(){
+        openSessionIndex.put(openTicket(7, "AB-123-CD", 4, ParkingType.BIKE));
+
+        Ticket ticket = openSessionIndex.get("ab-123-cd");
+        assertEquals(7, ticket.getId());
+        assertEquals(4, ticket.getParkingSpot().getId());
+        assertEquals(ParkingType.BIKE, ticket.getParkingSpot().getParkingType());
+        assertEquals(1_600_000_000_007L, ticket.getInTime().getTime());
+        assertNull(ticket.getOutTime());
+        assertNull(openSessionIndex.get("AB123CD"));
+    }
+
+    @Test
+    public void removedVehicleIsNoLongerFound(){
+        openSessionIndex.put(openTicket(1, "ABCDEF", 1, ParkingType.CAR));
+
+        assertEquals(1, openSessionIndex.remove("ABCDEF").getId());
+        assertNull(openSessionIndex.remove("ABCDEF"));
+        assertNull(openSessionIndex.get("ABCDEF"));
+        assertEquals(0, openSessionIndex.size());
+    }
+
+    @Test
+    public void platesThatCannotBeEncodedAreStillIndexed(){
+        assertEquals(PlateCodec.NOT_ENCODABLE, PlateCodec.encode("ÉCOLE_01"));
+        openSessionIndex.put(openTicket(3, "ÉCOLE_01", 2, ParkingType.CAR));
+
+        assertEquals(3, openSessionIndex.get("ÉCOLE_01").getId());
+        assertNotNull(openSessionIndex.remove("ÉCOLE_01"));
+        assertFalse(openSessionIndex.contains("ÉCOLE_01"));
+    }
+
+    @Test
+    public void indexGrowsAndReusesRows(){
+        for (int i = 1; i <= 1000; i++) {
+            openSessionIndex.put(openTicket(i, "CAR" + i, i, ParkingType.CAR));
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            assertNotNull(openSessionIndex.remove("CAR" + i));
+        }
+        for (int i = 1; i <= 1000; i++) {
+            Ticket ticket = openSessionIndex.get("CAR" + i);
+            if (i % 2 == 0) {
+                assertEquals(i, ticket.getId());
+            } else {
+                assertNull(ticket);
+            }
+        }
+        assertEquals(500, openSessionIndex.size());
+    }
+}
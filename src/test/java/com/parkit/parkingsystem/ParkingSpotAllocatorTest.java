@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ParkingSpotAllocator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingSpotAllocatorTest {
+
+    @Test
+    public void claimReturnsLowestFreeSpotOfRequestedType(){
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(Arrays.asList(
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(4, ParkingType.BIKE, true)));
+
+        assertEquals(2, allocator.claim(ParkingType.CAR));
+        assertEquals(3, allocator.claim(ParkingType.CAR));
+        assertEquals(-1, allocator.claim(ParkingType.CAR));
+        assertEquals(4, allocator.claim(ParkingType.BIKE));
+    }
+
+    @Test
+    public void releasedSpotCanBeClaimedAgain(){
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, false)));
+
+        assertTrue(allocator.release(new ParkingSpot(2, ParkingType.CAR, true)));
+        assertFalse(allocator.release(new ParkingSpot(2, ParkingType.CAR, true)));
+        assertFalse(allocator.release(new ParkingSpot(9, ParkingType.CAR, true)));
+        assertEquals(1, allocator.getFreeSpots(ParkingType.CAR));
+        assertEquals(2, allocator.claim(ParkingType.CAR));
+    }
+
+    @Test
+    public void concurrentClaimsNeverShareASpot() throws InterruptedException {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            parkingSpots.add(new ParkingSpot(i, ParkingType.CAR, true));
+        }
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(parkingSpots);
+        Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1200; i++) {
+            executor.submit(() -> {
+                int spot = allocator.claim(ParkingType.CAR);
+                if (spot > 0) {
+                    assertTrue(claimed.add(spot));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1000, claimed.size());
+        assertEquals(0, allocator.getFreeSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void countersFollowClaimsAndReleases(){
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.CAR, false),
+                new ParkingSpot(4, ParkingType.BIKE, true)));
+
+        assertEquals(1, allocator.getFreeSpots(ParkingType.CAR));
+        assertEquals(1, allocator.getOccupiedSpots(ParkingType.CAR));
+        assertEquals(1, allocator.claim(ParkingType.CAR));
+        assertEquals(0, allocator.getFreeSpots(ParkingType.CAR));
+        assertEquals(2, allocator.getOccupiedSpots(ParkingType.CAR));
+
+        assertEquals(-1, allocator.claim(ParkingType.CAR));
+        assertEquals(-1, allocator.claim(ParkingType.CAR));
+        assertEquals(2, allocator.getRejectedClaims(ParkingType.CAR));
+        assertEquals(0, allocator.getRejectedClaims(ParkingType.BIKE));
+
+        allocator.release(new ParkingSpot(2, ParkingType.CAR, true));
+        assertEquals(1, allocator.getFreeSpots(ParkingType.CAR));
+        assertEquals(1, allocator.getFreeSpots(ParkingType.BIKE));
+    }
+
+    @Test
+    public void reconcileTakesAtOnceAndFreesOnSecondSighting(){
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, true),
+                new ParkingSpot(2, ParkingType.CAR, false),
+                new ParkingSpot(3, ParkingType.CAR, true)));
+        //spot 1 taken by another process, spot 2 freed behind our back
+        List<ParkingSpot> table = Arrays.asList(
+                new ParkingSpot(1, ParkingType.CAR, false),
+                new ParkingSpot(2, ParkingType.CAR, true),
+                new ParkingSpot(3, ParkingType.CAR, true),
+                new ParkingSpot(9, ParkingType.CAR, true));
+
+        assertEquals(1, allocator.reconcile(table));
+        assertEquals(1, allocator.getFreeSpots(ParkingType.CAR));
+        assertEquals(3, allocator.claim(ParkingType.CAR));
+
+        assertEquals(1, allocator.reconcile(table));
+        assertEquals(1, allocator.getFreeSpots(ParkingType.CAR));
+        assertEquals(2, allocator.claim(ParkingType.CAR));
+        assertEquals(0, allocator.reconcile(new ArrayList<>()));
+    }
+
+    @Test
+    public void freeCountStaysExactUnderConcurrentClaimsAndReleases() throws InterruptedException {
+        List<ParkingSpot> parkingSpots = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            parkingSpots.add(new ParkingSpot(i, ParkingType.CAR, true));
+        }
+        ParkingSpotAllocator allocator = new ParkingSpotAllocator(parkingSpots);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    int spot = allocator.claim(ParkingType.CAR);
+                    if (spot > 0) {
+                        allocator.release(new ParkingSpot(spot, ParkingType.CAR, true));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(200, allocator.getFreeSpots(ParkingType.CAR));
+    }
+}
@@ -0,0 +1,136 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.TariffFile;
+import com.parkit.parkingsystem.service.TariffTable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffTableTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+    private static final String TARIFF = "zone=Europe/Paris\n"
+            + "freeMinutes=15\n"
+            + "nightStart=20:00\n"
+            + "nightEnd=07:30\n"
+            + "CAR.ratePerHour=1.5\n"
+            + "CAR.nightRatePerHour=0.5\n"
+            + "CAR.weekendRatePerHour=1\n"
+            + "CAR.dailyCap=12\n"
+            + "BIKE.ratePerHour=1\n"
+            + "BIKE.nightRatePerHour=0.25\n";
+
+    private static Properties rules(String tariff) throws IOException {
+        Properties rules = new Properties();
+        rules.load(new StringReader(tariff));
+        return rules;
+    }
+
+    //prices each minute of the stay one after the other, with the rules of TARIFF
+    private static double referenceFare(long inMillis, long outMillis, ParkingType parkingType) {
+        if (outMillis / 60000 - inMillis / 60000 < 15) {
+            return 0;
+        }
+        LocalDateTime minute = LocalDateTime.ofInstant(Instant.ofEpochMilli(inMillis), ZONE).truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime out = LocalDateTime.ofInstant(Instant.ofEpochMilli(outMillis), ZONE).truncatedTo(ChronoUnit.MINUTES);
+        double cap = (parkingType == ParkingType.CAR) ? 12 : Double.POSITIVE_INFINITY;
+        double fare = 0;
+        double dayFare = 0;
+        LocalDate day = minute.toLocalDate();
+        for (; minute.isBefore(out); minute = minute.plusMinutes(1)) {
+            if (!minute.toLocalDate().equals(day)) {
+                fare += Math.min(cap, dayFare);
+                dayFare = 0;
+                day = minute.toLocalDate();
+            }
+            LocalTime time = minute.toLocalTime();
+            boolean weekend = minute.getDayOfWeek() == DayOfWeek.SATURDAY || minute.getDayOfWeek() == DayOfWeek.SUNDAY;
+            boolean night = !time.isBefore(LocalTime.of(20, 0)) || time.isBefore(LocalTime.of(7, 30));
+            if (parkingType == ParkingType.CAR) {
+                dayFare += (weekend ? 1 : night ? 0.5 : 1.5) / 60;
+            } else {
+                dayFare += (weekend ? 1 : night ? 0.25 : 1) / 60;
+            }
+        }
+        return fare + Math.min(cap, dayFare);
+    }
+
+    @Test
+    public void compiledFaresMatchTheReference() throws IOException {
+        TariffTable tariffTable = TariffTable.compile(rules(TARIFF));
+        Random random = new Random(11);
+        //2024, with both summer time changes
+        long start = 1704067200000L;
+        for (int i = 0; i < 3000; i++) {
+            long inMillis = start + (long) (random.nextDouble() * 365 * 24 * HOUR);
+            long duration = (i % 3 == 0) ? random.nextInt(45 * 60000) : (long) (random.nextDouble() * 20 * 24 * HOUR);
+            for (ParkingType parkingType : ParkingType.values()) {
+                double expected = referenceFare(inMillis, inMillis + duration, parkingType);
+                assertEquals(expected, tariffTable.calculateFare(inMillis, inMillis + duration, parkingType.ordinal()), 1e-6,
+                        parkingType + " from " + Instant.ofEpochMilli(inMillis) + " for " + duration + " ms");
+            }
+        }
+    }
+
+    @Test
+    public void bandsAndCapsAreApplied() throws IOException {
+        TariffTable tariffTable = TariffTable.compile(rules(TARIFF));
+        //Wednesday 2024-05-15 10:00 in Paris
+        long wednesday = 1715760000000L;
+        assertEquals(0, tariffTable.calculateFare(wednesday, wednesday + 14 * 60000, ParkingType.CAR.ordinal()));
+        assertEquals(3, tariffTable.calculateFare(wednesday, wednesday + 2 * HOUR, ParkingType.CAR.ordinal()), 1e-9);
+        //10:00 to 22:00: 10 day hours and 2 night hours, above the cap
+        assertEquals(12, tariffTable.calculateFare(wednesday, wednesday + 12 * HOUR, ParkingType.CAR.ordinal()), 1e-9);
+        assertEquals(10.5, tariffTable.calculateFare(wednesday, wednesday + 12 * HOUR, ParkingType.BIKE.ordinal()), 1e-9);
+        //Saturday 10:00 to 12:00
+        assertEquals(2, tariffTable.calculateFare(wednesday + 72 * HOUR, wednesday + 74 * HOUR, ParkingType.CAR.ordinal()), 1e-9);
+        //three weeks, every day capped but the weekend days (24 at 1 per hour, capped too)
+        assertEquals(21 * 12, tariffTable.calculateFare(wednesday - 10 * HOUR, wednesday + (21 * 24 - 10) * HOUR, ParkingType.CAR.ordinal()), 1e-6);
+
+        assertThrows(IllegalArgumentException.class, () -> TariffTable.compile(rules("CAR.ratePerHour=1.5")));
+    }
+
+    @Test
+    public void modifiedFileIsSwappedIn() throws IOException {
+        Path path = Files.createTempFile("tariff", ".properties");
+        try {
+            Files.write(path, TARIFF.getBytes(StandardCharsets.ISO_8859_1));
+            TariffFile tariffFile = TariffFile.open(path);
+            long wednesday = 1715760000000L;
+            TariffTable first = tariffFile.get();
+            assertFalse(tariffFile.reloadIfChanged());
+
+            Files.write(path, TARIFF.replace("CAR.ratePerHour=1.5", "CAR.ratePerHour=3").getBytes(StandardCharsets.ISO_8859_1));
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+            assertTrue(tariffFile.reloadIfChanged());
+            assertNotSame(first, tariffFile.get());
+            assertEquals(6, tariffFile.get().calculateFare(wednesday, wednesday + 2 * HOUR, ParkingType.CAR.ordinal()), 1e-9);
+
+            //a broken file leaves the last good tariff in use
+            Files.write(path, "CAR.ratePerHour=oops".getBytes(StandardCharsets.ISO_8859_1));
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 20000));
+            assertFalse(tariffFile.reloadIfChanged());
+            assertEquals(6, tariffFile.get().calculateFare(wednesday, wednesday + 2 * HOUR, ParkingType.CAR.ordinal()), 1e-9);
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
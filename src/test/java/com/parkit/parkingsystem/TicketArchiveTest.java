@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketArchive;
+import com.parkit.parkingsystem.dao.TicketArchiveWriter;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.BloomFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketArchiveTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long START = 1714521600000L;
+
+    private Path directory;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("ticket-archive");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    //ticket i arrives i hours after START, plates cycle over 10 vehicles
+    private void writeArchive(TicketArchive ticketArchive, int firstId, int tickets) throws IOException {
+        try (TicketArchiveWriter writer = new TicketArchiveWriter(ticketArchive.newFile(), 16)) {
+            for (int id = firstId; id < firstId + tickets; id++) {
+                long inTime = START + id * HOUR;
+                writer.add(id, "PLATE-" + (id % 10), id % 5 + 1, (id % 5 < 3) ? 0 : 1, inTime, inTime + 90 * 60000, id * 0.5);
+            }
+            writer.finish();
+        }
+        ticketArchive.refresh();
+    }
+
+    @Test
+    public void ticketsAreFoundByPlateAndArrivalTime() throws IOException {
+        TicketArchive ticketArchive = new TicketArchive(directory);
+        writeArchive(ticketArchive, 0, 100);
+        writeArchive(ticketArchive, 100, 50);
+        assertEquals(150, new TicketArchive(directory).getTickets());
+
+        List<Ticket> plate3 = ticketArchive.findByPlate("plate-3");
+        assertEquals(15, plate3.size());
+        Ticket ticket = plate3.get(14);
+        assertEquals(143, ticket.getId());
+        assertEquals("PLATE-3", ticket.getVehicleRegNumber());
+        assertEquals(4, ticket.getParkingSpot().getId());
+        assertEquals(ParkingType.BIKE, ticket.getParkingSpot().getParkingType());
+        assertEquals(START + 143 * HOUR, ticket.getInTime().getTime());
+        assertEquals(START + 143 * HOUR + 90 * 60000, ticket.getOutTime().getTime());
+        assertEquals(71.5, ticket.getPrice());
+
+        List<Ticket> between = ticketArchive.findBetween(new Date(START + 95 * HOUR), new Date(START + 105 * HOUR));
+        assertEquals(10, between.size());
+        assertEquals(95, between.get(0).getId());
+        assertEquals(104, between.get(9).getId());
+        assertTrue(ticketArchive.findByPlate("UNKNOWN").isEmpty());
+    }
+
+    @Test
+    public void unfinishedArchiveLeavesNoFile() throws IOException {
+        TicketArchive ticketArchive = new TicketArchive(directory);
+        try (TicketArchiveWriter writer = new TicketArchiveWriter(ticketArchive.newFile(), 16)) {
+            writer.add(1, "PLATE-1", 1, 0, START, START + HOUR, 1.5);
+        }
+        ticketArchive.refresh();
+        assertEquals(0, ticketArchive.getTickets());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            assertFalse(files.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void bloomFilterNeverMissesAnAddedKey() {
+        BloomFilter bloomFilter = new BloomFilter(1000, 10);
+        for (long key = 0; key < 1000; key++) {
+            bloomFilter.add(key * 7919);
+        }
+        int falsePositives = 0;
+        for (long key = 0; key < 1000; key++) {
+            assertTrue(bloomFilter.mightContain(key * 7919));
+            if (bloomFilter.mightContain(key * 7919 + 1)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+    }
+}
@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketJournalTest {
+
+    private Path file;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        file = Files.createTempFile("ticket-journal", ".log");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private Ticket ticket(String plate, int spot, ParkingType parkingType) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(spot, parkingType, false));
+        ticket.setVehicleRegNumber(plate);
+        ticket.setInTime(new Date(1000000L));
+        ticket.setPrice(0);
+        return ticket;
+    }
+
+    @Test
+    public void recordsSurviveReopen() throws IOException {
+        try (TicketJournal journal = new TicketJournal(file, 64 * 10, true)) {
+            assertEquals(1, journal.appendEntry(ticket("ABCDEF", 1, ParkingType.CAR)));
+            Ticket exit = ticket("ABCDEF", 1, ParkingType.CAR);
+            exit.setOutTime(new Date(4600000L));
+            exit.setPrice(1.5);
+            assertEquals(2, journal.appendExit(exit));
+            assertEquals(3, journal.appendEntry(ticket("VÉLO-1", 4, ParkingType.BIKE)));
+        }
+
+        try (TicketJournal journal = new TicketJournal(file, 64 * 10, true)) {
+            List<TicketJournal.Entry> entries = journal.readUnacknowledged(10);
+            assertEquals(3, entries.size());
+            assertFalse(entries.get(0).isExit());
+            assertNull(entries.get(0).getTicket().getOutTime());
+            TicketJournal.Entry exit = entries.get(1);
+            assertEquals(2, exit.getSeq());
+            assertTrue(exit.isExit());
+            assertEquals("ABCDEF", exit.getTicket().getVehicleRegNumber());
+            assertEquals(4600000L, exit.getTicket().getOutTime().getTime());
+            assertEquals(1.5, exit.getTicket().getPrice());
+            assertEquals("VÉLO-1", entries.get(2).getTicket().getVehicleRegNumber());
+            assertEquals(ParkingType.BIKE, entries.get(2).getTicket().getParkingSpot().getParkingType());
+            assertEquals(4, journal.appendEntry(ticket("XYZ", 2, ParkingType.CAR)));
+        }
+    }
+
+    @Test
+    public void tornRecordEndsTheLog() throws IOException {
+        try (TicketJournal journal = new TicketJournal(file, 64 * 10, true)) {
+            journal.appendEntry(ticket("AAA", 1, ParkingType.CAR));
+            journal.appendEntry(ticket("BBB", 2, ParkingType.CAR));
+        }
+        //corrupt the plate of the second record
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(64 + 64 + 40);
+            raf.write('Z');
+        }
+
+        try (TicketJournal journal = new TicketJournal(file, 64 * 10, true)) {
+            assertEquals(1, journal.getPendingRecords());
+            assertEquals(2, journal.appendEntry(ticket("CCC", 3, ParkingType.CAR)));
+        }
+    }
+
+    @Test
+    public void acknowledgedLogIsRewoundAndSequenceKeepsGrowing() throws IOException {
+        try (TicketJournal journal = new TicketJournal(file, 64 * 4, true)) {
+            for (int i = 0; i < 4; i++) {
+                journal.appendEntry(ticket("CAR" + i, i + 1, ParkingType.CAR));
+            }
+            assertThrows(IOException.class, () -> journal.appendEntry(ticket("FULL", 9, ParkingType.CAR)));
+
+            journal.acknowledge(2);
+            assertEquals(2, journal.getPendingRecords());
+            journal.acknowledge(4);
+            assertEquals(0, journal.getPendingRecords());
+
+            assertEquals(5, journal.appendEntry(ticket("CAR5", 5, ParkingType.CAR)));
+        }
+
+        //the records of before the rewind are not read again
+        try (TicketJournal journal = new TicketJournal(file, 64 * 4, true)) {
+            List<TicketJournal.Entry> entries = journal.readUnacknowledged(10);
+            assertEquals(1, entries.size());
+            assertEquals(5, entries.get(0).getSeq());
+            assertEquals("CAR5", entries.get(0).getTicket().getVehicleRegNumber());
+        }
+    }
+
+    @Test
+    public void plateTooLongIsRejected() throws IOException {
+        try (TicketJournal journal = new TicketJournal(file, 64 * 4, true)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.appendEntry(ticket("ABCDEFGHIJKLMNOPQ", 1, ParkingType.CAR)));
+            assertEquals(0, journal.getPendingRecords());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    @Test
+    public void timeoutsExpireAtTheirTickAcrossLevels() {
+        long start = 1700000000000L;
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 3, start);
+        Random random = new Random(7);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            //up to twice the range of the last level
+            long deadline = start + (long) (random.nextDouble() * 2 * 64 * 64 * 64 * 10);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(20000, wheel.size());
+
+        long now = start;
+        int expired = 0;
+        while (wheel.size() > 0) {
+            now += 1 + random.nextInt(5000);
+            long tickEnd = now;
+            List<Long> batch = new ArrayList<>();
+            expired += wheel.advance(now, batch::add);
+            for (Long deadline : batch) {
+                //expired at the first advance past its deadline rounded up to a tick, not before
+                assertTrue(deadline <= tickEnd, deadline + " expired at " + tickEnd);
+                assertTrue(deadline > tickEnd - 5000 - 10, deadline + " expired late at " + tickEnd);
+            }
+        }
+        assertEquals(20000, expired);
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverExpire() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 4, 0);
+        TimingWheel.Timeout<String> kept = wheel.schedule("kept", 5000);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 5000);
+        TimingWheel.Timeout<String> late = wheel.schedule("late", 3600000);
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+
+        List<String> expired = new ArrayList<>();
+        assertEquals(0, wheel.advance(4999, expired::add));
+        assertEquals(1, wheel.advance(5000, expired::add));
+        assertEquals(1, wheel.size());
+        assertFalse(kept.isPending());
+        assertTrue(late.isPending());
+        //a deadline already past expires at the next tick
+        wheel.schedule("past", 1000);
+        assertEquals(1, wheel.advance(6000, expired::add));
+        assertEquals(1, wheel.advance(3600000, expired::add));
+        assertEquals(0, wheel.size());
+        assertEquals(3, expired.size());
+        assertEquals("kept", expired.get(0));
+        assertEquals("past", expired.get(1));
+        assertEquals("late", expired.get(2));
+    }
+}
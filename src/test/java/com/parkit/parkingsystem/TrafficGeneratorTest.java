@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.GateEvent;
+import com.parkit.parkingsystem.service.TrafficGenerator;
+import com.parkit.parkingsystem.service.TrafficProfile;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficGeneratorTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private TrafficProfile profile() {
+        TrafficProfile profile = new TrafficProfile();
+        profile.setVehicles(20000);
+        profile.setArrivalsPerHour(100);
+        profile.setPeakHours(9);
+        profile.setPeakFactor(4);
+        profile.setPlatePopulation(3000);
+        profile.setRepeatShare(0.7);
+        profile.setSeed(42);
+        return profile;
+    }
+
+    @Test
+    public void eventsAreOrderedAndEveryVehicleLeavesAfterEntering() {
+        TrafficProfile profile = profile();
+        TrafficGenerator trafficGenerator = new TrafficGenerator(profile);
+        Map<String, Long> inside = new HashMap<>();
+        Set<String> plates = new HashSet<>();
+        long previous = Long.MIN_VALUE;
+        int entries = 0;
+        int bikes = 0;
+        long bikeDwell = 0;
+        long carDwell = 0;
+        GateEvent event;
+        while ((event = trafficGenerator.next()) != null) {
+            long time = event.getTime().getTime();
+            assertTrue(time >= previous);
+            previous = time;
+            if (event.getDirection() == GateEvent.Direction.ENTRY) {
+                assertNull(inside.put(event.getVehicleRegNumber(), time), event.getVehicleRegNumber() + " entered twice");
+                plates.add(event.getVehicleRegNumber());
+                entries++;
+            } else {
+                long dwell = time - inside.remove(event.getVehicleRegNumber());
+                assertTrue(dwell >= 60000);
+                if (event.getParkingType() == ParkingType.BIKE) {
+                    bikes++;
+                    bikeDwell += dwell;
+                } else {
+                    carDwell += dwell;
+                }
+            }
+        }
+        assertEquals(profile.getVehicles(), entries);
+        assertTrue(inside.isEmpty());
+        //returning vehicles: far fewer plates than visits
+        assertTrue(plates.size() <= profile.getPlatePopulation() + 100, plates.size() + " plates");
+        //bikes leave sooner so they are a little more often free to come back
+        assertEquals(0.2, (double) bikes / entries, 0.04);
+        assertTrue(carDwell / (entries - bikes) > bikeDwell / bikes);
+    }
+
+    @Test
+    public void arrivalsPeakAroundPeakHours() {
+        TrafficProfile profile = profile();
+        TrafficGenerator trafficGenerator = new TrafficGenerator(profile);
+        assertEquals(400, trafficGenerator.getArrivalRate(profile.getStartMillis() + 9 * HOUR), 1e-6);
+        assertEquals(100, trafficGenerator.getArrivalRate(profile.getStartMillis() + 21 * HOUR), 1);
+
+        //arrivals of the first day, between 9:00 and 10:00 and between 21:00 and 22:00
+        int peak = 0;
+        int offPeak = 0;
+        GateEvent event;
+        while ((event = trafficGenerator.next()) != null && event.getTime().getTime() < profile.getStartMillis() + 24 * HOUR) {
+            long hour = (event.getTime().getTime() - profile.getStartMillis()) / HOUR;
+            if (event.getDirection() == GateEvent.Direction.ENTRY) {
+                if (hour == 9) {
+                    peak++;
+                } else if (hour == 21) {
+                    offPeak++;
+                }
+            }
+        }
+        assertTrue(peak > 2.5 * offPeak, peak + " peak arrivals, " + offPeak + " off peak");
+    }
+}
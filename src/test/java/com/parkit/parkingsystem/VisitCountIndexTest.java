@@ -0,0 +1,40 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.service.VisitCountIndex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VisitCountIndexTest {
+
+    @Test
+    public void visitsAreCountedPerPlate() {
+        VisitCountIndex visitCountIndex = new VisitCountIndex(16);
+        assertEquals(0, visitCountIndex.getVisits("AB-123-CD"));
+        assertEquals(1, visitCountIndex.recordVisit("AB-123-CD"));
+        assertEquals(2, visitCountIndex.recordVisit("ab-123-cd"));
+        assertEquals(7, visitCountIndex.addVisits("XY-987-ZT", 7));
+        assertEquals(2, visitCountIndex.getVisits("AB-123-CD"));
+        assertEquals(7, visitCountIndex.getVisits("XY-987-ZT"));
+        assertEquals(0, visitCountIndex.getVisits("NEVER-SEEN"));
+
+        //too long or with characters PlateCodec cannot pack
+        assertEquals(1, visitCountIndex.recordVisit("VERY-LONG-PLATE-NUMBER"));
+        assertEquals(1, visitCountIndex.recordVisit("Ü-1"));
+        assertEquals(1, visitCountIndex.getVisits("very-long-plate-number"));
+        assertEquals(4, visitCountIndex.size());
+    }
+
+    @Test
+    public void platesAreFoundAfterTheFilterGrows() {
+        VisitCountIndex visitCountIndex = new VisitCountIndex(16);
+        for (int i = 0; i < 10000; i++) {
+            visitCountIndex.addVisits("P" + i, i % 5 + 1);
+        }
+        assertEquals(10000, visitCountIndex.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 5 + 1, visitCountIndex.getVisits("P" + i));
+            assertEquals(0, visitCountIndex.getVisits("Q" + i));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.dao.TicketArchive;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ArchiveService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveServiceIT {
+
+    private static final long DAY = 24 * 60 * 60 * 1000;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    private Path directory;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        dataBasePrepareService.clearDataBaseEntries();
+        directory = Files.createTempDirectory("ticket-archive");
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private void insertTicket(String plate, long inTime, Long outTime) throws SQLException {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, 1);
+            ps.setString(2, plate);
+            ps.setDouble(3, 1.5);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, (outTime == null) ? null : new Timestamp(outTime));
+            ps.executeUpdate();
+        }
+    }
+
+    private int countTickets() throws SQLException {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select count(*) from ticket");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void oldClosedTicketsMoveToTheArchive() throws Exception {
+        long now = System.currentTimeMillis();
+        for (int day = 400; day > 100; day--) {
+            insertTicket((day % 2 == 0) ? "REGULAR" : "OTHER-" + day, now - day * DAY, now - day * DAY + 3600000);
+        }
+        insertTicket("REGULAR", now - 10 * DAY, now - 10 * DAY + 3600000);
+        insertTicket("REGULAR", now - 3600000, null);
+
+        TicketArchive ticketArchive = new TicketArchive(directory);
+        ArchiveService archiveService = new ArchiveService(dataBaseTestConfig, ticketArchive, 64);
+        ArchiveService.Result result = archiveService.archive(new Date(now - 30 * DAY));
+
+        assertEquals(300, result.getTickets());
+        assertNotNull(result.getFile());
+        assertEquals(2, countTickets());
+        assertEquals(300, ticketArchive.getTickets());
+        assertNull(archiveService.archive(new Date(now - 30 * DAY)).getFile());
+
+        TicketDAO ticketDAO = new TicketDAO(dataBaseTestConfig);
+        ticketDAO.setTicketArchive(ticketArchive);
+        List<Ticket> history = ticketDAO.getTicketHistory("REGULAR");
+        assertEquals(152, history.size());
+        assertEquals(now - 400 * DAY, history.get(0).getInTime().getTime());
+        assertNull(history.get(151).getOutTime());
+        assertEquals(ticketDAO.getTicket("REGULAR").getId(), history.get(151).getId());
+
+        List<Ticket> between = ticketDAO.getTicketHistory(new Date(now - 105 * DAY), new Date(now));
+        assertEquals(7, between.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareRepricingService;
+import com.parkit.parkingsystem.service.TariffFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FareRepricingIT {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    private void insertTicket(int parkingNumber, String plate, double price, long inTime, Long outTime) throws SQLException {
+        insertTicket(parkingNumber, plate, price, inTime, outTime, null);
+    }
+
+    //discounted null for a ticket closed before the DISCOUNTED column
+    private void insertTicket(int parkingNumber, String plate, double price, long inTime, Long outTime, Boolean discounted) throws SQLException {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNTED) values(?,?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, plate);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, (outTime == null) ? null : new Timestamp(outTime));
+            if (discounted == null) {
+                ps.setNull(6, Types.BOOLEAN);
+            } else {
+                ps.setBoolean(6, discounted);
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private double price(String plate) throws SQLException {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select PRICE from ticket where VEHICLE_REG_NUMBER = ?")) {
+            ps.setString(1, plate);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getDouble(1);
+            }
+        }
+    }
+
+    @Test
+    public void closedTicketsAreRepricedAcrossChunks() throws SQLException {
+        long start = 1714550400000L;
+        for (int i = 0; i < 25; i++) {
+            //spot 1 is a CAR spot, spot 4 a BIKE spot; every other ticket carries a wrong price
+            int parkingNumber = (i % 2 == 0) ? 1 : 4;
+            double rate = (i % 2 == 0) ? 1.5 : 1.0;
+            double price = (i % 3 == 0) ? 99 : (i + 1) * rate;
+            insertTicket(parkingNumber, "PLATE" + i, price, start, start + (i + 1) * HOUR);
+        }
+        insertTicket(1, "OPEN", 42, start, null);
+        //recurring user discount granted at exit
+        insertTicket(1, "LOYAL", new FareCalculatorService().getDiscountedFare(1.5), start, start + HOUR);
+
+        FareRepricingService.Result result = new FareRepricingService(dataBaseTestConfig, new FareCalculatorService(), 4).reprice();
+
+        assertEquals(26, result.getTickets());
+        assertEquals(9, result.getRepriced());
+        assertEquals(1.5, price("PLATE0"));
+        assertEquals(4.0, price("PLATE3"));
+        assertEquals(12.0, price("PLATE11"));
+        assertEquals(42, price("OPEN"));
+        assertEquals(1.5 * 0.95, price("LOYAL"), 1e-9);
+
+        assertEquals(0, new FareRepricingService(dataBaseTestConfig, new FareCalculatorService(), 4).reprice().getRepriced());
+    }
+
+    @Test
+    public void discountedTicketsKeepTheirDiscountAfterATariffChange() throws SQLException, IOException {
+        //Wednesday 2024-05-01 08:00 UTC
+        long start = 1714550400000L;
+        FareCalculatorService fareCalculatorService = new FareCalculatorService();
+        insertTicket(1, "LOYAL", fareCalculatorService.getDiscountedFare(1.5), start, start + HOUR, true);
+        insertTicket(1, "VISITOR", 1.5, start, start + HOUR, false);
+
+        Path tariff = Files.createTempFile("tariff", ".properties");
+        try {
+            Files.write(tariff, "zone=UTC\nCAR.ratePerHour=3\nBIKE.ratePerHour=2\n".getBytes(StandardCharsets.ISO_8859_1));
+            FareCalculatorService newTariff = new FareCalculatorService(null, 0, TariffFile.open(tariff));
+            assertEquals(2, new FareRepricingService(dataBaseTestConfig, newTariff, 4).reprice().getRepriced());
+        } finally {
+            Files.delete(tariff);
+        }
+        assertEquals(3 * 0.95, price("LOYAL"), 1e-9);
+        assertEquals(3.0, price("VISITOR"), 1e-9);
+    }
+}
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.metrics.OperationStats;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.SpotInventory;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ParkingSystem;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FastStartIT {
+
+    private static final Logger logger = LogManager.getLogger("FastStartIT");
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    @BeforeAll
+    private static void setUp() {
+        System.setProperty("db.embedded.url", "jdbc:h2:mem:fast-start;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        System.setProperty("startup.fast", "true");
+        System.setProperty("startup.warmupIterations", "5000");
+        System.setProperty("metrics.dumpIntervalSeconds", "0");
+        System.setProperty("occupancy.reconcileIntervalSeconds", "0");
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        System.clearProperty("db.embedded.url");
+        System.clearProperty("startup.fast");
+        System.clearProperty("startup.warmupIterations");
+        System.clearProperty("metrics.dumpIntervalSeconds");
+        System.clearProperty("occupancy.reconcileIntervalSeconds");
+        DataBaseConfig.shutdown();
+    }
+
+    @Test
+    public void restartedGateIssuesItsFirstTicketQuickly() throws Exception {
+        DataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig();
+        //vehicles parked before the restart
+        try (ParkingSystem parkingSystem = ParkingSystem.open(dataBaseConfig, new InputReaderUtil())) {
+            ParkingService parkingService = parkingSystem.getParkingService();
+            parkingService.processIncomingVehicle(ParkingType.CAR, "BEFORE-1", new Date(System.currentTimeMillis() - 2 * HOUR));
+            parkingService.processIncomingVehicle(ParkingType.BIKE, "BEFORE-2", new Date(System.currentTimeMillis() - HOUR));
+            assertTrue(parkingSystem.awaitWarmup(30000));
+        }
+
+        //the single inventory query sees what the separate spot and ticket queries see
+        SpotInventory spotInventory = new ParkingSpotDAO(dataBaseConfig).getSpotInventory();
+        List<ParkingSpot> parkingSpots = new ParkingSpotDAO(dataBaseConfig).getParkingSpots();
+        parkingSpots.sort(Comparator.comparingInt(ParkingSpot::getId));
+        assertEquals(parkingSpots, spotInventory.getParkingSpots());
+        assertEquals(5, spotInventory.getParkingSpots().size());
+        List<Ticket> openTickets = new TicketDAO(dataBaseConfig).getOpenTickets();
+        assertEquals(2, spotInventory.getOpenTickets().size());
+        for (Ticket ticket : spotInventory.getOpenTickets()) {
+            assertTrue(openTickets.stream().anyMatch(open -> open.getId() == ticket.getId()
+                    && open.getVehicleRegNumber().equals(ticket.getVehicleRegNumber())
+                    && open.getParkingSpot().equals(ticket.getParkingSpot())
+                    && open.getInTime().equals(ticket.getInTime())));
+        }
+
+        OperationStats incomingStats = Metrics.operation("ParkingService.processIncomingVehicle");
+        long incomingBefore = incomingStats.getCount();
+        long start = System.nanoTime();
+        try (ParkingSystem parkingSystem = ParkingSystem.open(dataBaseConfig, new InputReaderUtil())) {
+            ParkingService parkingService = parkingSystem.getParkingService();
+            Ticket first = parkingService.processIncomingVehicle(ParkingType.CAR, "FIRST-1", new Date());
+            long timeToFirstTicket = System.nanoTime() - start;
+            logger.info("Time to first ticket: " + timeToFirstTicket / 1000 + " us");
+            assertNotNull(first);
+            assertTrue(timeToFirstTicket < 5000L * 1000000, timeToFirstTicket / 1000000 + " ms");
+
+            //the warmup only used its scratch lot
+            assertTrue(parkingSystem.awaitWarmup(30000));
+            assertEquals(1, parkingService.getFreeSpots(ParkingType.CAR));
+            assertEquals(1, parkingService.getFreeSpots(ParkingType.BIKE));
+            assertEquals(3, new TicketDAO(dataBaseConfig).countOpenTickets());
+            //and its own metrics, the gate ones still count the real vehicles
+            assertEquals(incomingBefore + 1, incomingStats.getCount());
+            assertTrue(Metrics.operation("ParkingWarmup.processIncomingVehicle").getCount() >= 2 * 5000);
+            assertEquals(2.0 * 1.5, parkingService.processExitingVehicle("BEFORE-1", new Date()).getPrice(), 0.1);
+        }
+    }
+}
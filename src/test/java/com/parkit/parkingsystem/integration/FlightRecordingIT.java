@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.metrics.FlightRecording;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecordingIT {
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void gateOperationsAndTheirStatementsAreRecorded() throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        Map<String, String> settings = FlightRecording.settings();
+        assertEquals("true", settings.get("com.parkit.GateOperation#enabled"));
+        assertEquals("1 ms", settings.get("com.parkit.JdbcStatement#threshold"));
+        //the embedded database answers faster than the threshold of the profile
+        settings.put("com.parkit.JdbcStatement#threshold", "0 ms");
+        settings.put("com.parkit.ConnectionAcquire#threshold", "0 ms");
+
+        Path file = Files.createTempFile("parking", ".jfr");
+        try {
+            Ticket ticket;
+            try (Recording recording = new Recording(settings)) {
+                recording.start();
+                ticket = parkingService.processIncomingVehicle(ParkingType.CAR, "JFR-1", new Date());
+                parkingService.processExitingVehicle("JFR-1", new Date());
+                parkingService.processIncomingVehicle(ParkingType.BIKE, "JFR-2", new Date());
+                parkingService.processIncomingVehicle(ParkingType.BIKE, "JFR-3", new Date());
+                assertNull(parkingService.processIncomingVehicle(ParkingType.BIKE, "JFR-4", new Date()));
+                assertThrows(IllegalStateException.class, () -> parkingService.processExitingVehicle("UNKNOWN", new Date()));
+                recording.stop();
+                recording.dump(file);
+            }
+            List<RecordedEvent> recorded = RecordingFile.readAllEvents(file);
+
+            List<RecordedEvent> gate = events(recorded, "com.parkit.GateOperation");
+            assertEquals(6, gate.size());
+            RecordedEvent entry = gate.get(0);
+            assertEquals("ENTRY", entry.getString("operation"));
+            assertEquals("CAR", entry.getString("parkingType"));
+            assertEquals(ticket.getParkingSpot().getId(), entry.getInt("parkingNumber"));
+            assertEquals(ticket.getLotId(), entry.getString("lotId"));
+            assertEquals("OK", entry.getString("outcome"));
+            assertEquals("EXIT", gate.get(1).getString("operation"));
+            assertEquals(ticket.getParkingSpot().getId(), gate.get(1).getInt("parkingNumber"));
+            assertEquals("FULL", gate.get(4).getString("outcome"));
+            assertEquals("FAILED", gate.get(5).getString("outcome"));
+
+            List<RecordedEvent> statements = events(recorded, "com.parkit.JdbcStatement");
+            assertTrue(statements.stream().anyMatch(event -> "SAVE_TICKET".equals(event.getString("sqlId")) && event.getLong("rows") == 1));
+            assertTrue(statements.stream().anyMatch(event -> "UPDATE_PARKING_SPOT".equals(event.getString("sqlId")) && event.getLong("rows") == 1));
+            //the unknown vehicle was looked up in the ticket table
+            assertTrue(statements.stream().anyMatch(event -> "GET_TICKET".equals(event.getString("sqlId")) && event.getLong("rows") == 0));
+
+            List<RecordedEvent> connections = events(recorded, "com.parkit.ConnectionAcquire");
+            assertFalse(connections.isEmpty());
+            assertTrue(connections.stream().allMatch(event -> event.getBoolean("acquired") && event.getString("pool") != null));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.BatchTicketWriter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateEventReplayService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.GateEventParser;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateEventReplayIT {
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    private GateEventReplayService.Report replay(String events) throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        //tiny batches and commit interval so that exits land in a later flush than their entry
+        GateEventReplayService replayService = new GateEventReplayService(parkingService,
+                new BatchTicketWriter(dataBaseTestConfig, 2), new GateEventParser(ZoneOffset.UTC), 3);
+        return replayService.replay(new BufferedReader(new StringReader(events)));
+    }
+
+    private void execute(String sql) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.execute();
+        }
+    }
+
+    private int count(String sql) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void replayWritesTicketsAndFinalSpotState() throws Exception {
+        GateEventReplayService.Report report = replay(
+                "time,direction,plate,type\n" +
+                "2024-05-01T08:00:00,ENTRY,CAR1,CAR\n" +
+                "2024-05-01T08:05:00,ENTRY,CAR2,CAR\n" +
+                "{\"time\":\"2024-05-01T08:10:00\",\"direction\":\"IN\",\"plate\":\"BIKE1\",\"type\":\"BIKE\"}\n" +
+                "2024-05-01T08:20:00,ENTRY,CAR3,CAR\n" +
+                "2024-05-01T08:25:00,ENTRY,CAR4,CAR\n" +
+                "2024-05-01T09:00:00,EXIT,CAR1\n" +
+                "2024-05-01T09:10:00,OUT,BIKE1\n" +
+                "not,a,valid,line\n" +
+                "2024-05-01T10:00:00,ENTRY,CAR1,CAR\n" +
+                "2024-05-01T10:30:00,EXIT,CAR1\n");
+
+        assertEquals(9, report.getEvents());
+        assertEquals(5, report.getEntries());
+        assertEquals(3, report.getExits());
+        assertEquals(1, report.getRejected());
+        assertEquals(1, report.getMalformed());
+
+        assertEquals(5, count("select count(*) from ticket"));
+        assertEquals(2, count("select count(*) from ticket where OUT_TIME is null"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CAR1' and PRICE = 1.5"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CAR1' and PRICE = 1.125"));
+        assertEquals(2, count("select count(*) from parking where AVAILABLE = false"));
+    }
+
+    @Test
+    public void rolledBackFlushIsRetriedWithTheOriginalBatch() throws Exception {
+        AtomicBoolean failNextCommit = new AtomicBoolean(true);
+        DataBaseTestConfig failingCommit = new DataBaseTestConfig() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection con = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if ("commit".equals(method.getName()) && failNextCommit.getAndSet(false)) {
+                        throw new SQLException("commit failed");
+                    }
+                    try {
+                        return method.invoke(con, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+            }
+        };
+        BatchTicketWriter batchTicketWriter = new BatchTicketWriter(failingCommit, 10);
+        Ticket exit = new Ticket();
+        exit.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, true));
+        exit.setVehicleRegNumber("LATE");
+        exit.setInTime(new Date(System.currentTimeMillis() - 3600 * 1000));
+        exit.setOutTime(new Date());
+        exit.setPrice(1.5);
+        batchTicketWriter.updateTicketAndFreeSpot(exit);
+        execute("update parking set AVAILABLE = false where PARKING_NUMBER = 1");
+
+        //no open ticket yet, the close matches nothing and the transaction is rolled back
+        assertFalse(batchTicketWriter.flush());
+        assertEquals(1, batchTicketWriter.getPendingOperations());
+
+        //the entry reaches the database before the retry, which closes it and frees its spot
+        execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME) values(1, 'LATE', 0, now())");
+        assertTrue(batchTicketWriter.flush());
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'LATE' and OUT_TIME is not null"));
+        assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1 and AVAILABLE = true"));
+    }
+}
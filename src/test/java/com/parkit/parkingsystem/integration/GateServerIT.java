@@ -0,0 +1,223 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.OccupancyPublisher;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateServerIT {
+
+    private static final int LANES = 200;
+    private static final int CYCLES_PER_LANE = 10;
+    private static final int EXTRA_CAR_SPOTS = 300;
+    private static final int DUPLICATE_EXIT_ROUNDS = 50;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        execute("insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) select X + 5, true, 'CAR' from system_range(1, " + EXTRA_CAR_SPOTS + ")");
+    }
+
+    //each test starts from free spots and no tickets, whatever ran before it
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    @AfterAll
+    private static void tearDown() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        execute("delete from parking where PARKING_NUMBER > 5");
+    }
+
+    private static void execute(String sql) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.execute();
+        }
+    }
+
+    private static int count(String sql) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void concurrentLanesNeverShareASpot() throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        Set<Integer> occupiedSpots = ConcurrentHashMap.newKeySet();
+        CountDownLatch allConnected = new CountDownLatch(LANES);
+
+        try (GateServer gateServer = new GateServer(parkingService, InetAddress.getLoopbackAddress(), 0)) {
+            gateServer.start();
+            ExecutorService clients = Executors.newFixedThreadPool(LANES);
+            List<Future<Integer>> lanes = new ArrayList<>();
+            for (int lane = 0; lane < LANES; lane++) {
+                String vehicleRegNumber = "LANE" + lane;
+                lanes.add(clients.submit(() -> {
+                    int failures = 0;
+                    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                         PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                        allConnected.countDown();
+                        assertTrue(allConnected.await(30, TimeUnit.SECONDS));
+                        for (int cycle = 0; cycle < CYCLES_PER_LANE; cycle++) {
+                            out.println("ENTER CAR " + vehicleRegNumber);
+                            String[] entered = in.readLine().split(" ");
+                            if (!"OK".equals(entered[0])) {
+                                failures++;
+                                continue;
+                            }
+                            int spot = Integer.parseInt(entered[1]);
+                            if (!occupiedSpots.add(spot)) {
+                                failures++;
+                            }
+                            occupiedSpots.remove(spot);
+                            out.println("EXIT " + vehicleRegNumber);
+                            if (!in.readLine().startsWith("OK")) {
+                                failures++;
+                            }
+                        }
+                        out.println("QUIT");
+                        assertEquals("BYE", in.readLine());
+                    }
+                    return failures;
+                }));
+            }
+            for (Future<Integer> lane : lanes) {
+                assertEquals(0, (int) lane.get(60, TimeUnit.SECONDS));
+            }
+            clients.shutdown();
+        }
+
+        assertEquals(LANES * CYCLES_PER_LANE, count("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(0, count("select count(*) from ticket where OUT_TIME is null"));
+        assertEquals(0, count("select count(*) from parking where AVAILABLE = false"));
+        assertEquals(EXTRA_CAR_SPOTS + 3, parkingService.getFreeSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void duplicateExitsFromTwoLanesCloseTheTicketOnce() throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        int totalCarSpots = parkingService.getTotalSpots(ParkingType.CAR);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        try (GateServer gateServer = new GateServer(parkingService, InetAddress.getLoopbackAddress(), 0)) {
+            gateServer.start();
+            try (Socket laneA = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                 BufferedReader inA = new BufferedReader(new InputStreamReader(laneA.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter outA = new PrintWriter(laneA.getOutputStream(), true);
+                 Socket laneB = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                 BufferedReader inB = new BufferedReader(new InputStreamReader(laneB.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter outB = new PrintWriter(laneB.getOutputStream(), true)) {
+                for (int round = 0; round < DUPLICATE_EXIT_ROUNDS; round++) {
+                    String vehicleRegNumber = "TWICE" + round;
+                    outA.println("ENTER CAR " + vehicleRegNumber);
+                    assertTrue(inA.readLine().startsWith("OK"));
+                    //the same vehicle is read by the cameras of two exit lanes at once
+                    CyclicBarrier bothLanes = new CyclicBarrier(2);
+                    Future<String> exitA = clients.submit(() -> {
+                        bothLanes.await(5, TimeUnit.SECONDS);
+                        outA.println("EXIT " + vehicleRegNumber);
+                        return inA.readLine();
+                    });
+                    Future<String> exitB = clients.submit(() -> {
+                        bothLanes.await(5, TimeUnit.SECONDS);
+                        outB.println("EXIT " + vehicleRegNumber);
+                        return inB.readLine();
+                    });
+                    String replyA = exitA.get(10, TimeUnit.SECONDS);
+                    String replyB = exitB.get(10, TimeUnit.SECONDS);
+                    assertTrue(replyA.startsWith("OK") ^ replyB.startsWith("OK"), replyA + " / " + replyB);
+                    assertEquals(totalCarSpots, parkingService.getFreeSpots(ParkingType.CAR));
+                }
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        assertEquals(DUPLICATE_EXIT_ROUNDS, count("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(0, count("select count(*) from parking where AVAILABLE = false"));
+        //a gate that read the ticket before it was closed cannot close it again
+        TicketDAO ticketDAO = new TicketDAO(dataBaseTestConfig);
+        Ticket closed = ticketDAO.getTicketHistory("TWICE0").get(0);
+        closed.setPrice(99);
+        assertFalse(ticketDAO.updateTicketAndFreeSpot(closed));
+        assertTrue(ticketDAO.getTicketHistory("TWICE0").get(0).getPrice() != 99);
+    }
+
+    @Test
+    public void watchConnectionStreamsOccupancyChanges() throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        int totalCarSpots = parkingService.getTotalSpots(ParkingType.CAR);
+        int totalBikeSpots = parkingService.getTotalSpots(ParkingType.BIKE);
+        try (OccupancyPublisher occupancyPublisher = new OccupancyPublisher(64);
+             GateServer gateServer = new GateServer(parkingService, InetAddress.getLoopbackAddress(), 0)) {
+            parkingService.setOccupancyPublisher(occupancyPublisher);
+            gateServer.start();
+            try (Socket display = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                 BufferedReader events = new BufferedReader(new InputStreamReader(display.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter watch = new PrintWriter(display.getOutputStream(), true);
+                 Socket lane = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(lane.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(lane.getOutputStream(), true)) {
+                display.setSoTimeout(5000);
+                watch.println("WATCH");
+                assertEquals("OK", events.readLine());
+                assertEquals("EVENT COUNT CAR 0 " + totalCarSpots + "/" + totalCarSpots, events.readLine());
+                assertEquals("EVENT COUNT BIKE 0 " + totalBikeSpots + "/" + totalBikeSpots, events.readLine());
+
+                out.println("ENTER CAR WATCHED");
+                String spot = in.readLine().split(" ")[1];
+                assertEquals("EVENT ENTRY CAR " + spot + " " + (totalCarSpots - 1) + "/" + totalCarSpots, events.readLine());
+                out.println("EXIT WATCHED");
+                assertTrue(in.readLine().startsWith("OK"));
+                assertEquals("EVENT EXIT CAR " + spot + " " + totalCarSpots + "/" + totalCarSpots, events.readLine());
+
+                watch.println("QUIT");
+                assertEquals("BYE", events.readLine());
+            }
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.parkit.parkingsystem.integration;
 
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.VisitCountIndex;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -13,6 +18,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -62,4 +71,23 @@ public class ParkingDataBaseIT {
         //TODO: check that the fare generated and out time are populated correctly in the database
     }
 
+    @Test
+    public void testRecurringUserExit(){
+        long hour = 60 * 60 * 1000;
+        Ticket previousVisit = new Ticket();
+        previousVisit.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        previousVisit.setVehicleRegNumber("ABCDEF");
+        previousVisit.setPrice(Fare.CAR_RATE_PER_HOUR);
+        previousVisit.setInTime(new Date(System.currentTimeMillis() - 48 * hour));
+        previousVisit.setOutTime(new Date(System.currentTimeMillis() - 47 * hour));
+        assertTrue(ticketDAO.saveTicket(previousVisit));
+
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        parkingService.setVisitCountIndex(VisitCountIndex.load(ticketDAO), 1);
+        parkingService.processIncomingVehicle();
+        Ticket ticket = parkingService.processExitingVehicle("ABCDEF", new Date(System.currentTimeMillis() + hour));
+
+        assertEquals(Fare.CAR_RATE_PER_HOUR * (1 - Fare.RECURRING_USER_DISCOUNT), ticket.getPrice(), 1e-9);
+    }
+
 }
@@ -0,0 +1,142 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.DataBaseMigration;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.ReportService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The replica is a second in-memory database that the test "replicates" by hand: tickets written only there show
+ * which database answered, and its heartbeat is set to make it fresh or late.
+ */
+public class ReplicaRoutingIT {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+    private static DataBaseConfig replicaConfig = new DataBaseConfig() {
+        @Override
+        protected String getJdbcUrl() {
+            return REPLICA_URL;
+        }
+
+        @Override
+        protected String getPoolName() {
+            return "parkit-test-replica";
+        }
+    };
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        System.setProperty("db.test.replicaUrl", REPLICA_URL);
+        System.setProperty("db.replica.maxLagMillis", "2000");
+        //check the lag on every read
+        System.setProperty("db.replica.checkIntervalMillis", "0");
+        new DataBaseMigration(replicaConfig).migrate();
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        System.clearProperty("db.test.replicaUrl");
+        System.clearProperty("db.replica.maxLagMillis");
+        System.clearProperty("db.replica.checkIntervalMillis");
+        DataBaseConfig.shutdown();
+    }
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        dataBasePrepareService.clearDataBaseEntries();
+        execute(replicaConfig, "delete from ticket");
+        execute(replicaConfig, "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(1, 'ON-REPLICA', 3, '2024-05-01 08:00:00', '2024-05-01 10:00:00')");
+    }
+
+    private static void execute(DataBaseConfig dataBaseConfig, String sql) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.executeUpdate();
+        }
+    }
+
+    private static long heartbeat(DataBaseConfig dataBaseConfig) throws SQLException {
+        try (Connection con = dataBaseConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("select BEAT_MILLIS from replica_heartbeat where ID = 1");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    private static void setReplicaHeartbeat(long beatMillis) throws SQLException {
+        execute(replicaConfig, "update replica_heartbeat set BEAT_MILLIS = " + beatMillis + " where ID = 1");
+    }
+
+    @Test
+    public void freshReplicaAnswersReportsButNotTheGates() throws SQLException {
+        TicketDAO ticketDAO = new TicketDAO(dataBaseTestConfig);
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(), new ParkingSpotDAO(dataBaseTestConfig), ticketDAO);
+        parkingService.processIncomingVehicle(ParkingType.CAR, "ON-PRIMARY", new Date(System.currentTimeMillis() - HOUR));
+        setReplicaHeartbeat(System.currentTimeMillis());
+
+        assertEquals(1, ticketDAO.getTicketHistory("ON-REPLICA").size());
+        assertTrue(ticketDAO.getTicketHistory("ON-PRIMARY").isEmpty());
+        assertEquals(0, ticketDAO.countOpenTickets());
+        assertEquals(3.0, new ReportService(dataBaseTestConfig, 100).getUsageReport(
+                Timestamp.valueOf("2024-05-01 00:00:00"), Timestamp.valueOf("2024-05-02 00:00:00")).getRevenue(8, ParkingType.CAR));
+
+        //the gates read their own writes on the primary
+        assertNotNull(ticketDAO.getTicket("ON-PRIMARY"));
+        assertEquals(1.5, parkingService.processExitingVehicle("ON-PRIMARY", new Date()).getPrice(), 0.1);
+        //the heartbeat the replica will get once it catches up
+        assertTrue(heartbeat(dataBaseTestConfig) > 0);
+    }
+
+    @Test
+    public void lateReplicaFallsBackToThePrimary() throws SQLException {
+        TicketDAO ticketDAO = new TicketDAO(dataBaseTestConfig);
+        new ParkingService(new InputReaderUtil(), new ParkingSpotDAO(dataBaseTestConfig), ticketDAO)
+                .processIncomingVehicle(ParkingType.CAR, "ON-PRIMARY", new Date());
+        setReplicaHeartbeat(System.currentTimeMillis() - 60000);
+
+        assertEquals(1, ticketDAO.getTicketHistory("ON-PRIMARY").size());
+        assertTrue(ticketDAO.getTicketHistory("ON-REPLICA").isEmpty());
+        assertEquals(1, ticketDAO.countOpenTickets());
+
+        setReplicaHeartbeat(System.currentTimeMillis());
+        assertEquals(1, ticketDAO.getTicketHistory("ON-REPLICA").size());
+    }
+
+    @Test
+    public void unreachableReplicaFallsBackToThePrimary() {
+        System.setProperty("db.test.replicaUrl", "jdbc:h2:tcp://localhost:1/nowhere");
+        try {
+            TicketDAO ticketDAO = new TicketDAO(dataBaseTestConfig);
+            new ParkingService(new InputReaderUtil(), new ParkingSpotDAO(dataBaseTestConfig), ticketDAO)
+                    .processIncomingVehicle(ParkingType.BIKE, "ON-PRIMARY", new Date());
+            assertEquals(1, ticketDAO.getTicketHistory("ON-PRIMARY").size());
+            assertEquals(1, ticketDAO.countOpenTickets());
+        } finally {
+            System.setProperty("db.test.replicaUrl", REPLICA_URL);
+        }
+    }
+}
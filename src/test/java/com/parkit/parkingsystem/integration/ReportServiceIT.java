@@ -0,0 +1,94 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ReportPeriod;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.UsageReport;
+import com.parkit.parkingsystem.service.ReportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportServiceIT {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    //2024-05-01T00:00Z
+    private static final long DAY_START = 1714521600000L;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    private ReportService reportService = new ReportService(dataBaseTestConfig, 2, ZoneOffset.UTC);
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        dataBasePrepareService.clearDataBaseEntries();
+        //spot 1 is a CAR spot, spot 4 a BIKE spot
+        insertTicket(1, "CAR-1", 3.0, DAY_START + 8 * HOUR, DAY_START + 10 * HOUR);
+        insertTicket(2, "CAR-2", 1.5, DAY_START + 8 * HOUR + 1800000, DAY_START + 9 * HOUR + 1800000);
+        insertTicket(4, "BIKE-1", 1.0, DAY_START + 9 * HOUR, DAY_START + 10 * HOUR);
+        insertTicket(1, "CAR-3", 4.5, DAY_START + 24 * HOUR, DAY_START + 27 * HOUR);
+        insertTicket(2, "OPEN", 0, DAY_START + 25 * HOUR, null);
+        insertTicket(1, "BEFORE", 9, DAY_START - HOUR, DAY_START);
+    }
+
+    private void insertTicket(int parkingNumber, String plate, double price, long inTime, Long outTime) throws SQLException {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)")) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, plate);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, (outTime == null) ? null : new Timestamp(outTime));
+            ps.executeUpdate();
+        }
+    }
+
+    @Test
+    public void closedTicketsAreAggregatedPerHourAndType() throws Exception {
+        UsageReport usageReport = reportService.getUsageReport(new Date(DAY_START), new Date(DAY_START + 48 * HOUR));
+
+        assertEquals(4, usageReport.getTickets());
+        assertEquals(48, usageReport.getHours());
+        assertEquals(2, usageReport.getVisits(8, ParkingType.CAR));
+        assertEquals(4.5, usageReport.getRevenue(8, ParkingType.CAR));
+        assertEquals(3 * HOUR, usageReport.getDwellMillis(8, ParkingType.CAR));
+        assertEquals(1, usageReport.getVisits(9, ParkingType.BIKE));
+
+        StringWriter daily = new StringWriter();
+        reportService.writeUsageCsv(usageReport, ReportPeriod.DAY, daily);
+        assertEquals("period,type,visits,revenue,average_dwell_minutes\n"
+                + "2024-05-01,CAR,2,4.50,90.0\n"
+                + "2024-05-01,BIKE,1,1.00,60.0\n"
+                + "2024-05-02,CAR,1,4.50,180.0\n", daily.toString());
+
+        StringWriter hourly = new StringWriter();
+        reportService.writeUsageCsv(usageReport, ReportPeriod.HOUR, hourly);
+        assertEquals("period,type,visits,revenue,average_dwell_minutes\n"
+                + "2024-05-01T08:00,CAR,2,4.50,90.0\n"
+                + "2024-05-01T09:00,BIKE,1,1.00,60.0\n"
+                + "2024-05-02T00:00,CAR,1,4.50,180.0\n", hourly.toString());
+    }
+
+    @Test
+    public void ticketsAreExportedWithOpenOnes() throws Exception {
+        StringWriter csv = new StringWriter();
+        long tickets = reportService.exportTicketsCsv(new Date(DAY_START + 24 * HOUR), new Date(DAY_START + 48 * HOUR), csv);
+
+        assertEquals(2, tickets);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].endsWith(",CAR-3,1,CAR,2024-05-02T00:00,2024-05-02T03:00,4.5"));
+        assertTrue(lines[2].endsWith(",OPEN,2,CAR,2024-05-02T01:00,,0.0"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ReservationDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Reservation;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateServer;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationIT {
+
+    private static final long TICK = 10;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @BeforeEach
+    private void setUpPerTest() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    private ParkingService parkingService() {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        parkingService.loadReservations(new ReservationDAO(dataBaseTestConfig), TICK);
+        return parkingService;
+    }
+
+    private boolean isAvailableInTable(int parkingNumber) {
+        return new ParkingSpotDAO(dataBaseTestConfig).getParkingSpots().stream()
+                .filter(spot -> spot.getId() == parkingNumber)
+                .findFirst().map(ParkingSpot::isAvailable).orElseThrow(IllegalStateException::new);
+    }
+
+    @Test
+    public void reservedSpotIsKeptForItsCode() {
+        ParkingService parkingService = parkingService();
+        Reservation reservation = parkingService.reserveSpot(ParkingType.CAR, new Date(System.currentTimeMillis() + 3600000));
+        int reservedSpot = reservation.getParkingSpot().getId();
+        assertEquals(2, parkingService.getFreeSpots(ParkingType.CAR));
+        assertFalse(isAvailableInTable(reservedSpot));
+
+        //vehicles without the code get the other spots
+        assertNotEquals(reservedSpot, parkingService.processIncomingVehicle(ParkingType.CAR, "OTHER-1", new Date()).getParkingSpot().getId());
+        assertNotEquals(reservedSpot, parkingService.processIncomingVehicle(ParkingType.CAR, "OTHER-2", new Date()).getParkingSpot().getId());
+        assertNull(parkingService.processIncomingVehicle(ParkingType.CAR, "OTHER-3", new Date()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> parkingService.processIncomingVehicle(ParkingType.BIKE, "BOOKED", new Date(), reservation.getCode()));
+        Ticket ticket = parkingService.processIncomingVehicle(ParkingType.CAR, "BOOKED", new Date(), reservation.getCode().toLowerCase());
+        assertEquals(reservedSpot, ticket.getParkingSpot().getId());
+        assertEquals(0, parkingService.getPendingReservations());
+        assertTrue(new ReservationDAO(dataBaseTestConfig).getReservations().isEmpty());
+
+        //the used reservation does not free the spot when the vehicle leaves
+        parkingService.processExitingVehicle("BOOKED", new Date());
+        assertTrue(isAvailableInTable(reservedSpot));
+        assertEquals(1, parkingService.getFreeSpots(ParkingType.CAR));
+    }
+
+    @Test
+    public void expiredAndCancelledReservationsGoBackToTheAllocator() throws InterruptedException {
+        ParkingService parkingService = parkingService();
+        Reservation expiring = parkingService.reserveSpot(ParkingType.BIKE, new Date(System.currentTimeMillis() + 5 * TICK));
+        Reservation cancelled = parkingService.reserveSpot(ParkingType.BIKE, new Date(System.currentTimeMillis() + 3600000));
+        assertNull(parkingService.reserveSpot(ParkingType.BIKE, new Date(System.currentTimeMillis() + 3600000)));
+        assertEquals(0, parkingService.getFreeSpots(ParkingType.BIKE));
+
+        assertEquals(0, parkingService.expireReservations());
+        Thread.sleep(10 * TICK);
+        assertEquals(1, parkingService.expireReservations());
+        assertEquals(1, parkingService.getFreeSpots(ParkingType.BIKE));
+        assertTrue(isAvailableInTable(expiring.getParkingSpot().getId()));
+
+        //an expired code gets any free spot
+        Ticket ticket = parkingService.processIncomingVehicle(ParkingType.BIKE, "LATE", new Date(), expiring.getCode());
+        assertEquals(expiring.getParkingSpot().getId(), ticket.getParkingSpot().getId());
+
+        assertTrue(parkingService.cancelReservation(cancelled.getCode()));
+        assertFalse(parkingService.cancelReservation(cancelled.getCode()));
+        assertTrue(isAvailableInTable(cancelled.getParkingSpot().getId()));
+        assertEquals(1, parkingService.getFreeSpots(ParkingType.BIKE));
+    }
+
+    @Test
+    public void pendingReservationsSurviveARestart() throws InterruptedException {
+        Reservation pending = parkingService().reserveSpot(ParkingType.CAR, new Date(System.currentTimeMillis() + 3600000));
+        Reservation expiring = parkingService().reserveSpot(ParkingType.CAR, new Date(System.currentTimeMillis() + 5 * TICK));
+
+        ParkingService restarted = parkingService();
+        assertEquals(2, restarted.getPendingReservations());
+        assertEquals(1, restarted.getFreeSpots(ParkingType.CAR));
+        Thread.sleep(10 * TICK);
+        assertEquals(1, restarted.expireReservations());
+        assertEquals(2, restarted.getFreeSpots(ParkingType.CAR));
+        assertNotEquals(pending.getParkingSpot().getId(), expiring.getParkingSpot().getId());
+        assertEquals(pending.getParkingSpot().getId(),
+                restarted.processIncomingVehicle(ParkingType.CAR, "BOOKED", new Date(), pending.getCode()).getParkingSpot().getId());
+    }
+
+    @Test
+    public void reservationsThatWouldAlreadyBeExpiredAreRefused() throws Exception {
+        ParkingService parkingService = parkingService();
+        assertThrows(IllegalArgumentException.class, () -> parkingService.reserveSpot(ParkingType.CAR, new Date()));
+        try (GateServer gateServer = new GateServer(parkingService, InetAddress.getLoopbackAddress(), 0)) {
+            gateServer.start();
+            try (Socket lane = new Socket(InetAddress.getLoopbackAddress(), gateServer.getPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(lane.getInputStream(), StandardCharsets.UTF_8));
+                 PrintWriter out = new PrintWriter(lane.getOutputStream(), true)) {
+                out.println("RESERVE CAR 0");
+                assertEquals("ERROR reservation minutes must be positive", in.readLine());
+                out.println("RESERVE CAR -5");
+                assertEquals("ERROR reservation minutes must be positive", in.readLine());
+                out.println("QUIT");
+                assertEquals("BYE", in.readLine());
+            }
+        }
+        assertEquals(0, parkingService.getPendingReservations());
+        assertEquals(3, parkingService.getFreeSpots(ParkingType.CAR));
+    }
+}
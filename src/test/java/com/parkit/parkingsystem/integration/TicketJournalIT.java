@@ -0,0 +1,203 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.JournalFlusher;
+import com.parkit.parkingsystem.dao.JournalTicketWriter;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketJournal;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TicketJournalIT {
+
+    private static final int CAPACITY = 64 * 1000;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    private Path file;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        dataBasePrepareService.clearDataBaseEntries();
+        file = Files.createTempFile("ticket-journal", ".log");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private ParkingService journaledParkingService(TicketJournal journal) {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        parkingService.setTicketWriter(new JournalTicketWriter(journal));
+        return parkingService;
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void gateOperationsReachTheDataBaseOnDrain() throws Exception {
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            ParkingService parkingService = journaledParkingService(journal);
+            long now = System.currentTimeMillis();
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR1", new Date(now - 3600 * 1000));
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR2", new Date(now - 3600 * 1000));
+            parkingService.processExitingVehicle("CAR1", new Date(now));
+
+            //acknowledged to the gate, not in the database yet
+            assertEquals(0, count("select count(*) from ticket"));
+            assertEquals(3, journal.getPendingRecords());
+
+            JournalFlusher flusher = new JournalFlusher(journal, dataBaseTestConfig, 100, 1000);
+            assertEquals(3, flusher.drain());
+            assertEquals(0, journal.getPendingRecords());
+            assertEquals(2, count("select count(*) from ticket"));
+            assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CAR1' and PRICE = 1.5 and OUT_TIME is not null"));
+            assertEquals(1, count("select count(*) from parking where AVAILABLE = false"));
+            assertEquals(3, new TicketDAO(dataBaseTestConfig).getJournalCheckpoint(journal.getJournalId()));
+        }
+    }
+
+    @Test
+    public void recordsAreAppliedOnceAfterRestart() throws Exception {
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            ParkingService parkingService = journaledParkingService(journal);
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR1", new Date());
+            parkingService.processIncomingVehicle(ParkingType.BIKE, "BIKE1", new Date());
+            new JournalFlusher(journal, dataBaseTestConfig, 100, 1000).drain();
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR2", new Date());
+        }
+
+        //restart: the two flushed records are found again in the file, only the third one is applied
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            assertEquals(3, journal.getPendingRecords());
+            assertEquals(1, new JournalFlusher(journal, dataBaseTestConfig, 100, 1000).drain());
+            assertEquals(0, journal.getPendingRecords());
+        }
+        assertEquals(3, count("select count(*) from ticket"));
+        assertEquals(3, count("select count(*) from parking where AVAILABLE = false"));
+    }
+
+    @Test
+    public void recreatedJournalRecordsAreNotSkipped() throws Exception {
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            ParkingService parkingService = journaledParkingService(journal);
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR1", new Date());
+            parkingService.processIncomingVehicle(ParkingType.CAR, "CAR2", new Date());
+            parkingService.processExitingVehicle("CAR1", new Date());
+            assertEquals(3, new JournalFlusher(journal, dataBaseTestConfig, 100, 1000).drain());
+        }
+
+        //the journal file is lost, the new one starts again at sequence 1
+        Files.delete(file);
+        Path otherGateFile = Files.createTempFile("ticket-journal", ".log");
+        Files.delete(otherGateFile);
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true);
+             TicketJournal otherGateJournal = new TicketJournal(otherGateFile, CAPACITY, true)) {
+            assertNotEquals(journal.getJournalId(), otherGateJournal.getJournalId());
+            ParkingService parkingService = journaledParkingService(journal);
+            parkingService.processIncomingVehicle(ParkingType.BIKE, "BIKE1", new Date());
+            parkingService.processExitingVehicle("CAR2", new Date());
+            //so does the journal of another gate writing to the same database
+            journaledParkingService(otherGateJournal).processIncomingVehicle(ParkingType.CAR, "CAR3", new Date());
+
+            assertEquals(2, new JournalFlusher(journal, dataBaseTestConfig, 100, 1000).drain());
+            assertEquals(1, new JournalFlusher(otherGateJournal, dataBaseTestConfig, 100, 1000).drain());
+            assertEquals(2, new TicketDAO(dataBaseTestConfig).getJournalCheckpoint(journal.getJournalId()));
+            assertEquals(1, new TicketDAO(dataBaseTestConfig).getJournalCheckpoint(otherGateJournal.getJournalId()));
+        } finally {
+            Files.deleteIfExists(otherGateFile);
+        }
+        assertEquals(4, count("select count(*) from ticket"));
+        assertEquals(2, count("select count(*) from ticket where OUT_TIME is not null"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'BIKE1'"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CAR3'"));
+    }
+
+    @Test
+    public void recordsWaitInTheJournalWhileTheDataBaseIsDown() throws Exception {
+        DataBaseTestConfig downDataBase = new DataBaseTestConfig() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("database down");
+            }
+        };
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            ParkingService parkingService = journaledParkingService(journal);
+            assertNotNull(parkingService.processIncomingVehicle(ParkingType.CAR, "CAR1", new Date()));
+
+            assertEquals(0, new JournalFlusher(journal, downDataBase, 100, 1000).drain());
+            assertEquals(1, journal.getPendingRecords());
+
+            assertEquals(1, new JournalFlusher(journal, dataBaseTestConfig, 100, 1000).drain());
+            assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'CAR1'"));
+        }
+    }
+
+    @Test
+    public void platesTooLongForTheTicketTableAreRejectedAtTheGate() throws Exception {
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            ParkingService parkingService = journaledParkingService(journal);
+            assertThrows(IllegalArgumentException.class,
+                    () -> parkingService.processIncomingVehicle(ParkingType.CAR, "ABCDEFGHIJKL", new Date()));
+            assertEquals(0, journal.getPendingRecords());
+            assertEquals(3, parkingService.getFreeSpots(ParkingType.CAR));
+
+            Ticket ticket = new Ticket();
+            ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+            ticket.setVehicleRegNumber("ABCDEFGHIJK");
+            ticket.setInTime(new Date());
+            assertThrows(IllegalArgumentException.class, () -> journal.appendEntry(ticket));
+            assertEquals(0, journal.getPendingRecords());
+        }
+    }
+
+    @Test
+    public void refusedRecordDoesNotHoldBackTheOthers() throws Exception {
+        try (TicketJournal journal = new TicketJournal(file, CAPACITY, true)) {
+            //no such spot, the ticket insert breaks the foreign key every time
+            Ticket refused = new Ticket();
+            refused.setParkingSpot(new ParkingSpot(999, ParkingType.CAR, false));
+            refused.setVehicleRegNumber("NOSPOT");
+            refused.setInTime(new Date());
+            journal.appendEntry(refused);
+            assertNotNull(journaledParkingService(journal).processIncomingVehicle(ParkingType.CAR, "NORMAL1", new Date()));
+
+            JournalFlusher flusher = new JournalFlusher(journal, dataBaseTestConfig, 100, 1000);
+            assertEquals(1, flusher.drain());
+            assertEquals(0, journal.getPendingRecords());
+            assertEquals(0, flusher.drain());
+        }
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'NORMAL1'"));
+        assertEquals(0, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'NOSPOT'"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.service.TrafficProfile;
+import com.parkit.parkingsystem.service.TrafficSimulator;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficSimulatorIT {
+
+    private static final int EXTRA_CAR_SPOTS = 40;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @BeforeAll
+    private static void setUp() {
+        dataBasePrepareService.clearDataBaseEntries();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO(dataBaseTestConfig);
+        for (int i = 1; i <= EXTRA_CAR_SPOTS; i++) {
+            assertTrue(parkingSpotDAO.saveParkingSpot(new ParkingSpot(5 + i, ParkingType.CAR, true)));
+        }
+    }
+
+    @AfterAll
+    private static void tearDown() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        try (Connection con = dataBaseTestConfig.getConnection();
+             PreparedStatement ps = con.prepareStatement("delete from parking where PARKING_NUMBER > 5")) {
+            ps.execute();
+        }
+    }
+
+    @Test
+    public void simulatedTrafficIsPlayedAndMeasured() throws Exception {
+        ParkingService parkingService = new ParkingService(new InputReaderUtil(),
+                new ParkingSpotDAO(dataBaseTestConfig), new TicketDAO(dataBaseTestConfig));
+        TrafficProfile profile = new TrafficProfile();
+        profile.setGates(4);
+        profile.setVehicles(1500);
+        profile.setArrivalsPerHour(15);
+        profile.setPeakFactor(1);
+        profile.setPlatePopulation(300);
+
+        TrafficSimulator.Report report = new TrafficSimulator(parkingService, profile).run();
+
+        long turnedAway = report.getAllocationFailures(ParkingType.CAR) + report.getAllocationFailures(ParkingType.BIKE);
+        assertEquals(1500, report.getVehicles());
+        assertEquals(report.getVehicles(), report.getEntries() + turnedAway + report.getErrors());
+        assertEquals(report.getEntries(), report.getExits());
+        //the two bike spots cannot take every bike
+        assertTrue(report.getAllocationFailures(ParkingType.BIKE) > 0);
+        assertTrue(report.getEntries() > 1200);
+        assertEquals(report.getEntries(), report.getEntryLatencies().getCount() - turnedAway);
+        assertTrue(report.getDatabaseCallsPerVehicle() > 1);
+        assertTrue(report.getOperationsPerSecond() > 0);
+        assertEquals(EXTRA_CAR_SPOTS + 3, parkingService.getFreeSpots(ParkingType.CAR));
+    }
+}
@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.integration.service;
 
+import com.parkit.parkingsystem.config.DataBaseMigration;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
@@ -11,14 +12,22 @@ public class DataBasePrepareService {
     public void clearDataBaseEntries(){
         Connection connection = null;
         try{
+            new DataBaseMigration(dataBaseTestConfig).migrate();
+
             connection = dataBaseTestConfig.getConnection();
 
+            //forget the spot reservations
+            connection.prepareStatement("delete from reservation").execute();
+
             //set parking entries to available
             connection.prepareStatement("update parking set available = true").execute();
 
             //clear ticket entries;
             connection.prepareStatement("truncate table ticket").execute();
 
+            //forget the ticket journal records applied by previous tests
+            connection.prepareStatement("delete from journal_checkpoints").execute();
+
         }catch(Exception e){
             e.printStackTrace();
         }finally {